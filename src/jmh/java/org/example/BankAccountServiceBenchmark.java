@@ -0,0 +1,71 @@
+package org.example;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+// Однопоточные замеры основных операций BankAccountServiceImpl
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(1)
+public class BankAccountServiceBenchmark {
+    private static final Money AMOUNT = Money.parse("1.00");
+    private static final double DOUBLE_AMOUNT = 1.0;
+    // Ставка, при которой проценты не обнуляются округлением и баланс не переполняется за прогон
+    private static final double INTEREST_RATE = 0.000001;
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        private int next;
+
+        int nextIndex(int bound) {
+            int index = next;
+            next = index + 1 == bound ? 0 : index + 1;
+            return index;
+        }
+    }
+
+    @Benchmark
+    public void deposit(BenchmarkAccounts accounts, Cursor cursor) {
+        accounts.service.deposit(accounts.accountIds[cursor.nextIndex(accounts.accountCount)], AMOUNT);
+    }
+
+    @Benchmark
+    public void depositDouble(BenchmarkAccounts accounts, Cursor cursor) {
+        accounts.service.deposit(accounts.accountIds[cursor.nextIndex(accounts.accountCount)], DOUBLE_AMOUNT);
+    }
+
+    @Benchmark
+    public void withdraw(BenchmarkAccounts accounts, Cursor cursor) {
+        accounts.service.withdraw(accounts.accountIds[cursor.nextIndex(accounts.accountCount)], AMOUNT);
+    }
+
+    @Benchmark
+    public void transfer(BenchmarkAccounts accounts, Cursor cursor) {
+        int from = cursor.nextIndex(accounts.accountCount);
+        int to = from + 1 == accounts.accountCount ? 0 : from + 1;
+        accounts.service.transfer(accounts.accountIds[from], accounts.accountIds[to], AMOUNT);
+    }
+
+    @Benchmark
+    public void applyInterest(BenchmarkAccounts accounts, Cursor cursor) {
+        accounts.service.applyInterest(accounts.accountIds[cursor.nextIndex(accounts.accountCount)], INTEREST_RATE);
+    }
+
+    @Benchmark
+    public double getBalance(BenchmarkAccounts accounts, Cursor cursor) {
+        return accounts.service.getBalance(accounts.accountIds[cursor.nextIndex(accounts.accountCount)]);
+    }
+}
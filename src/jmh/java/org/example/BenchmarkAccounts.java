@@ -0,0 +1,30 @@
+package org.example;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+// Общее состояние бенчмарков: сервис с in-memory хранилищами и набор счетов
+@State(Scope.Benchmark)
+public class BenchmarkAccounts {
+    // Баланс, которого заведомо хватает на все списания за прогон
+    static final Money INITIAL_BALANCE = Money.ofMinor(Long.MAX_VALUE / 4);
+
+    @Param({"1000", "100000"})
+    public int accountCount;
+
+    BankAccountService service;
+    String[] accountIds;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        service = new BankAccountServiceImpl(new InMemoryAccountRepository(accountCount),
+                new InMemoryTransactionRepository());
+        accountIds = new String[accountCount];
+        for (int i = 0; i < accountCount; i++) {
+            accountIds[i] = service.createAccount("owner" + i, INITIAL_BALANCE).getAccountId();
+        }
+    }
+}
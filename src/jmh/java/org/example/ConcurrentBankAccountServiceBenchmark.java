@@ -0,0 +1,86 @@
+package org.example;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.ThreadParams;
+
+import java.util.concurrent.TimeUnit;
+
+// Многопоточные замеры: CONTENDED - все потоки работают с несколькими общими счетами,
+// UNCONTENDED - у каждого потока свой непересекающийся диапазон счетов
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(4)
+public class ConcurrentBankAccountServiceBenchmark {
+    private static final Money AMOUNT = Money.parse("1.00");
+    private static final int HOT_ACCOUNTS = 4;
+
+    public enum AccessPattern { CONTENDED, UNCONTENDED }
+
+    @State(Scope.Thread)
+    public static class ThreadAccounts {
+        @Param({"CONTENDED", "UNCONTENDED"})
+        public AccessPattern pattern;
+
+        private int from;
+        private int size;
+        private int next;
+
+        @Setup(Level.Trial)
+        public void setUp(BenchmarkAccounts accounts, ThreadParams threads) {
+            if (pattern == AccessPattern.CONTENDED) {
+                from = 0;
+                size = Math.min(HOT_ACCOUNTS, accounts.accountCount);
+            } else {
+                size = Math.max(2, accounts.accountCount / threads.getThreadCount());
+                from = (threads.getThreadIndex() * size) % accounts.accountCount;
+                size = Math.min(size, accounts.accountCount - from);
+            }
+        }
+
+        int nextIndex() {
+            int index = from + next;
+            next = next + 1 == size ? 0 : next + 1;
+            return index;
+        }
+
+        int neighbour(int index) {
+            return index + 1 == from + size ? from : index + 1;
+        }
+    }
+
+    @Benchmark
+    public void deposit(BenchmarkAccounts accounts, ThreadAccounts thread) {
+        accounts.service.deposit(accounts.accountIds[thread.nextIndex()], AMOUNT);
+    }
+
+    @Benchmark
+    public void withdraw(BenchmarkAccounts accounts, ThreadAccounts thread) {
+        accounts.service.withdraw(accounts.accountIds[thread.nextIndex()], AMOUNT);
+    }
+
+    @Benchmark
+    public void transfer(BenchmarkAccounts accounts, ThreadAccounts thread) {
+        int from = thread.nextIndex();
+        accounts.service.transfer(accounts.accountIds[from], accounts.accountIds[thread.neighbour(from)], AMOUNT);
+    }
+
+    @Benchmark
+    public double getBalance(BenchmarkAccounts accounts, ThreadAccounts thread) {
+        return accounts.service.getBalance(accounts.accountIds[thread.nextIndex()]);
+    }
+}
@@ -0,0 +1,62 @@
+package org.example;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Стоимость InMemoryTransactionRepository.findByAccountId в зависимости от длины истории
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TransactionHistoryBenchmark {
+    // Счета, история которых перемешана с историей измеряемого счета
+    private static final int INTERLEAVED_ACCOUNTS = 10;
+
+    @Param({"1000", "100000"})
+    public int accountCount;
+
+    @Param({"10", "1000", "100000"})
+    public int historyLength;
+
+    private TransactionRepository repository;
+    private String accountId;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        repository = new InMemoryTransactionRepository();
+        Money amount = Money.parse("1.00");
+        // Первые счета получают по historyLength записей вперемешку, остальные - по одной
+        int interleaved = Math.min(accountCount, INTERLEAVED_ACCOUNTS);
+        for (int i = 0; i < historyLength; i++) {
+            for (int account = 0; account < interleaved; account++) {
+                repository.save(new Transaction("t" + i + "-" + account, "acc" + account,
+                        Transaction.TransactionType.DEPOSIT, amount));
+            }
+        }
+        for (int account = interleaved; account < accountCount; account++) {
+            repository.save(new Transaction("t-" + account, "acc" + account,
+                    Transaction.TransactionType.DEPOSIT, amount));
+        }
+        accountId = "acc0";
+    }
+
+    @Benchmark
+    public List<Transaction> findByAccountId() {
+        return repository.findByAccountId(accountId);
+    }
+}
@@ -0,0 +1,13 @@
+package org.example;
+
+import java.util.List;
+
+// Получатель зафиксированных изменений счетов (например, проекция для чтения BalanceProjection).
+// Счета, измененные одной операцией, передаются одним вызовом. Вызывается из рабочих потоков
+// сразу после сохранения, пока объекты счетов не изменились: реализация должна скопировать
+// нужные поля немедленно и не задерживать вызывающего.
+public interface AccountChangeListener {
+    AccountChangeListener NONE = accounts -> { };
+
+    void onCommitted(List<BankAccount> accounts);
+}
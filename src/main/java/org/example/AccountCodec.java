@@ -0,0 +1,157 @@
+package org.example;
+
+import java.nio.ByteBuffer;
+
+// Двоичный формат счета: заголовок фиксированного размера HEADER_SIZE с числовыми полями
+// по постоянным смещениям (BIG_ENDIAN), за ним номер счета и имя владельца в UTF-8.
+// Раскладка версии 1:
+//   0 версия, 1 флаги (FROZEN, NO_OWNER), 2 длина номера счета, 4 длина имени владельца,
+//   6 резерв, 8 баланс в копейках, 16 версия счета, 24 номер счета, затем имя владельца.
+// Размер записи зависит только от длин строк (encodedSize), поэтому записи можно
+// обходить подряд без декодирования. Reader читает поля записи на месте.
+public final class AccountCodec {
+    public static final byte VERSION = 1;
+    public static final int HEADER_SIZE = 24;
+    public static final int MAX_STRING_BYTES = Short.MAX_VALUE;
+
+    private static final int VERSION_OFFSET = 0;
+    private static final int FLAGS_OFFSET = 1;
+    private static final int ID_LENGTH_OFFSET = 2;
+    private static final int OWNER_LENGTH_OFFSET = 4;
+    private static final int RESERVED_OFFSET = 6;
+    private static final int BALANCE_OFFSET = 8;
+    private static final int ACCOUNT_VERSION_OFFSET = 16;
+
+    private static final int FROZEN = 1;
+    private static final int NO_OWNER = 2;
+
+    private AccountCodec() {
+    }
+
+    // Размер записи счета в байтах
+    public static int encodedSize(BankAccount account) {
+        if (account.getAccountId() == null) {
+            throw new IllegalArgumentException("Account ID must not be null");
+        }
+        int idLength = checkLength(BinaryFormat.utf8Length(account.getAccountId()));
+        String owner = account.getOwnerName();
+        int ownerLength = owner == null ? 0 : checkLength(BinaryFormat.utf8Length(owner));
+        return HEADER_SIZE + idLength + ownerLength;
+    }
+
+    // Записать счет с текущей позиции буфера; позиция сдвигается на размер записи
+    public static void encode(BankAccount account, ByteBuffer buffer) {
+        int start = buffer.position();
+        buffer.position(start + encode(account, buffer, start));
+    }
+
+    // Записать счет по смещению offset, не меняя позицию буфера; возвращает размер записи
+    public static int encode(BankAccount account, ByteBuffer buffer, int offset) {
+        int size = encodedSize(account);
+        if (offset < 0 || buffer.limit() - offset < size) {
+            throw new IllegalArgumentException("Buffer has no room for an account record at " + offset);
+        }
+        String owner = account.getOwnerName();
+        int idLength = BinaryFormat.putUtf8(buffer, offset + HEADER_SIZE, account.getAccountId());
+        int ownerLength = owner == null ? 0 : BinaryFormat.putUtf8(buffer, offset + HEADER_SIZE + idLength, owner);
+        int flags = (account.isFrozen() ? FROZEN : 0) | (owner == null ? NO_OWNER : 0);
+        buffer.put(offset + VERSION_OFFSET, VERSION);
+        buffer.put(offset + FLAGS_OFFSET, (byte) flags);
+        BinaryFormat.putShort(buffer, offset + ID_LENGTH_OFFSET, (short) idLength);
+        BinaryFormat.putShort(buffer, offset + OWNER_LENGTH_OFFSET, (short) ownerLength);
+        BinaryFormat.putShort(buffer, offset + RESERVED_OFFSET, (short) 0);
+        BinaryFormat.putLong(buffer, offset + BALANCE_OFFSET, account.getBalanceMinorUnits());
+        BinaryFormat.putLong(buffer, offset + ACCOUNT_VERSION_OFFSET, account.getVersion());
+        return size;
+    }
+
+    // Прочитать счет с текущей позиции буфера; позиция сдвигается на размер записи
+    public static BankAccount decode(ByteBuffer buffer) {
+        Reader reader = new Reader().wrap(buffer, buffer.position());
+        buffer.position(buffer.position() + reader.size());
+        return reader.toAccount();
+    }
+
+    public static BankAccount decode(ByteBuffer buffer, int offset) {
+        return new Reader().wrap(buffer, offset).toAccount();
+    }
+
+    private static int checkLength(int length) {
+        if (length > MAX_STRING_BYTES) {
+            throw new IllegalArgumentException("Value is too long to store: " + length + " bytes");
+        }
+        return length;
+    }
+
+    // Чтение полей записи на месте. Один объект переиспользуется для многих записей (wrap);
+    // строки и объекты создаются только методами, которые их возвращают. Не потокобезопасен.
+    public static final class Reader {
+        private ByteBuffer buffer;
+        private int offset;
+
+        public Reader wrap(ByteBuffer buffer, int offset) {
+            if (offset < 0 || buffer.limit() - offset < HEADER_SIZE) {
+                throw new IllegalArgumentException("Buffer has no account record at " + offset);
+            }
+            byte version = buffer.get(offset + VERSION_OFFSET);
+            if (version != VERSION) {
+                throw new IllegalStateException("Unsupported account record version: " + version);
+            }
+            this.buffer = buffer;
+            this.offset = offset;
+            if (buffer.limit() - offset < size()) {
+                throw new IllegalArgumentException("Account record at " + offset + " is truncated");
+            }
+            return this;
+        }
+
+        // Размер записи вместе с заголовком
+        public int size() {
+            return HEADER_SIZE + idLength() + ownerLength();
+        }
+
+        public long getBalanceMinorUnits() {
+            return BinaryFormat.getLong(buffer, offset + BALANCE_OFFSET);
+        }
+
+        public boolean isFrozen() {
+            return (buffer.get(offset + FLAGS_OFFSET) & FROZEN) != 0;
+        }
+
+        public long getVersion() {
+            return BinaryFormat.getLong(buffer, offset + ACCOUNT_VERSION_OFFSET);
+        }
+
+        public String getAccountId() {
+            return BinaryFormat.getUtf8(buffer, offset + HEADER_SIZE, idLength());
+        }
+
+        // Проверка номера счета без создания строки
+        public boolean accountIdEquals(CharSequence accountId) {
+            return BinaryFormat.utf8Equals(buffer, offset + HEADER_SIZE, idLength(), accountId);
+        }
+
+        public String getOwnerName() {
+            if ((buffer.get(offset + FLAGS_OFFSET) & NO_OWNER) != 0) {
+                return null;
+            }
+            return BinaryFormat.getUtf8(buffer, offset + HEADER_SIZE + idLength(), ownerLength());
+        }
+
+        public BankAccount toAccount() {
+            BankAccount account = new BankAccount(getAccountId(), getOwnerName(), Money.ZERO);
+            account.setBalanceMinorUnits(getBalanceMinorUnits());
+            account.setFrozen(isFrozen());
+            account.setVersion(getVersion());
+            return account;
+        }
+
+        private int idLength() {
+            return BinaryFormat.getShort(buffer, offset + ID_LENGTH_OFFSET);
+        }
+
+        private int ownerLength() {
+            return BinaryFormat.getShort(buffer, offset + OWNER_LENGTH_OFFSET);
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package org.example;
+
+// Исключение для операций над замороженным счетом
+public class AccountFrozenException extends IllegalStateException {
+    private final boolean writableStackTrace;
+
+    public AccountFrozenException(String message) {
+        this(message, true);
+    }
+
+    // writableStackTrace = false - дешевое исключение без стека для частых отказов
+    public AccountFrozenException(String message, boolean writableStackTrace) {
+        super(message);
+        this.writableStackTrace = writableStackTrace;
+        if (writableStackTrace) {
+            super.fillInStackTrace();
+        }
+    }
+
+    // Конструктор суперкласса вызывает этот метод до инициализации поля, поэтому стек
+    // заполняется только явным вызовом выше
+    @Override
+    public synchronized Throwable fillInStackTrace() {
+        return writableStackTrace ? super.fillInStackTrace() : this;
+    }
+}
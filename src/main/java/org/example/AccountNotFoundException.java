@@ -0,0 +1,26 @@
+package org.example;
+
+// Исключение для случая, когда счет не найден
+public class AccountNotFoundException extends IllegalArgumentException {
+    private final boolean writableStackTrace;
+
+    public AccountNotFoundException(String message) {
+        this(message, true);
+    }
+
+    // writableStackTrace = false - дешевое исключение без стека для частых отказов
+    public AccountNotFoundException(String message, boolean writableStackTrace) {
+        super(message);
+        this.writableStackTrace = writableStackTrace;
+        if (writableStackTrace) {
+            super.fillInStackTrace();
+        }
+    }
+
+    // Конструктор суперкласса вызывает этот метод до инициализации поля, поэтому стек
+    // заполняется только явным вызовом выше
+    @Override
+    public synchronized Throwable fillInStackTrace() {
+        return writableStackTrace ? super.fillInStackTrace() : this;
+    }
+}
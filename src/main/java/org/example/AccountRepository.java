@@ -1,6 +1,10 @@
 package org.example;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
 import java.util.List;
+import java.util.stream.Stream;
 
 // Интерфейс репозитория для работы с банковскими счетами
 public interface AccountRepository {
@@ -8,4 +12,54 @@ public interface AccountRepository {
     void save(BankAccount account); // Сохранить или обновить счет
     void delete(String accountId); // Удалить счет
     List<BankAccount> findAll(); // Получить все счета
+
+    // Сохранить группу счетов одним вызовом (хранилища с пакетной записью переопределяют)
+    default void saveAll(Collection<BankAccount> accounts) {
+        for (BankAccount account : accounts) {
+            save(account);
+        }
+    }
+
+    // Поддерживает ли хранилище условное сохранение по версии
+    default boolean supportsCompareAndSave() {
+        return false;
+    }
+
+    // Условное сохранение: счет записывается, только если версия сохраненного счета равна
+    // expectedVersion (false - счета нет или его изменили). При успехе версия счета становится
+    // expectedVersion + 1, а переданный объект - сохраненным; после этого его нельзя изменять.
+    default boolean compareAndSave(BankAccount account, long expectedVersion) {
+        throw new UnsupportedOperationException(
+                "Compare-and-save is not supported by " + getClass().getSimpleName());
+    }
+
+    // Условное сохранение нескольких разных счетов: записываются все или ни один
+    default boolean compareAndSaveAll(List<BankAccount> accounts, long[] expectedVersions) {
+        throw new UnsupportedOperationException(
+                "Compare-and-save is not supported by " + getClass().getSimpleName());
+    }
+
+    // Страница счетов в порядке идентификаторов, начиная после afterAccountId (null - с начала).
+    // Реализация по умолчанию сортирует findAll(); хранилища с упорядоченным индексом переопределяют.
+    default Page<BankAccount> findPage(String afterAccountId, int limit) {
+        Page.checkLimit(limit);
+        List<BankAccount> all = new ArrayList<>(findAll());
+        all.sort(Comparator.comparing(BankAccount::getAccountId));
+        List<BankAccount> items = new ArrayList<>(Math.min(limit, all.size()));
+        for (BankAccount account : all) {
+            if (afterAccountId != null && account.getAccountId().compareTo(afterAccountId) <= 0) {
+                continue;
+            }
+            if (items.size() == limit) {
+                return new Page<>(items, items.get(limit - 1).getAccountId());
+            }
+            items.add(account);
+        }
+        return new Page<>(items, null);
+    }
+
+    // Ленивый обход всех счетов
+    default Stream<BankAccount> stream() {
+        return findAll().stream();
+    }
 }
@@ -0,0 +1,65 @@
+package org.example;
+
+// Неизменяемое представление счета для чтения: баланс и заморозка на момент фиксации изменения
+public final class AccountView {
+    private final String accountId;
+    private final String ownerName;
+    private final long balanceMinorUnits;
+    private final boolean frozen;
+    private final long version;
+    private final long hotCreditsFolded;
+
+    public AccountView(BankAccount account) {
+        this.accountId = account.getAccountId();
+        this.ownerName = account.getOwnerName();
+        this.balanceMinorUnits = account.getBalanceMinorUnits();
+        this.frozen = account.isFrozen();
+        this.version = account.getVersion();
+        this.hotCreditsFolded = account.getHotCreditsFolded();
+    }
+
+    public String getAccountId() {
+        return accountId;
+    }
+
+    public String getOwnerName() {
+        return ownerName;
+    }
+
+    public long getBalanceMinorUnits() {
+        return balanceMinorUnits;
+    }
+
+    public Money getBalance() {
+        return Money.ofMinor(balanceMinorUnits);
+    }
+
+    public boolean isFrozen() {
+        return frozen;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    // Часть счетчика горячего счета, уже учтенная в balanceMinorUnits этого представления
+    public long getHotCreditsFolded() {
+        return hotCreditsFolded;
+    }
+
+    // Отсоединенная копия счета в состоянии этого представления
+    public BankAccount toAccount() {
+        BankAccount account = new BankAccount(accountId, ownerName, Money.ZERO);
+        account.setBalanceMinorUnits(balanceMinorUnits);
+        account.setFrozen(frozen);
+        account.setVersion(version);
+        account.setHotCreditsFolded(hotCreditsFolded);
+        return account;
+    }
+
+    @Override
+    public String toString() {
+        return "AccountView{" + accountId + ", balance=" + getBalance() + ", frozen=" + frozen
+                + ", version=" + version + '}';
+    }
+}
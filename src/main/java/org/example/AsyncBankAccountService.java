@@ -0,0 +1,304 @@
+package org.example;
+
+import java.io.Closeable;
+import java.lang.reflect.Method;
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+// Асинхронный фасад BankAccountService: каждая операция возвращает CompletableFuture
+// и выполняется на виртуальном потоке (на JDK без виртуальных потоков - в кешируемом пуле).
+// Число одновременно выполняемых операций по одному счету ограничено; ожидающие операции
+// стоят в очереди счета и не занимают поток. Операции над несколькими счетами получают
+// разрешения в порядке идентификаторов, поэтому взаимных ожиданий не возникает.
+// Ошибки операций завершают future исключительно (исключение сервиса - в причине CompletionException).
+public class AsyncBankAccountService implements Closeable {
+    public static final int DEFAULT_MAX_IN_FLIGHT_PER_ACCOUNT = 1;
+
+    private final BankAccountService delegate;
+    private final ExecutorService executor;
+    private final boolean ownsExecutor;
+    private final int maxInFlightPerAccount;
+    // Очереди существуют только для счетов с операциями в работе
+    private final ConcurrentMap<String, AccountGate> gates = new ConcurrentHashMap<>();
+
+    public AsyncBankAccountService(BankAccountService delegate) {
+        this(delegate, DEFAULT_MAX_IN_FLIGHT_PER_ACCOUNT);
+    }
+
+    public AsyncBankAccountService(BankAccountService delegate, int maxInFlightPerAccount) {
+        this(delegate, newDefaultExecutor(), true, maxInFlightPerAccount);
+    }
+
+    // Исполнитель передается извне и не закрывается вместе с фасадом
+    public AsyncBankAccountService(BankAccountService delegate, ExecutorService executor,
+                                   int maxInFlightPerAccount) {
+        this(delegate, executor, false, maxInFlightPerAccount);
+    }
+
+    private AsyncBankAccountService(BankAccountService delegate, ExecutorService executor,
+                                    boolean ownsExecutor, int maxInFlightPerAccount) {
+        if (maxInFlightPerAccount <= 0) {
+            throw new IllegalArgumentException("Per-account concurrency limit must be positive");
+        }
+        this.delegate = delegate;
+        this.executor = executor;
+        this.ownsExecutor = ownsExecutor;
+        this.maxInFlightPerAccount = maxInFlightPerAccount;
+    }
+
+    public CompletableFuture<BankAccount> createAccount(String ownerName, double initialBalance) {
+        return submit(() -> delegate.createAccount(ownerName, initialBalance));
+    }
+
+    public CompletableFuture<BankAccount> createAccount(String ownerName, Money initialBalance) {
+        return submit(() -> delegate.createAccount(ownerName, initialBalance));
+    }
+
+    public CompletableFuture<Void> deposit(String accountId, double amount) {
+        return run(accountId, () -> delegate.deposit(accountId, amount));
+    }
+
+    public CompletableFuture<Void> deposit(String accountId, Money amount) {
+        return run(accountId, () -> delegate.deposit(accountId, amount));
+    }
+
+    public CompletableFuture<Void> withdraw(String accountId, double amount) {
+        return run(accountId, () -> delegate.withdraw(accountId, amount));
+    }
+
+    public CompletableFuture<Void> withdraw(String accountId, Money amount) {
+        return run(accountId, () -> delegate.withdraw(accountId, amount));
+    }
+
+    public CompletableFuture<Void> transfer(String fromAccountId, String toAccountId, double amount) {
+        return submit(Arrays.asList(fromAccountId, toAccountId), () -> {
+            delegate.transfer(fromAccountId, toAccountId, amount);
+            return null;
+        });
+    }
+
+    public CompletableFuture<Void> transfer(String fromAccountId, String toAccountId, Money amount) {
+        return submit(Arrays.asList(fromAccountId, toAccountId), () -> {
+            delegate.transfer(fromAccountId, toAccountId, amount);
+            return null;
+        });
+    }
+
+    public CompletableFuture<Void> deposit(String accountId, Money amount, String idempotencyKey) {
+        return run(accountId, () -> delegate.deposit(accountId, amount, idempotencyKey));
+    }
+
+    public CompletableFuture<Void> withdraw(String accountId, Money amount, String idempotencyKey) {
+        return run(accountId, () -> delegate.withdraw(accountId, amount, idempotencyKey));
+    }
+
+    public CompletableFuture<Void> transfer(String fromAccountId, String toAccountId, Money amount,
+                                            String idempotencyKey) {
+        return submit(Arrays.asList(fromAccountId, toAccountId), () -> {
+            delegate.transfer(fromAccountId, toAccountId, amount, idempotencyKey);
+            return null;
+        });
+    }
+
+    // Варианты без исключений: будущее завершается кодом результата операции
+    public CompletableFuture<OperationResult> tryDeposit(String accountId, Money amount) {
+        if (accountId == null) {
+            return CompletableFuture.completedFuture(OperationResult.INVALID_OPERATION);
+        }
+        return submit(Arrays.asList(accountId), () -> delegate.tryDeposit(accountId, amount));
+    }
+
+    public CompletableFuture<OperationResult> tryWithdraw(String accountId, Money amount) {
+        if (accountId == null) {
+            return CompletableFuture.completedFuture(OperationResult.INVALID_OPERATION);
+        }
+        return submit(Arrays.asList(accountId), () -> delegate.tryWithdraw(accountId, amount));
+    }
+
+    public CompletableFuture<OperationResult> tryTransfer(String fromAccountId, String toAccountId, Money amount) {
+        if (fromAccountId == null || toAccountId == null) {
+            return CompletableFuture.completedFuture(OperationResult.INVALID_OPERATION);
+        }
+        return submit(Arrays.asList(fromAccountId, toAccountId),
+                () -> delegate.tryTransfer(fromAccountId, toAccountId, amount));
+    }
+
+    public CompletableFuture<Double> getBalance(String accountId) {
+        return submit(Arrays.asList(accountId), () -> delegate.getBalance(accountId));
+    }
+
+    public CompletableFuture<Money> getBalanceMoney(String accountId) {
+        return submit(Arrays.asList(accountId), () -> delegate.getBalanceMoney(accountId));
+    }
+
+    public CompletableFuture<List<BankAccount>> getAllAccounts() {
+        return submit(delegate::getAllAccounts);
+    }
+
+    public CompletableFuture<Page<BankAccount>> getAccounts(String cursor, int limit) {
+        return submit(() -> delegate.getAccounts(cursor, limit));
+    }
+
+    public CompletableFuture<Void> applyInterest(String accountId, double rate) {
+        return run(accountId, () -> delegate.applyInterest(accountId, rate));
+    }
+
+    public CompletableFuture<InterestAccrualReport> applyInterestToAll(double rate, Predicate<BankAccount> filter,
+                                                                      InterestProgressListener listener) {
+        return submit(() -> delegate.applyInterestToAll(rate, filter, listener));
+    }
+
+    public CompletableFuture<Void> freezeAccount(String accountId) {
+        return run(accountId, () -> delegate.freezeAccount(accountId));
+    }
+
+    public CompletableFuture<Void> unfreezeAccount(String accountId) {
+        return run(accountId, () -> delegate.unfreezeAccount(accountId));
+    }
+
+    public CompletableFuture<List<Transaction>> getTransactionHistory(String accountId) {
+        return submit(Arrays.asList(accountId), () -> delegate.getTransactionHistory(accountId));
+    }
+
+    public CompletableFuture<Page<Transaction>> getTransactionHistory(String accountId, String cursor, int limit) {
+        return submit(Arrays.asList(accountId), () -> delegate.getTransactionHistory(accountId, cursor, limit));
+    }
+
+    public CompletableFuture<List<Transaction>> getTransactionHistory(String accountId, LocalDateTime from,
+                                                                      LocalDateTime to) {
+        return submit(Arrays.asList(accountId), () -> delegate.getTransactionHistory(accountId, from, to));
+    }
+
+    public CompletableFuture<List<Transaction>> getTransactions(LocalDateTime from, LocalDateTime to) {
+        return submit(() -> delegate.getTransactions(from, to));
+    }
+
+    public CompletableFuture<OperationResult[]> executeBatch(List<Operation> operations, BatchMode mode) {
+        if (operations == null) {
+            return CompletableFuture.failedFuture(new NullPointerException("Operations cannot be null"));
+        }
+        // Некорректные операции (null, без счета) отклоняет сам пакет кодом INVALID_OPERATION
+        return submit(BatchExecutor.accountIds(operations), () -> delegate.executeBatch(operations, mode));
+    }
+
+    // Число счетов, по которым сейчас есть выполняемые или ожидающие операции
+    public int getActiveAccountCount() {
+        return gates.size();
+    }
+
+    @Override
+    public void close() {
+        if (ownsExecutor) {
+            executor.shutdown();
+        }
+    }
+
+    private <T> CompletableFuture<T> submit(Supplier<T> action) {
+        return CompletableFuture.supplyAsync(action, executor);
+    }
+
+    private CompletableFuture<Void> run(String accountId, Runnable action) {
+        return submit(Arrays.asList(accountId), () -> {
+            action.run();
+            return null;
+        });
+    }
+
+    // Разрешения берутся по одному в порядке идентификаторов, освобождаются после завершения операции.
+    // Пустой идентификатор счета не ставится в очередь: future сразу завершается ошибкой
+    private <T> CompletableFuture<T> submit(Collection<String> accountIds, Supplier<T> action) {
+        if (accountIds.contains(null)) {
+            return CompletableFuture.failedFuture(new NullPointerException("Account ID cannot be null"));
+        }
+        String[] ordered = new TreeSet<>(accountIds).toArray(new String[0]);
+        CompletableFuture<Void> acquired = CompletableFuture.completedFuture(null);
+        for (String accountId : ordered) {
+            acquired = acquired.thenCompose(ignored -> acquire(accountId));
+        }
+        // Вызывающий получает future, завершающееся уже после освобождения разрешений
+        return acquired.thenApplyAsync(ignored -> action.get(), executor)
+                .whenComplete((value, error) -> {
+                    for (String accountId : ordered) {
+                        release(accountId);
+                    }
+                });
+    }
+
+    private CompletableFuture<Void> acquire(String accountId) {
+        CompletableFuture<Void> permit = new CompletableFuture<>();
+        boolean[] granted = new boolean[1];
+        gates.compute(accountId, (id, gate) -> {
+            if (gate == null) {
+                gate = new AccountGate(maxInFlightPerAccount);
+            }
+            if (gate.available > 0) {
+                gate.available--;
+                granted[0] = true;
+            } else {
+                gate.waiters.add(permit);
+            }
+            return gate;
+        });
+        // Продолжения запускаются вне compute, чтобы не менять карту рекурсивно
+        if (granted[0]) {
+            permit.complete(null);
+        }
+        return permit;
+    }
+
+    private void release(String accountId) {
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        CompletableFuture<Void>[] next = new CompletableFuture[1];
+        gates.computeIfPresent(accountId, (id, gate) -> {
+            next[0] = gate.waiters.poll();
+            if (next[0] != null) {
+                // Разрешение переходит следующей операции без возврата в счетчик
+                return gate;
+            }
+            gate.available++;
+            return gate.available == maxInFlightPerAccount ? null : gate;
+        });
+        if (next[0] != null) {
+            next[0].complete(null);
+        }
+    }
+
+    // Виртуальные потоки доступны начиная с JDK 21; поиск через reflection сохраняет сборку под Java 11
+    static ExecutorService newDefaultExecutor() {
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            AtomicInteger counter = new AtomicInteger();
+            ThreadFactory threadFactory = runnable -> {
+                Thread thread = new Thread(runnable, "async-bank-" + counter.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            };
+            return Executors.newCachedThreadPool(threadFactory);
+        }
+    }
+
+    // Разрешения и очередь ожидающих операций одного счета; изменяются только внутри compute
+    private static final class AccountGate {
+        private int available;
+        private final ArrayDeque<CompletableFuture<Void>> waiters = new ArrayDeque<>();
+
+        AccountGate(int available) {
+            this.available = available;
+        }
+    }
+}
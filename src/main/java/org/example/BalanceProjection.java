@@ -0,0 +1,299 @@
+package org.example;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.LongSupplier;
+
+// Проекция балансов для чтения (CQRS): сервис передает зафиксированные изменения через
+// AccountChangeListener, отдельный поток применяет их к своей копии и публикует неизменяемые
+// снимки BalanceSnapshot. Чтение баланса и списка счетов не берет блокировок и не обращается
+// к хранилищу, поэтому частые запросы балансов не мешают платежам.
+// Снимок отстает от хранилища: отставание проверяется через getLag() и getStalenessNanos(),
+// а awaitCatchUp() дожидается, пока в снимок войдут все уже зафиксированные изменения.
+// Изменения одной операции (например, обе стороны перевода) применяются вместе. Версии счета
+// применяются по порядку: изменение, обогнавшее предыдущую версию счета (писатели без блокировок
+// публикуют изменения после фиксации и могут поменяться местами), откладывается до ее прихода,
+// поэтому каждый снимок - согласованное состояние после некоторого набора целых операций.
+// Для хранилищ без версий (версия не растет) порядок обеспечивают блокировки сервиса.
+// Изменения, принятые сервисом, но еще не зафиксированные (зачисления горячих счетов), проекция
+// не видит; их возраст сообщают источники addPendingSource, и он входит в getStalenessNanos().
+public class BalanceProjection implements AccountChangeListener, Closeable {
+    private static final Logger logger = LoggerFactory.getLogger(BalanceProjection.class);
+
+    public static final int DEFAULT_RING_CAPACITY = 1 << 16;
+    private static final int MAX_BATCH = 4096;
+    private static final int SPIN_LIMIT = 100;
+    private static final long PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private final MpscRingBuffer<AccountView[]> changes;
+    private final ConcurrentMap<String, Integer> slots = new ConcurrentHashMap<>();
+    private final Thread projector;
+    private final List<LongSupplier> pendingSources = new CopyOnWriteArrayList<>();
+    private volatile BalanceSnapshot snapshot;
+    private volatile boolean sleeping;
+    private volatile boolean closed;
+
+    // Состояние ниже изменяется только потоком проекции
+    private AccountView[][] chunks = new AccountView[16][];
+    // Блоки, скопированные после последней публикации (их можно менять на месте)
+    private boolean[] owned = new boolean[16];
+    private int size;
+    private long polled;
+    // Изменения, ожидающие предыдущей версии одного из своих счетов
+    private final List<AccountView[]> deferred = new ArrayList<>();
+    private long coveredAtNanos;
+
+    public BalanceProjection() {
+        this(DEFAULT_RING_CAPACITY);
+    }
+
+    public BalanceProjection(int ringCapacity) {
+        this.changes = new MpscRingBuffer<>(ringCapacity);
+        this.coveredAtNanos = System.nanoTime();
+        this.snapshot = new BalanceSnapshot(chunks.clone(), 0, slots, 0, 0, coveredAtNanos);
+        this.projector = new Thread(this::run, "balance-projector");
+        this.projector.setDaemon(true);
+        this.projector.start();
+    }
+
+    // Начальное заполнение из хранилища; вызывается до того, как сервис начнет изменять счета
+    public void load(Collection<BankAccount> accounts) {
+        for (BankAccount account : accounts) {
+            onCommitted(List.of(account));
+        }
+    }
+
+    @Override
+    public void onCommitted(List<BankAccount> accounts) {
+        AccountView[] views = new AccountView[accounts.size()];
+        for (int i = 0; i < views.length; i++) {
+            views[i] = new AccountView(accounts.get(i));
+        }
+        // При заполненной очереди писатель ждет поток проекции
+        int attempts = 0;
+        while (!changes.offer(views)) {
+            if (closed) {
+                throw new IllegalStateException("Balance projection is closed");
+            }
+            if (++attempts < SPIN_LIMIT) {
+                Thread.onSpinWait();
+            } else {
+                LockSupport.parkNanos(PARK_NANOS);
+            }
+        }
+        if (sleeping) {
+            LockSupport.unpark(projector);
+        }
+    }
+
+    // Последний опубликованный снимок
+    public BalanceSnapshot snapshot() {
+        return snapshot;
+    }
+
+    // null, если счета нет в снимке
+    public AccountView getAccount(String accountId) {
+        return snapshot.get(accountId);
+    }
+
+    public Money getBalance(String accountId) {
+        AccountView view = snapshot.get(accountId);
+        if (view == null) {
+            throw new AccountNotFoundException("Account not found");
+        }
+        return view.getBalance();
+    }
+
+    public List<AccountView> getAccounts() {
+        return snapshot.getAccounts();
+    }
+
+    // Число изменений, отложенных до прихода предыдущих версий счетов
+    public int getDeferredCount() {
+        return snapshot.getDeferred();
+    }
+
+    // Число зафиксированных изменений, еще не вошедших в снимок
+    public long getLag() {
+        return Math.max(0, changes.claimed() - snapshot.getSequence());
+    }
+
+    // Источник изменений, еще не переданных в проекцию: возвращает возраст самого старого
+    // из них в наносекундах (0 - таких нет)
+    public void addPendingSource(LongSupplier pendingAgeNanos) {
+        pendingSources.add(pendingAgeNanos);
+    }
+
+    // Верхняя граница возраста изменений, не вошедших в снимок (0 - снимок актуален)
+    public long getStalenessNanos() {
+        long staleness = 0;
+        for (LongSupplier source : pendingSources) {
+            staleness = Math.max(staleness, source.getAsLong());
+        }
+        BalanceSnapshot current = snapshot;
+        if (changes.claimed() <= current.getSequence()) {
+            return staleness;
+        }
+        return Math.max(staleness, System.nanoTime() - current.getCoveredAtNanos());
+    }
+
+    // Дождаться снимка со всеми изменениями, зафиксированными до вызова; false - по таймауту
+    public boolean awaitCatchUp(long timeout, TimeUnit unit) {
+        long target = changes.claimed();
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        while (snapshot.getSequence() < target) {
+            if (System.nanoTime() - deadline >= 0 || !projector.isAlive()) {
+                return false;
+            }
+            LockSupport.unpark(projector);
+            LockSupport.parkNanos(PARK_NANOS / 10);
+        }
+        return true;
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        LockSupport.unpark(projector);
+        try {
+            projector.join(TimeUnit.MINUTES.toMillis(1));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void run() {
+        int idle = 0;
+        while (true) {
+            // Все изменения, занявшие позицию до этого момента, войдут в снимок после их применения
+            long startedAt = System.nanoTime();
+            long target = changes.claimed();
+            int drained = 0;
+            AccountView[] views;
+            boolean progress = false;
+            while (drained < MAX_BATCH && (views = changes.poll()) != null) {
+                try {
+                    if (tryApply(views)) {
+                        progress = true;
+                    } else {
+                        deferred.add(views);
+                    }
+                } catch (RuntimeException e) {
+                    logger.error("Failed to project account change", e);
+                }
+                drained++;
+            }
+            if (drained > 0) {
+                idle = 0;
+                polled += drained;
+                if (progress && !deferred.isEmpty()) {
+                    applyDeferred();
+                }
+                if (deferred.isEmpty() && polled >= target) {
+                    coveredAtNanos = startedAt;
+                }
+                publish();
+                continue;
+            }
+            if (closed && changes.size() == 0) {
+                return;
+            }
+            if (++idle < SPIN_LIMIT) {
+                Thread.onSpinWait();
+                continue;
+            }
+            sleeping = true;
+            if (changes.size() == 0) {
+                // Пробуждение может быть пропущено, поэтому сон ограничен по времени
+                LockSupport.parkNanos(PARK_NANOS);
+            }
+            sleeping = false;
+        }
+    }
+
+    // false - изменение обогнало предыдущую версию одного из счетов и пока не применено
+    private boolean tryApply(AccountView[] views) {
+        for (AccountView view : views) {
+            AccountView current = current(view.getAccountId());
+            if (current != null && view.getVersion() > current.getVersion() + 1) {
+                return false;
+            }
+        }
+        for (AccountView view : views) {
+            Integer slot = slots.get(view.getAccountId());
+            if (slot == null) {
+                slot = size;
+                AccountView[] chunk = writableChunk(slot >>> BalanceSnapshot.CHUNK_SHIFT);
+                chunk[slot & BalanceSnapshot.CHUNK_MASK] = view;
+                // Ячейка регистрируется после записи; снимкам она станет видна после публикации size
+                slots.put(view.getAccountId(), slot);
+                size++;
+                continue;
+            }
+            AccountView[] chunk = writableChunk(slot >>> BalanceSnapshot.CHUNK_SHIFT);
+            int index = slot & BalanceSnapshot.CHUNK_MASK;
+            // Более старая версия (повтор при начальной загрузке) не перекрывает новую
+            if (view.getVersion() >= chunk[index].getVersion()) {
+                chunk[index] = view;
+            }
+        }
+        return true;
+    }
+
+    // Отложенные изменения применяются, пока это удается хотя бы одному из них
+    private void applyDeferred() {
+        boolean progress = true;
+        while (progress) {
+            progress = false;
+            Iterator<AccountView[]> iterator = deferred.iterator();
+            while (iterator.hasNext()) {
+                if (tryApply(iterator.next())) {
+                    iterator.remove();
+                    progress = true;
+                }
+            }
+        }
+    }
+
+    private AccountView current(String accountId) {
+        Integer slot = slots.get(accountId);
+        return slot == null ? null : chunks[slot >>> BalanceSnapshot.CHUNK_SHIFT][slot & BalanceSnapshot.CHUNK_MASK];
+    }
+
+    private AccountView[] writableChunk(int chunkIndex) {
+        if (chunkIndex >= chunks.length) {
+            chunks = Arrays.copyOf(chunks, chunks.length * 2);
+            owned = Arrays.copyOf(owned, owned.length * 2);
+        }
+        AccountView[] chunk = chunks[chunkIndex];
+        if (chunk == null) {
+            chunk = new AccountView[BalanceSnapshot.CHUNK_SIZE];
+        } else if (!owned[chunkIndex]) {
+            // Блок принадлежит опубликованному снимку - изменяем копию
+            chunk = chunk.clone();
+        } else {
+            return chunk;
+        }
+        chunks[chunkIndex] = chunk;
+        owned[chunkIndex] = true;
+        return chunk;
+    }
+
+    private void publish() {
+        snapshot = new BalanceSnapshot(chunks.clone(), size, slots, polled - deferred.size(), deferred.size(),
+                coveredAtNanos);
+        Arrays.fill(owned, false);
+    }
+}
@@ -0,0 +1,73 @@
+package org.example;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+// Неизменяемый снимок проекции балансов: согласованное состояние после getSequence() целых операций
+// (переводы видны целиком). Если отложенных изменений нет, это ровно первые getSequence() изменений.
+// Представления лежат в блоках фиксированного размера; блоки опубликованного снимка не меняются,
+// а следующий снимок копирует только измененные блоки.
+public final class BalanceSnapshot {
+    static final int CHUNK_SHIFT = 10;
+    static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+    static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+    private final AccountView[][] chunks;
+    private final int size;
+    // Номера ячеек счетов; только дополняется, ячейки за пределами size снимку не принадлежат
+    private final Map<String, Integer> slots;
+    private final long sequence;
+    private final int deferred;
+    private final long coveredAtNanos;
+
+    BalanceSnapshot(AccountView[][] chunks, int size, Map<String, Integer> slots, long sequence, int deferred,
+                    long coveredAtNanos) {
+        this.chunks = chunks;
+        this.size = size;
+        this.slots = slots;
+        this.sequence = sequence;
+        this.deferred = deferred;
+        this.coveredAtNanos = coveredAtNanos;
+    }
+
+    // null, если счета нет в снимке
+    public AccountView get(String accountId) {
+        Integer slot = slots.get(accountId);
+        if (slot == null || slot >= size) {
+            return null;
+        }
+        return chunks[slot >>> CHUNK_SHIFT][slot & CHUNK_MASK];
+    }
+
+    public List<AccountView> getAccounts() {
+        List<AccountView> accounts = new ArrayList<>(size);
+        for (int slot = 0; slot < size; slot++) {
+            AccountView view = chunks[slot >>> CHUNK_SHIFT][slot & CHUNK_MASK];
+            if (view != null) {
+                accounts.add(view);
+            }
+        }
+        return Collections.unmodifiableList(accounts);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    // Число примененных изменений
+    public long getSequence() {
+        return sequence;
+    }
+
+    // Число полученных, но отложенных изменений (ждут предыдущих версий своих счетов)
+    public int getDeferred() {
+        return deferred;
+    }
+
+    // Момент (System.nanoTime), до которого все зафиксированные изменения вошли в снимок
+    public long getCoveredAtNanos() {
+        return coveredAtNanos;
+    }
+}
@@ -4,17 +4,33 @@ package org.example;
 public class BankAccount {
     private String accountId; // Идентификатор счета
     private String ownerName; // Имя владельца
-    private double balance; // Текущий баланс
+    private long balance; // Текущий баланс в копейках (Money.SCALE)
     private boolean frozen; // Флаг заморозки счета
+    private long version; // Номер версии для условного сохранения (AccountRepository.compareAndSave)
+    private long hotCreditsFolded; // Сумма счетчика горячего счета, уже перенесенная в баланс (не сохраняется на диск)
 
     // Конструктор для создания нового счета
     public BankAccount(String accountId, String ownerName, double balance) {
+        this(accountId, ownerName, Money.of(balance));
+    }
+
+    public BankAccount(String accountId, String ownerName, Money balance) {
         this.accountId = accountId;
         this.ownerName = ownerName;
-        this.balance = balance;
+        this.balance = balance.toMinorUnits(Money.SCALE);
         this.frozen = false; // По умолчанию счет не заморожен
     }
 
+    // Копия счета для изменения без блокировок: сохраненный объект не меняется на месте
+    public BankAccount(BankAccount other) {
+        this.accountId = other.accountId;
+        this.ownerName = other.ownerName;
+        this.balance = other.balance;
+        this.frozen = other.frozen;
+        this.version = other.version;
+        this.hotCreditsFolded = other.hotCreditsFolded;
+    }
+
     // Геттеры и сеттеры
     public boolean isFrozen() {
         return frozen;
@@ -41,13 +57,47 @@ public class BankAccount {
     }
 
     public double getBalance() {
-        return balance;
+        return Money.toDouble(balance);
     }
 
     public void setBalance(double balance) {
+        if (balance < 0) {
+            throw new IllegalArgumentException("Баланс не может быть отрицательным");
+        }
+        this.balance = Money.toMinorUnits(balance);
+    }
+
+    // Баланс в копейках, без преобразований и создания объектов
+    public long getBalanceMinorUnits() {
+        return balance;
+    }
+
+    public void setBalanceMinorUnits(long balance) {
         if (balance < 0) {
             throw new IllegalArgumentException("Баланс не может быть отрицательным");
         }
         this.balance = balance;
     }
-}
\ No newline at end of file
+
+    public Money getBalanceMoney() {
+        return Money.ofMinor(balance);
+    }
+
+    // Версию увеличивает хранилище при каждом сохранении
+    public long getVersion() {
+        return version;
+    }
+
+    public void setVersion(long version) {
+        this.version = version;
+    }
+
+    // Переносится в баланс тем же сохранением, поэтому представление для чтения видит оба значения согласованно
+    public long getHotCreditsFolded() {
+        return hotCreditsFolded;
+    }
+
+    public void setHotCreditsFolded(long hotCreditsFolded) {
+        this.hotCreditsFolded = hotCreditsFolded;
+    }
+}
@@ -1,6 +1,9 @@
 package org.example;
 
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
 
 // Интерфейс сервиса для работы с банковскими счетами
 public interface BankAccountService {
@@ -14,4 +17,54 @@ public interface BankAccountService {
     void freezeAccount(String accountId);
     void unfreezeAccount(String accountId);
     List<Transaction> getTransactionHistory(String accountId);
-}
\ No newline at end of file
+
+    // Точные варианты операций с суммой в копейках
+    BankAccount createAccount(String ownerName, Money initialBalance);
+    void deposit(String accountId, Money amount);
+    void withdraw(String accountId, Money amount) throws InsufficientFundsException;
+    void transfer(String fromAccountId, String toAccountId, Money amount) throws InsufficientFundsException;
+    Money getBalanceMoney(String accountId);
+
+    // Варианты без исключений: отказ возвращается кодом результата (заранее созданные
+    // значения перечисления), недопустимые аргументы - INVALID_OPERATION
+    OperationResult tryDeposit(String accountId, Money amount);
+    OperationResult tryWithdraw(String accountId, Money amount);
+    OperationResult tryTransfer(String fromAccountId, String toAccountId, Money amount);
+
+    // Варианты с ключом идемпотентности: повтор запроса с тем же ключом не применяется
+    // повторно, а возвращает исход исходного запроса (включая бизнес-исключения)
+    void deposit(String accountId, Money amount, String idempotencyKey);
+    void withdraw(String accountId, Money amount, String idempotencyKey) throws InsufficientFundsException;
+    void transfer(String fromAccountId, String toAccountId, Money amount, String idempotencyKey)
+            throws InsufficientFundsException;
+
+    // Пакетное выполнение: каждый затронутый счет читается и сохраняется один раз.
+    // Возвращает результат для каждой операции в порядке следования.
+    OperationResult[] executeBatch(List<Operation> operations, BatchMode mode);
+
+    default OperationResult[] executeBatch(List<Operation> operations) {
+        return executeBatch(operations, BatchMode.ATOMIC);
+    }
+
+    // Параллельное начисление процентов всем счетам, удовлетворяющим фильтру
+    InterestAccrualReport applyInterestToAll(double rate, Predicate<BankAccount> filter,
+                                             InterestProgressListener listener);
+
+    default InterestAccrualReport applyInterestToAll(double rate, Predicate<BankAccount> filter) {
+        return applyInterestToAll(rate, filter, InterestProgressListener.NONE);
+    }
+
+    default InterestAccrualReport applyInterestToAll(double rate) {
+        return applyInterestToAll(rate, account -> true, InterestProgressListener.NONE);
+    }
+
+    // Постраничные и потоковые варианты чтения с ограниченным расходом памяти
+    Page<BankAccount> getAccounts(String cursor, int limit);
+    Stream<BankAccount> streamAccounts();
+    Page<Transaction> getTransactionHistory(String accountId, String cursor, int limit);
+    Stream<Transaction> streamTransactionHistory(String accountId);
+
+    // Выборки по времени: полуинтервал [from, to), результат упорядочен по времени
+    List<Transaction> getTransactionHistory(String accountId, LocalDateTime from, LocalDateTime to);
+    List<Transaction> getTransactions(LocalDateTime from, LocalDateTime to);
+}
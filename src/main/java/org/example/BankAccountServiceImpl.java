@@ -3,155 +3,1297 @@ package org.example;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
-import java.util.UUID;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
 
-// Реализация сервиса для работы с банковскими счетами
+// Реализация сервиса для работы с банковскими счетами.
+// Все расчеты ведутся в копейках (long), double-методы только переводят сумму на входе.
+// Если хранилище поддерживает условное сохранение по версии, изменения выполняются
+// оптимистично: копия счета изменяется без блокировок и сохраняется compareAndSave;
+// при конфликте попытка повторяется с растущей паузой, а после MAX_OPTIMISTIC_ATTEMPTS
+// неудач - под блокировкой полосы (горячий счет). Иначе счета изменяются под StripedLocks.
+// Для счетов с очень частыми зачислениями включается режим горячего счета (setHotAccount):
+// зачисления копятся в распределенном счетчике без блокировок и сохранения и переносятся
+// в баланс, когда нужно точное значение (списание, запрос баланса, проценты, пакет).
+// Каждое изменение баланса записывается проводкой в TransactionRepository (открытие счета
+// с ненулевым балансом - DEPOSIT), поэтому баланс сверяется с историей (LedgerReconciler).
+// Сервис, созданный withProjection, читает балансы и список счетов из BalanceProjection без
+// блокировок и обращений к хранилищу; такие чтения отстают от записей на время проекции.
 public class BankAccountServiceImpl implements BankAccountService {
     private static final Logger logger = LoggerFactory.getLogger(BankAccountServiceImpl.class);
+    // Число счетов, которое обрабатывает одна задача массового начисления процентов
+    private static final int INTEREST_CHUNK_SIZE = 1024;
+    private static final int MAX_OPTIMISTIC_ATTEMPTS = 8;
+    private static final int SPIN_ATTEMPTS = 2;
+    private static final long MAX_BACKOFF_NANOS = 100_000;
 
     private final AccountRepository accountRepository;
     private final TransactionRepository transactionRepository;
+    private final StripedLocks locks;
+    private final ServiceMetrics metrics;
+    private final IdGenerator idGenerator;
+    private final IdempotencyStore idempotencyStore;
+    private final AccountChangeListener changeListener;
+    // Проекция, из которой читаются балансы и список счетов; null - чтение из хранилища
+    private final BalanceProjection projection;
+    private final boolean optimistic;
+    private final LongAdder conflicts = new LongAdder();
+    private final ConcurrentMap<String, HotAccount> hotAccounts = new ConcurrentHashMap<>();
+    // Экспортер метрик в JMX, если сервис создан withJmxMetrics
+    private volatile JmxMetricsExporter metricsExporter;
 
     public BankAccountServiceImpl(AccountRepository accountRepository,
                                   TransactionRepository transactionRepository) {
+        this(accountRepository, transactionRepository, new StripedLocks(), ServiceMetrics.NONE);
+    }
+
+    // Конструктор с общим набором блокировок (если с теми же счетами работают другие компоненты)
+    public BankAccountServiceImpl(AccountRepository accountRepository,
+                                  TransactionRepository transactionRepository,
+                                  StripedLocks locks) {
+        this(accountRepository, transactionRepository, locks, ServiceMetrics.NONE);
+    }
+
+    public BankAccountServiceImpl(AccountRepository accountRepository,
+                                  TransactionRepository transactionRepository,
+                                  StripedLocks locks,
+                                  ServiceMetrics metrics) {
+        this(accountRepository, transactionRepository, locks, metrics, new TimeOrderedIdGenerator());
+    }
+
+    public BankAccountServiceImpl(AccountRepository accountRepository,
+                                  TransactionRepository transactionRepository,
+                                  StripedLocks locks,
+                                  ServiceMetrics metrics,
+                                  IdGenerator idGenerator) {
+        this(accountRepository, transactionRepository, locks, metrics, idGenerator, new IdempotencyStore());
+    }
+
+    public BankAccountServiceImpl(AccountRepository accountRepository,
+                                  TransactionRepository transactionRepository,
+                                  StripedLocks locks,
+                                  ServiceMetrics metrics,
+                                  IdGenerator idGenerator,
+                                  IdempotencyStore idempotencyStore) {
+        this(accountRepository, transactionRepository, locks, metrics, idGenerator, idempotencyStore,
+                AccountChangeListener.NONE);
+    }
+
+    // changeListener получает каждое зафиксированное изменение счетов (например, BalanceProjection)
+    public BankAccountServiceImpl(AccountRepository accountRepository,
+                                  TransactionRepository transactionRepository,
+                                  StripedLocks locks,
+                                  ServiceMetrics metrics,
+                                  IdGenerator idGenerator,
+                                  IdempotencyStore idempotencyStore,
+                                  AccountChangeListener changeListener) {
+        this(accountRepository, transactionRepository, locks, metrics, idGenerator, idempotencyStore,
+                changeListener, null);
+    }
+
+    private BankAccountServiceImpl(AccountRepository accountRepository,
+                                   TransactionRepository transactionRepository,
+                                   StripedLocks locks,
+                                   ServiceMetrics metrics,
+                                   IdGenerator idGenerator,
+                                   IdempotencyStore idempotencyStore,
+                                   AccountChangeListener changeListener,
+                                   BalanceProjection projection) {
         this.accountRepository = accountRepository;
         this.transactionRepository = transactionRepository;
+        this.locks = locks;
+        this.metrics = metrics;
+        this.idGenerator = idGenerator;
+        this.idempotencyStore = idempotencyStore;
+        this.changeListener = changeListener;
+        this.projection = projection;
+        this.optimistic = accountRepository.supportsCompareAndSave();
+    }
+
+    // Сервис со стандартными метриками (HistogramServiceMetrics), опубликованными в JMX
+    // под именем serviceName. MBean'ы снимаются вызовом unregisterMetrics
+    public static BankAccountServiceImpl withJmxMetrics(AccountRepository accountRepository,
+                                                        TransactionRepository transactionRepository,
+                                                        String serviceName) {
+        HistogramServiceMetrics metrics = new HistogramServiceMetrics();
+        BankAccountServiceImpl service = new BankAccountServiceImpl(accountRepository, transactionRepository,
+                new StripedLocks(), metrics);
+        service.metricsExporter = new JmxMetricsExporter(metrics, serviceName);
+        return service;
+    }
+
+    // Сервис, публикующий изменения в projection и читающий из нее балансы (getBalance) и список
+    // счетов (getAllAccounts). Проекция заполняется текущими счетами хранилища. Чтения видят
+    // изменение после того, как его применит поток проекции; дождаться этого можно через
+    // projection.awaitCatchUp. Неперенесенные зачисления горячих счетов добавляются к балансу
+    // и учитываются в projection.getStalenessNanos()
+    public static BankAccountServiceImpl withProjection(AccountRepository accountRepository,
+                                                        TransactionRepository transactionRepository,
+                                                        BalanceProjection projection) {
+        projection.load(accountRepository.findAll());
+        BankAccountServiceImpl service = new BankAccountServiceImpl(accountRepository, transactionRepository,
+                new StripedLocks(), ServiceMetrics.NONE, new TimeOrderedIdGenerator(), new IdempotencyStore(),
+                projection, projection);
+        projection.addPendingSource(service::getUnfoldedCreditAgeNanos);
+        return service;
+    }
+
+    public ServiceMetrics getMetrics() {
+        return metrics;
+    }
+
+    public void unregisterMetrics() {
+        JmxMetricsExporter exporter = metricsExporter;
+        if (exporter != null) {
+            metricsExporter = null;
+            exporter.close();
+        }
+    }
+
+    // Включить или выключить режим горячего счета. При выключении накопленные зачисления
+    // переносятся в баланс
+    public void setHotAccount(String accountId, boolean hot) {
+        Objects.requireNonNull(accountId, "Account ID cannot be null");
+        if (!hot) {
+            HotAccount removed = hotAccounts.remove(accountId);
+            if (removed != null) {
+                // Зачисление, успевшее взять removed, увидит флаг и перенесет сумму само
+                removed.retired = true;
+                fold(accountId, removed);
+            }
+            return;
+        }
+        // Новый счетчик продолжает уже перенесенную сумму, чтобы представление для чтения
+        // вычитало из него свое значение hotCreditsFolded
+        long folded = findExisting(accountId).getHotCreditsFolded();
+        hotAccounts.computeIfAbsent(accountId, id -> new HotAccount(folded));
+    }
+
+    public boolean isHotAccount(String accountId) {
+        return hotAccounts.containsKey(accountId);
+    }
+
+    // Перенести накопленные зачисления всех горячих счетов в балансы (например, по расписанию,
+    // чтобы хранилище не отставало от принятых зачислений)
+    public void foldHotAccounts() {
+        for (Map.Entry<String, HotAccount> entry : hotAccounts.entrySet()) {
+            fold(entry.getKey(), entry.getValue());
+        }
+    }
+
+    // Возраст самого старого зачисления горячих счетов, еще не перенесенного в баланс (0 - таких нет)
+    public long getUnfoldedCreditAgeNanos() {
+        long now = System.nanoTime();
+        long age = 0;
+        for (HotAccount hot : hotAccounts.values()) {
+            long since = hot.pendingSince;
+            if (since != HotAccount.NOTHING_PENDING) {
+                age = Math.max(age, now - since);
+            }
+        }
+        return age;
+    }
+
+    // Число неудачных условных сохранений (конфликтов версий)
+    public long getOptimisticConflictCount() {
+        return conflicts.sum();
+    }
+
+    // Результат для метрик по исключению, которым завершился метод
+    private static OperationResult resultOf(RuntimeException e) {
+        if (e instanceof InsufficientFundsException) {
+            return OperationResult.INSUFFICIENT_FUNDS;
+        }
+        if (e instanceof AccountFrozenException) {
+            return OperationResult.ACCOUNT_FROZEN;
+        }
+        if (e instanceof AccountNotFoundException) {
+            return OperationResult.ACCOUNT_NOT_FOUND;
+        }
+        return OperationResult.INVALID_OPERATION;
     }
 
     @Override
     public void applyInterest(String accountId, double rate) {
-        if (rate <= 0) throw new IllegalArgumentException("Rate must be positive");
+        long start = System.nanoTime();
+        OperationResult result = OperationResult.SUCCESS;
+        try {
+            if (rate <= 0) throw new IllegalArgumentException("Rate must be positive");
 
-        logger.debug("Applying interest of {}% to account {}", rate, accountId);
+            if (logger.isDebugEnabled()) {
+                logger.debug("Applying interest of {}% to account {}", rate, accountId);
+            }
 
-        BankAccount account = accountRepository.findById(accountId);
-        double interest = account.getBalance() * rate / 100;
-        account.setBalance(account.getBalance() + interest);
+            foldIfHot(accountId);
+            long[] interest = new long[1];
+            throwIfFailed(update(accountId, account -> {
+                long balance = account.getBalanceMinorUnits();
+                interest[0] = Money.percentOf(balance, rate);
+                if (interest[0] > Long.MAX_VALUE - balance) {
+                    return OperationResult.INVALID_OPERATION;
+                }
+                account.setBalanceMinorUnits(balance + interest[0]);
+                return OperationResult.SUCCESS;
+            }), null, null);
 
-        Transaction transaction = new Transaction(
-                UUID.randomUUID().toString(),
-                accountId,
-                Transaction.TransactionType.INTEREST,
-                interest
-        );
-        transactionRepository.save(transaction);
+            Transaction transaction = new Transaction(
+                    idGenerator.nextString(),
+                    accountId,
+                    Transaction.TransactionType.INTEREST,
+                    Money.ofMinor(interest[0])
+            );
+            transactionRepository.save(transaction);
+        } catch (RuntimeException e) {
+            result = resultOf(e);
+            throw e;
+        } finally {
+            metrics.record(ServiceOperation.APPLY_INTEREST, result, System.nanoTime() - start);
+        }
     }
+
+    @Override
+    public InterestAccrualReport applyInterestToAll(double rate, Predicate<BankAccount> filter,
+                                                    InterestProgressListener listener) {
+        long start = System.nanoTime();
+        OperationResult result = OperationResult.SUCCESS;
+        try {
+            if (rate <= 0) throw new IllegalArgumentException("Rate must be positive");
+            Objects.requireNonNull(filter, "Filter cannot be null");
+            Objects.requireNonNull(listener, "Listener cannot be null");
+
+            List<BankAccount> accounts = accountRepository.findAll();
+            InterestAccrualTask task = new InterestAccrualTask(accounts, 0, accounts.size(), rate, filter,
+                    listener, new InterestTotals(accounts.size()));
+            ForkJoinPool.commonPool().invoke(task);
+
+            InterestTotals totals = task.totals;
+            InterestAccrualReport report = new InterestAccrualReport(totals.processed.sum(),
+                    totals.accrued.sum(), totals.interest.sum(), System.nanoTime() - start);
+            logger.debug("Applied interest of {}% to all accounts: {}", rate, report);
+            return report;
+        } catch (RuntimeException e) {
+            result = resultOf(e);
+            throw e;
+        } finally {
+            metrics.record(ServiceOperation.APPLY_INTEREST_TO_ALL, result, System.nanoTime() - start);
+        }
+    }
+
+    // Общие счетчики для всех задач одного начисления; прогресс считается по просмотренным счетам
+    private static final class InterestTotals {
+        private final long total;
+        private final AtomicLong scanned = new AtomicLong();
+        private final LongAdder processed = new LongAdder();
+        private final LongAdder accrued = new LongAdder();
+        private final LongAdder interest = new LongAdder();
+
+        InterestTotals(long total) {
+            this.total = total;
+        }
+    }
+
+    // Задача начисления процентов диапазону счетов; делится пополам до INTEREST_CHUNK_SIZE
+    private final class InterestAccrualTask extends RecursiveAction {
+        private final List<BankAccount> accounts;
+        private final int from;
+        private final int to;
+        private final double rate;
+        private final Predicate<BankAccount> filter;
+        private final InterestProgressListener listener;
+        private final InterestTotals totals;
+
+        InterestAccrualTask(List<BankAccount> accounts, int from, int to, double rate,
+                            Predicate<BankAccount> filter, InterestProgressListener listener,
+                            InterestTotals totals) {
+            this.accounts = accounts;
+            this.from = from;
+            this.to = to;
+            this.rate = rate;
+            this.filter = filter;
+            this.listener = listener;
+            this.totals = totals;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > INTEREST_CHUNK_SIZE) {
+                int middle = (from + to) >>> 1;
+                invokeAll(new InterestAccrualTask(accounts, from, middle, rate, filter, listener, totals),
+                        new InterestAccrualTask(accounts, middle, to, rate, filter, listener, totals));
+                return;
+            }
+
+            List<Transaction> transactions = new ArrayList<>();
+            long processed = 0;
+            long interestSum = 0;
+            // matched[0] - счет прошел фильтр, accrued[0] - начисленная сумма
+            boolean[] matched = new boolean[1];
+            long[] accrued = new long[1];
+            for (int i = from; i < to; i++) {
+                String accountId = accounts.get(i).getAccountId();
+                foldIfHot(accountId);
+                matched[0] = false;
+                // Счет перечитывается при изменении: список мог устареть
+                OperationResult result = update(accountId, account -> {
+                    matched[0] = filter.test(account);
+                    if (!matched[0]) {
+                        return OperationResult.ROLLED_BACK;
+                    }
+                    long balance = account.getBalanceMinorUnits();
+                    accrued[0] = Money.percentOf(balance, rate);
+                    if (accrued[0] == 0) {
+                        return OperationResult.ROLLED_BACK;
+                    }
+                    account.setBalanceMinorUnits(Math.addExact(balance, accrued[0]));
+                    return OperationResult.SUCCESS;
+                });
+                if (matched[0]) {
+                    processed++;
+                }
+                if (!result.isSuccess()) {
+                    continue;
+                }
+                interestSum += accrued[0];
+                transactions.add(new Transaction(idGenerator.nextString(), accountId,
+                        Transaction.TransactionType.INTEREST, Money.ofMinor(accrued[0])));
+            }
+
+            // Транзакции диапазона записываются одним пакетом
+            if (!transactions.isEmpty()) {
+                transactionRepository.saveAll(transactions);
+            }
+            totals.processed.add(processed);
+            totals.accrued.add(transactions.size());
+            totals.interest.add(interestSum);
+            listener.onProgress(totals.scanned.addAndGet(to - from), totals.total);
+        }
+    }
+
     @Override
     public void transfer(String fromAccountId, String toAccountId, double amount)
             throws InsufficientFundsException {
-        logger.debug("Initiating transfer of {} from account {} to account {}",
-                amount, fromAccountId, toAccountId);
+        long start = System.nanoTime();
+        OperationResult result = OperationResult.SUCCESS;
+        try {
+            if (logger.isDebugEnabled()) {
+                logger.debug("Initiating transfer of {} from account {} to account {}",
+                        amount, fromAccountId, toAccountId);
+            }
+            validateTransfer(fromAccountId, toAccountId);
+            throwIfFailed(transferMinorUnits(fromAccountId, toAccountId, positiveMinorUnits(amount, "Transfer")),
+                    null, "Insufficient funds for transfer");
+        } catch (RuntimeException e) {
+            result = resultOf(e);
+            throw e;
+        } finally {
+            metrics.record(ServiceOperation.TRANSFER, result, System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public void transfer(String fromAccountId, String toAccountId, Money amount)
+            throws InsufficientFundsException {
+        long start = System.nanoTime();
+        OperationResult result = OperationResult.SUCCESS;
+        try {
+            logger.debug("Initiating transfer of {} from account {} to account {}",
+                    amount, fromAccountId, toAccountId);
+            validateTransfer(fromAccountId, toAccountId);
+            throwIfFailed(transferMinorUnits(fromAccountId, toAccountId, positiveMinorUnits(amount, "Transfer")),
+                    null, "Insufficient funds for transfer");
+        } catch (RuntimeException e) {
+            result = resultOf(e);
+            throw e;
+        } finally {
+            metrics.record(ServiceOperation.TRANSFER, result, System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public void deposit(String accountId, Money amount, String idempotencyKey) {
+        idempotencyStore.execute(idempotencyKey, IdempotencyStore.fingerprint("deposit", amount, accountId), () -> {
+            deposit(accountId, amount);
+            return null;
+        });
+    }
 
+    @Override
+    public void withdraw(String accountId, Money amount, String idempotencyKey) throws InsufficientFundsException {
+        idempotencyStore.execute(idempotencyKey, IdempotencyStore.fingerprint("withdraw", amount, accountId), () -> {
+            withdraw(accountId, amount);
+            return null;
+        });
+    }
+
+    @Override
+    public void transfer(String fromAccountId, String toAccountId, Money amount, String idempotencyKey)
+            throws InsufficientFundsException {
+        String fingerprint = IdempotencyStore.fingerprint("transfer", amount, fromAccountId, toAccountId);
+        idempotencyStore.execute(idempotencyKey, fingerprint, () -> {
+            transfer(fromAccountId, toAccountId, amount);
+            return null;
+        });
+    }
 
+    private void validateTransfer(String fromAccountId, String toAccountId) {
         Objects.requireNonNull(fromAccountId, "Source account ID cannot be null");
         Objects.requireNonNull(toAccountId, "Target account ID cannot be null");
 
         if (fromAccountId.equals(toAccountId)) {
             throw new IllegalArgumentException("Cannot transfer to the same account");
         }
+    }
+
+    // Ядро перевода: отказ возвращается кодом, исключения не создаются
+    private OperationResult transferMinorUnits(String fromAccountId, String toAccountId, long amount) {
+        OperationResult result = applyTransfer(fromAccountId, toAccountId, amount);
+        if (result.isSuccess()) {
+            LocalDateTime now = LocalDateTime.now();
+            transactionRepository.saveAll(List.of(
+                    new Transaction(idGenerator.nextString(), fromAccountId, Transaction.TransactionType.TRANSFER,
+                            Money.ofMinor(-amount), now),
+                    new Transaction(idGenerator.nextString(), toAccountId, Transaction.TransactionType.TRANSFER,
+                            Money.ofMinor(amount), now)));
+        }
+        return result;
+    }
+
+    private OperationResult applyTransfer(String fromAccountId, String toAccountId, long amount) {
+        foldIfHot(fromAccountId);
+        HotAccount hotTarget = hotAccounts.get(toAccountId);
+        if (hotTarget != null) {
+            return transferToHotAccount(fromAccountId, toAccountId, hotTarget, amount);
+        }
+        if (optimistic) {
+            return retryOnConflict(List.of(fromAccountId, toAccountId),
+                    () -> tryTransferOnce(fromAccountId, toAccountId, amount));
+        }
+        // Блокировки берутся в порядке номеров полос, поэтому встречные переводы не зависают
+        locks.lockBoth(fromAccountId, toAccountId);
+        try {
+            BankAccount fromAccount = accountRepository.findById(fromAccountId);
+            BankAccount toAccount = accountRepository.findById(toAccountId);
+            if (fromAccount == null || toAccount == null) {
+                return OperationResult.ACCOUNT_NOT_FOUND;
+            }
+
+            long fromBalance = fromAccount.getBalanceMinorUnits();
+            if (fromBalance < amount) {
+                return OperationResult.INSUFFICIENT_FUNDS;
+            }
+
+            long toBalance = toAccount.getBalanceMinorUnits();
+            if (amount > Long.MAX_VALUE - toBalance) {
+                return OperationResult.INVALID_OPERATION;
+            }
+            fromAccount.setBalanceMinorUnits(fromBalance - amount);
+            toAccount.setBalanceMinorUnits(toBalance + amount);
+
+            accountRepository.save(fromAccount);
+            accountRepository.save(toAccount);
+            changeListener.onCommitted(List.of(fromAccount, toAccount));
+            return OperationResult.SUCCESS;
+        } finally {
+            locks.unlockBoth(fromAccountId, toAccountId);
+        }
+    }
+
+    // Перевод на горячий счет: списание фиксируется, затем сумма добавляется в счетчик зачислений.
+    // Между этими шагами сумма уже списана, но еще не видна у получателя
+    private OperationResult transferToHotAccount(String fromAccountId, String toAccountId, HotAccount target,
+                                                 long amount) {
+        if (accountRepository.findById(toAccountId) == null) {
+            return OperationResult.ACCOUNT_NOT_FOUND;
+        }
+        OperationResult result = update(fromAccountId, account -> {
+            long balance = account.getBalanceMinorUnits();
+            if (balance < amount) {
+                return OperationResult.INSUFFICIENT_FUNDS;
+            }
+            account.setBalanceMinorUnits(balance - amount);
+            return OperationResult.SUCCESS;
+        });
+        if (result.isSuccess()) {
+            credit(toAccountId, target, amount);
+        }
+        return result;
+    }
 
+    // Одна оптимистичная попытка перевода; null - один из счетов изменили параллельно
+    private OperationResult tryTransferOnce(String fromAccountId, String toAccountId, long amount) {
         BankAccount fromAccount = accountRepository.findById(fromAccountId);
         BankAccount toAccount = accountRepository.findById(toAccountId);
+        if (fromAccount == null || toAccount == null) {
+            return OperationResult.ACCOUNT_NOT_FOUND;
+        }
 
-        if (fromAccount.getBalance() < amount) {
-            throw new InsufficientFundsException("Insufficient funds for transfer");
+        long fromBalance = fromAccount.getBalanceMinorUnits();
+        if (fromBalance < amount) {
+            return OperationResult.INSUFFICIENT_FUNDS;
         }
 
-        fromAccount.setBalance(fromAccount.getBalance() - amount);
-        toAccount.setBalance(toAccount.getBalance() + amount);
+        long toBalance = toAccount.getBalanceMinorUnits();
+        if (amount > Long.MAX_VALUE - toBalance) {
+            return OperationResult.INVALID_OPERATION;
+        }
+        BankAccount fromCopy = new BankAccount(fromAccount);
+        BankAccount toCopy = new BankAccount(toAccount);
+        fromCopy.setBalanceMinorUnits(fromBalance - amount);
+        toCopy.setBalanceMinorUnits(toBalance + amount);
 
-        accountRepository.save(fromAccount);
-        accountRepository.save(toAccount);
+        List<BankAccount> changed = List.of(fromCopy, toCopy);
+        if (!accountRepository.compareAndSaveAll(changed,
+                new long[]{fromAccount.getVersion(), toAccount.getVersion()})) {
+            return null;
+        }
+        changeListener.onCommitted(changed);
+        return OperationResult.SUCCESS;
     }
 
     @Override
     public BankAccount createAccount(String ownerName, double initialBalance) {
-        if (initialBalance < 0) {
-            throw new IllegalArgumentException("Initial balance cannot be negative");
+        long start = System.nanoTime();
+        OperationResult result = OperationResult.SUCCESS;
+        try {
+            if (initialBalance < 0) {
+                throw new IllegalArgumentException("Initial balance cannot be negative");
+            }
+            return openAccount(ownerName, Money.of(initialBalance));
+        } catch (RuntimeException e) {
+            result = resultOf(e);
+            throw e;
+        } finally {
+            metrics.record(ServiceOperation.CREATE_ACCOUNT, result, System.nanoTime() - start);
         }
+    }
+
+    @Override
+    public BankAccount createAccount(String ownerName, Money initialBalance) {
+        long start = System.nanoTime();
+        OperationResult result = OperationResult.SUCCESS;
+        try {
+            if (initialBalance.isNegative()) {
+                throw new IllegalArgumentException("Initial balance cannot be negative");
+            }
+            return openAccount(ownerName, initialBalance);
+        } catch (RuntimeException e) {
+            result = resultOf(e);
+            throw e;
+        } finally {
+            metrics.record(ServiceOperation.CREATE_ACCOUNT, result, System.nanoTime() - start);
+        }
+    }
 
-        String accountId = UUID.randomUUID().toString();
+    private BankAccount openAccount(String ownerName, Money initialBalance) {
+        String accountId = idGenerator.nextString();
         BankAccount account = new BankAccount(accountId, ownerName, initialBalance);
         accountRepository.save(account);
+        changeListener.onCommitted(List.of(account));
+        // Начальный баланс проводится как зачисление, иначе история не сойдется с балансом
+        if (account.getBalanceMinorUnits() > 0) {
+            recordEntry(accountId, Transaction.TransactionType.DEPOSIT, account.getBalanceMinorUnits());
+        }
         return account;
     }
 
     @Override
     public void deposit(String accountId, double amount) {
-        Objects.requireNonNull(accountId, "Account ID cannot be null");
-        if (amount <= 0) {
-            throw new IllegalArgumentException("Deposit amount must be positive, got: " + amount);
+        long start = System.nanoTime();
+        OperationResult result = OperationResult.SUCCESS;
+        try {
+            Objects.requireNonNull(accountId, "Account ID cannot be null");
+            throwIfFailed(depositMinorUnits(accountId, positiveMinorUnits(amount, "Deposit")),
+                    "Cannot deposit to frozen account", null);
+        } catch (RuntimeException e) {
+            result = resultOf(e);
+            throw e;
+        } finally {
+            metrics.record(ServiceOperation.DEPOSIT, result, System.nanoTime() - start);
         }
+    }
 
-        BankAccount account = accountRepository.findById(accountId);
-        if (account == null) {
-            throw new IllegalArgumentException("Account not found");
+    @Override
+    public void deposit(String accountId, Money amount) {
+        long start = System.nanoTime();
+        OperationResult result = OperationResult.SUCCESS;
+        try {
+            Objects.requireNonNull(accountId, "Account ID cannot be null");
+            throwIfFailed(depositMinorUnits(accountId, positiveMinorUnits(amount, "Deposit")),
+                    "Cannot deposit to frozen account", null);
+        } catch (RuntimeException e) {
+            result = resultOf(e);
+            throw e;
+        } finally {
+            metrics.record(ServiceOperation.DEPOSIT, result, System.nanoTime() - start);
         }
+    }
 
-        if (account.isFrozen()) {
-            throw new IllegalStateException("Cannot deposit to frozen account");
+    private OperationResult depositMinorUnits(String accountId, long amount) {
+        OperationResult result = applyDeposit(accountId, amount);
+        if (result.isSuccess()) {
+            recordEntry(accountId, Transaction.TransactionType.DEPOSIT, amount);
         }
-
-        account.setBalance(account.getBalance() + amount);
-        accountRepository.save(account);
+        return result;
     }
 
+    private OperationResult applyDeposit(String accountId, long amount) {
+        HotAccount hot = hotAccounts.get(accountId);
+        if (hot != null) {
+            // Проверки без блокировки: зачисление упорядочено до параллельной заморозки
+            BankAccount account = accountRepository.findById(accountId);
+            if (account == null) {
+                return OperationResult.ACCOUNT_NOT_FOUND;
+            }
+            if (account.isFrozen()) {
+                return OperationResult.ACCOUNT_FROZEN;
+            }
+            if (amount > Long.MAX_VALUE - account.getBalanceMinorUnits() - hot.pending()) {
+                return OperationResult.INVALID_OPERATION;
+            }
+            credit(accountId, hot, amount);
+            return OperationResult.SUCCESS;
+        }
+        return update(accountId, account -> {
+            if (account.isFrozen()) {
+                return OperationResult.ACCOUNT_FROZEN;
+            }
+
+            long balance = account.getBalanceMinorUnits();
+            if (amount > Long.MAX_VALUE - balance) {
+                return OperationResult.INVALID_OPERATION;
+            }
+            account.setBalanceMinorUnits(balance + amount);
+            return OperationResult.SUCCESS;
+        });
+    }
 
     @Override
     public void withdraw(String accountId, double amount) throws InsufficientFundsException {
-        Objects.requireNonNull(accountId, "Account ID cannot be null");
-        if (amount <= 0) {
-            throw new IllegalArgumentException("Withdrawal amount must be positive, got: " + amount);
+        long start = System.nanoTime();
+        OperationResult result = OperationResult.SUCCESS;
+        try {
+            Objects.requireNonNull(accountId, "Account ID cannot be null");
+            throwIfFailed(withdrawMinorUnits(accountId, positiveMinorUnits(amount, "Withdrawal")),
+                    "Cannot withdraw from frozen account", "Insufficient funds for withdrawal");
+        } catch (RuntimeException e) {
+            result = resultOf(e);
+            throw e;
+        } finally {
+            metrics.record(ServiceOperation.WITHDRAW, result, System.nanoTime() - start);
         }
+    }
 
-        BankAccount account = accountRepository.findById(accountId);
-        if (account == null) {
-            throw new IllegalArgumentException("Account not found");
+    @Override
+    public void withdraw(String accountId, Money amount) throws InsufficientFundsException {
+        long start = System.nanoTime();
+        OperationResult result = OperationResult.SUCCESS;
+        try {
+            Objects.requireNonNull(accountId, "Account ID cannot be null");
+            throwIfFailed(withdrawMinorUnits(accountId, positiveMinorUnits(amount, "Withdrawal")),
+                    "Cannot withdraw from frozen account", "Insufficient funds for withdrawal");
+        } catch (RuntimeException e) {
+            result = resultOf(e);
+            throw e;
+        } finally {
+            metrics.record(ServiceOperation.WITHDRAW, result, System.nanoTime() - start);
+        }
+    }
+
+    private OperationResult withdrawMinorUnits(String accountId, long amount) {
+        // Списание проверяется по балансу с перенесенными зачислениями; более поздние
+        // зачисления только увеличивают баланс, поэтому уйти в минус нельзя
+        foldIfHot(accountId);
+        OperationResult result = update(accountId, account -> {
+            if (account.isFrozen()) {
+                return OperationResult.ACCOUNT_FROZEN;
+            }
+
+            long balance = account.getBalanceMinorUnits();
+            if (balance < amount) {
+                return OperationResult.INSUFFICIENT_FUNDS;
+            }
+
+            account.setBalanceMinorUnits(balance - amount);
+            return OperationResult.SUCCESS;
+        });
+        if (result.isSuccess()) {
+            recordEntry(accountId, Transaction.TransactionType.WITHDRAWAL, amount);
         }
+        return result;
+    }
 
-        if (account.isFrozen()) {
-            throw new IllegalStateException("Cannot withdraw from frozen account");
+    // Изменение одного счета. change получает счет (в оптимистичном режиме - копию) и
+    // возвращает SUCCESS, если изменение нужно сохранить; иначе счет не сохраняется
+    private OperationResult update(String accountId, AccountChange change) {
+        if (optimistic) {
+            return retryOnConflict(List.of(accountId), () -> {
+                BankAccount current = accountRepository.findById(accountId);
+                if (current == null) {
+                    return OperationResult.ACCOUNT_NOT_FOUND;
+                }
+                BankAccount copy = new BankAccount(current);
+                OperationResult result = change.apply(copy);
+                if (!result.isSuccess()) {
+                    return result;
+                }
+                if (!accountRepository.compareAndSave(copy, current.getVersion())) {
+                    return null;
+                }
+                changeListener.onCommitted(List.of(copy));
+                return result;
+            });
         }
+        locks.lock(accountId);
+        try {
+            BankAccount account = accountRepository.findById(accountId);
+            if (account == null) {
+                return OperationResult.ACCOUNT_NOT_FOUND;
+            }
+            OperationResult result = change.apply(account);
+            if (result.isSuccess()) {
+                accountRepository.save(account);
+                changeListener.onCommitted(List.of(account));
+            }
+            return result;
+        } finally {
+            locks.unlock(accountId);
+        }
+    }
 
-        if (account.getBalance() < amount) {
-            throw new InsufficientFundsException("Insufficient funds for withdrawal");
+    // Оптимистичный цикл: attempt возвращает null при конфликте версий. Первые попытки
+    // идут без блокировок с растущей паузой, дальше - под блокировками полос счетов:
+    // так горячий счет не тратит попытки впустую, а писатели под блокировкой не мешают друг другу
+    private <T> T retryOnConflict(List<String> accountIds, Supplier<T> attempt) {
+        for (int i = 0; i < MAX_OPTIMISTIC_ATTEMPTS; i++) {
+            T result = attempt.get();
+            if (result != null) {
+                return result;
+            }
+            conflicts.increment();
+            backoff(i);
         }
+        int[] acquired = locks.lockAll(accountIds);
+        try {
+            T result;
+            while ((result = attempt.get()) == null) {
+                conflicts.increment();
+                Thread.onSpinWait();
+            }
+            return result;
+        } finally {
+            locks.unlockAll(acquired);
+        }
+    }
 
-        account.setBalance(account.getBalance() - amount);
-        accountRepository.save(account);
+    // Пауза после конфликта: сначала активное ожидание, затем случайная пауза
+    // с экспоненциально растущей верхней границей не длиннее MAX_BACKOFF_NANOS
+    private static void backoff(int attempt) {
+        if (attempt < SPIN_ATTEMPTS) {
+            Thread.onSpinWait();
+            return;
+        }
+        long bound = Math.min(MAX_BACKOFF_NANOS, 1_000L << attempt);
+        LockSupport.parkNanos(ThreadLocalRandom.current().nextLong(bound / 2, bound));
+    }
+
+    // Проводка по изменению баланса; записывается после фиксации изменения счета
+    private void recordEntry(String accountId, Transaction.TransactionType type, long amount) {
+        transactionRepository.save(new Transaction(idGenerator.nextString(), accountId, type,
+                Money.ofMinor(amount)));
+    }
+
+    @FunctionalInterface
+    private interface AccountChange {
+        OperationResult apply(BankAccount account);
+    }
+
+    private void credit(String accountId, HotAccount hot, long amount) {
+        hot.credits.add(amount);
+        if (hot.pendingSince == HotAccount.NOTHING_PENDING) {
+            hot.pendingSince = System.nanoTime();
+        }
+        if (hot.retired) {
+            fold(accountId, hot);
+        }
+    }
+
+    private void foldIfHot(String accountId) {
+        HotAccount hot = hotAccounts.get(accountId);
+        if (hot != null) {
+            fold(accountId, hot);
+        }
+    }
+
+    // Перенос накопленных зачислений в баланс. Счетчик не обнуляется (сброс потерял бы
+    // параллельные зачисления): переносится разница между суммой и уже перенесенной частью
+    private void fold(String accountId, HotAccount hot) {
+        synchronized (hot) {
+            long foldStartedAt = System.nanoTime();
+            long total = hot.credits.sum();
+            long pending = total - hot.folded;
+            if (pending == 0) {
+                return;
+            }
+            OperationResult result = update(accountId, account -> {
+                account.setBalanceMinorUnits(Math.addExact(account.getBalanceMinorUnits(), pending));
+                // Выключенный счетчик не продолжается следующим, его перенос меняет только баланс
+                if (!hot.retired) {
+                    account.setHotCreditsFolded(total);
+                }
+                return OperationResult.SUCCESS;
+            });
+            if (result.isSuccess()) {
+                hot.folded = total;
+                // Сначала снимаем отметку, затем проверяем зачисления после чтения суммы: зачисление,
+                // не попавшее в проверку, увидит снятую отметку и поставит ее само
+                hot.pendingSince = HotAccount.NOTHING_PENDING;
+                if (hot.credits.sum() != total) {
+                    hot.pendingSince = foldStartedAt;
+                }
+            } else {
+                logger.warn("Cannot fold {} credited to hot account {}: {}", pending, accountId, result);
+            }
+        }
+    }
+
+    // Зачисления горячего счета: credits только растет, folded изменяется под монитором объекта
+    private static final class HotAccount {
+        private static final long NOTHING_PENDING = Long.MIN_VALUE;
+
+        private final LongAdder credits = new LongAdder();
+        private volatile long folded;
+        // Время System.nanoTime() самого старого неперенесенного зачисления (с запасом в большую сторону)
+        private volatile long pendingSince = NOTHING_PENDING;
+        private volatile boolean retired;
+
+        HotAccount(long alreadyFolded) {
+            credits.add(alreadyFolded);
+            folded = alreadyFolded;
+        }
+
+        // Оценка еще не перенесенной суммы (без синхронизации)
+        long pending() {
+            return Math.max(0, credits.sum() - folded);
+        }
+    }
+
+    // Исключение прежнего API по коду результата ядра операции
+    private static void throwIfFailed(OperationResult result, String frozenMessage, String insufficientMessage) {
+        switch (result) {
+            case SUCCESS:
+                return;
+            case ACCOUNT_NOT_FOUND:
+                throw new AccountNotFoundException("Account not found");
+            case ACCOUNT_FROZEN:
+                throw new AccountFrozenException(frozenMessage);
+            case INSUFFICIENT_FUNDS:
+                throw new InsufficientFundsException(insufficientMessage);
+            default:
+                throw new ArithmeticException("long overflow");
+        }
+    }
+
+    @Override
+    public OperationResult tryDeposit(String accountId, Money amount) {
+        long start = System.nanoTime();
+        OperationResult result = OperationResult.INVALID_OPERATION;
+        try {
+            long minorUnits = validMinorUnits(amount);
+            if (accountId != null && minorUnits > 0) {
+                result = depositMinorUnits(accountId, minorUnits);
+            }
+            return result;
+        } finally {
+            metrics.record(ServiceOperation.DEPOSIT, result, System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public OperationResult tryWithdraw(String accountId, Money amount) {
+        long start = System.nanoTime();
+        OperationResult result = OperationResult.INVALID_OPERATION;
+        try {
+            long minorUnits = validMinorUnits(amount);
+            if (accountId != null && minorUnits > 0) {
+                result = withdrawMinorUnits(accountId, minorUnits);
+            }
+            return result;
+        } finally {
+            metrics.record(ServiceOperation.WITHDRAW, result, System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public OperationResult tryTransfer(String fromAccountId, String toAccountId, Money amount) {
+        long start = System.nanoTime();
+        OperationResult result = OperationResult.INVALID_OPERATION;
+        try {
+            long minorUnits = validMinorUnits(amount);
+            if (fromAccountId != null && toAccountId != null && !fromAccountId.equals(toAccountId)
+                    && minorUnits > 0) {
+                result = transferMinorUnits(fromAccountId, toAccountId, minorUnits);
+            }
+            return result;
+        } finally {
+            metrics.record(ServiceOperation.TRANSFER, result, System.nanoTime() - start);
+        }
+    }
+
+    // Сумма в копейках или 0, если сумма недопустима (без исключений)
+    static long validMinorUnits(Money amount) {
+        if (amount == null || !amount.isPositive() || !amount.isRepresentableAt(Money.SCALE)) {
+            return 0;
+        }
+        return amount.toMinorUnits(Money.SCALE);
+    }
+
+    // Сумма в копейках; дробные копейки и неположительные суммы отклоняются
+    private static long positiveMinorUnits(Money amount, String operation) {
+        Objects.requireNonNull(amount, "Amount cannot be null");
+        if (!amount.isPositive()) {
+            throw new IllegalArgumentException(operation + " amount must be positive, got: " + amount);
+        }
+        return amount.toMinorUnits(Money.SCALE);
+    }
+
+    // Сумма в копейках; суммы, которые округляются до нуля копеек (например, 0.001), отклоняются,
+    // иначе операция прошла бы успешно и записала бы в журнал нулевую транзакцию
+    static long positiveMinorUnits(double amount, String operation) {
+        if (amount <= 0) {
+            throw new IllegalArgumentException(operation + " amount must be positive, got: " + amount);
+        }
+        long minorUnits = Money.toMinorUnits(amount);
+        if (minorUnits == 0) {
+            throw new IllegalArgumentException(operation + " amount is less than one minor unit: " + amount);
+        }
+        return minorUnits;
     }
 
     @Override
     public double getBalance(String accountId) {
+        long start = System.nanoTime();
+        OperationResult result = OperationResult.SUCCESS;
+        try {
+            return Money.toDouble(getBalanceMinorUnits(accountId));
+        } catch (RuntimeException e) {
+            result = resultOf(e);
+            throw e;
+        } finally {
+            metrics.record(ServiceOperation.GET_BALANCE, result, System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public Money getBalanceMoney(String accountId) {
+        long start = System.nanoTime();
+        OperationResult result = OperationResult.SUCCESS;
+        try {
+            return Money.ofMinor(getBalanceMinorUnits(accountId));
+        } catch (RuntimeException e) {
+            result = resultOf(e);
+            throw e;
+        } finally {
+            metrics.record(ServiceOperation.GET_BALANCE, result, System.nanoTime() - start);
+        }
+    }
+
+    private long getBalanceMinorUnits(String accountId) {
+        if (projection != null) {
+            AccountView view = projection.getAccount(accountId);
+            if (view == null) {
+                throw new AccountNotFoundException("Account not found");
+            }
+            HotAccount hot = hotAccounts.get(accountId);
+            if (hot == null) {
+                return view.getBalanceMinorUnits();
+            }
+            // Неперенесенное считаем относительно представления, а не текущего folded: перенос
+            // меняет folded раньше, чем представление увидит новый баланс
+            return view.getBalanceMinorUnits() + Math.max(0, hot.credits.sum() - view.getHotCreditsFolded());
+        }
+        foldIfHot(accountId);
+        // В оптимистичном режиме сохраненные счета не изменяются, блокировка для чтения не нужна
+        if (optimistic) {
+            return findExisting(accountId).getBalanceMinorUnits();
+        }
+        locks.lock(accountId);
+        try {
+            return findExisting(accountId).getBalanceMinorUnits();
+        } finally {
+            locks.unlock(accountId);
+        }
+    }
+
+    private BankAccount findExisting(String accountId) {
         BankAccount account = accountRepository.findById(accountId);
         if (account == null) {
-            throw new IllegalArgumentException("Account not found");
+            throw new AccountNotFoundException("Account not found");
         }
-        return account.getBalance();
+        return account;
     }
+
     @Override
     public List<BankAccount> getAllAccounts() {
-        return accountRepository.findAll();
+        long start = System.nanoTime();
+        OperationResult result = OperationResult.SUCCESS;
+        try {
+            if (projection != null) {
+                // Отсоединенные копии из снимка: изменение копии не влияет на сервис
+                List<AccountView> views = projection.getAccounts();
+                List<BankAccount> accounts = new ArrayList<>(views.size());
+                for (AccountView view : views) {
+                    accounts.add(view.toAccount());
+                }
+                return accounts;
+            }
+            return accountRepository.findAll();
+        } catch (RuntimeException e) {
+            result = resultOf(e);
+            throw e;
+        } finally {
+            metrics.record(ServiceOperation.GET_ALL_ACCOUNTS, result, System.nanoTime() - start);
+        }
     }
 
     @Override
     public void freezeAccount(String accountId) {
-        BankAccount account = accountRepository.findById(accountId);
-        account.setFrozen(true);
-        accountRepository.save(account);
+        long start = System.nanoTime();
+        OperationResult result = OperationResult.SUCCESS;
+        try {
+            throwIfFailed(update(accountId, account -> {
+                account.setFrozen(true);
+                return OperationResult.SUCCESS;
+            }), null, null);
+        } catch (RuntimeException e) {
+            result = resultOf(e);
+            throw e;
+        } finally {
+            metrics.record(ServiceOperation.FREEZE_ACCOUNT, result, System.nanoTime() - start);
+        }
     }
 
     @Override
     public void unfreezeAccount(String accountId) {
-        BankAccount account = accountRepository.findById(accountId);
-        account.setFrozen(false);
-        accountRepository.save(account);
+        long start = System.nanoTime();
+        OperationResult result = OperationResult.SUCCESS;
+        try {
+            throwIfFailed(update(accountId, account -> {
+                account.setFrozen(false);
+                return OperationResult.SUCCESS;
+            }), null, null);
+        } catch (RuntimeException e) {
+            result = resultOf(e);
+            throw e;
+        } finally {
+            metrics.record(ServiceOperation.UNFREEZE_ACCOUNT, result, System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public OperationResult[] executeBatch(List<Operation> operations, BatchMode mode) {
+        long start = System.nanoTime();
+        OperationResult result = OperationResult.SUCCESS;
+        try {
+            Objects.requireNonNull(operations, "Operations cannot be null");
+            Objects.requireNonNull(mode, "Batch mode cannot be null");
+
+            if (operations.isEmpty()) {
+                return new OperationResult[0];
+            }
+
+            Set<String> accountIds = BatchExecutor.accountIds(operations);
+            for (String accountId : accountIds) {
+                foldIfHot(accountId);
+            }
+            OperationResult[] results;
+            if (optimistic) {
+                results = retryOnConflict(new ArrayList<>(accountIds),
+                        () -> BatchExecutor.tryExecute(operations, mode, accountIds, accountRepository,
+                                changeListener));
+            } else {
+                int[] acquired = locks.lockAll(accountIds);
+                try {
+                    results = BatchExecutor.execute(operations, mode, accountIds, accountRepository,
+                            changeListener);
+                } finally {
+                    locks.unlockAll(acquired);
+                }
+            }
+
+            List<Transaction> entries = BatchExecutor.ledgerEntries(operations, results, idGenerator::nextString,
+                    LocalDateTime.now());
+            if (!entries.isEmpty()) {
+                transactionRepository.saveAll(entries);
+            }
+            logger.debug("Executed batch of {} operations in {} mode", results.length, mode);
+            return results;
+        } catch (RuntimeException e) {
+            result = resultOf(e);
+            throw e;
+        } finally {
+            metrics.record(ServiceOperation.EXECUTE_BATCH, result, System.nanoTime() - start);
+        }
+    }
+
+    // Взаимозачет пакета переводов: переводы сворачиваются в чистые позиции, средства
+    // проверяются по чистому результату, каждый счет сохраняется один раз, а по каждому переводу
+    // записываются проводки TRANSFER (списание со знаком минус и зачисление). Пакет применяется
+    // целиком или не применяется: счета, не прошедшие проверку, перечислены в отчете
+    public SettlementReport settleTransfers(List<Operation> transfers) {
+        long start = System.nanoTime();
+        OperationResult result = OperationResult.SUCCESS;
+        try {
+            Objects.requireNonNull(transfers, "Transfers cannot be null");
+            TransferNetting.Positions positions = TransferNetting.net(transfers);
+            List<String> accountIds = positions.accountIds();
+            for (String accountId : accountIds) {
+                foldIfHot(accountId);
+            }
+
+            Map<String, OperationResult> rejections;
+            if (optimistic) {
+                rejections = retryOnConflict(accountIds,
+                        () -> TransferNetting.tryApply(positions, accountRepository, changeListener));
+            } else {
+                int[] acquired = locks.lockAll(accountIds);
+                try {
+                    rejections = TransferNetting.apply(positions, accountRepository, changeListener);
+                } finally {
+                    locks.unlockAll(acquired);
+                }
+            }
+
+            boolean settled = rejections.isEmpty();
+            if (settled) {
+                TransferNetting.record(transfers, transactionRepository, idGenerator::nextString,
+                        LocalDateTime.now());
+            } else {
+                result = OperationResult.ROLLED_BACK;
+            }
+            SettlementReport report = new SettlementReport(settled, transfers.size(),
+                    settled ? positions.changedAccounts() : 0, positions.grossAmount(), positions.netAmount(),
+                    rejections, System.nanoTime() - start);
+            logger.debug("Settled transfer batch: {}", report);
+            return report;
+        } catch (RuntimeException e) {
+            result = resultOf(e);
+            throw e;
+        } finally {
+            metrics.record(ServiceOperation.SETTLE_TRANSFERS, result, System.nanoTime() - start);
+        }
     }
 
     @Override
     public List<Transaction> getTransactionHistory(String accountId) {
-        return transactionRepository.findByAccountId(accountId);
+        long start = System.nanoTime();
+        OperationResult result = OperationResult.SUCCESS;
+        try {
+            return transactionRepository.findByAccountId(accountId);
+        } catch (RuntimeException e) {
+            result = resultOf(e);
+            throw e;
+        } finally {
+            metrics.record(ServiceOperation.GET_TRANSACTION_HISTORY, result, System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public Page<BankAccount> getAccounts(String cursor, int limit) {
+        long start = System.nanoTime();
+        OperationResult result = OperationResult.SUCCESS;
+        try {
+            return accountRepository.findPage(cursor, limit);
+        } catch (RuntimeException e) {
+            result = resultOf(e);
+            throw e;
+        } finally {
+            metrics.record(ServiceOperation.GET_ALL_ACCOUNTS, result, System.nanoTime() - start);
+        }
+    }
+
+    // Измеряется открытие потока; обход выполняет вызывающий
+    @Override
+    public Stream<BankAccount> streamAccounts() {
+        long start = System.nanoTime();
+        OperationResult result = OperationResult.SUCCESS;
+        try {
+            return accountRepository.stream();
+        } catch (RuntimeException e) {
+            result = resultOf(e);
+            throw e;
+        } finally {
+            metrics.record(ServiceOperation.GET_ALL_ACCOUNTS, result, System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public Page<Transaction> getTransactionHistory(String accountId, String cursor, int limit) {
+        long start = System.nanoTime();
+        OperationResult result = OperationResult.SUCCESS;
+        try {
+            return transactionRepository.findByAccountId(accountId, cursor, limit);
+        } catch (RuntimeException e) {
+            result = resultOf(e);
+            throw e;
+        } finally {
+            metrics.record(ServiceOperation.GET_TRANSACTION_HISTORY, result, System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public Stream<Transaction> streamTransactionHistory(String accountId) {
+        long start = System.nanoTime();
+        OperationResult result = OperationResult.SUCCESS;
+        try {
+            return transactionRepository.streamByAccountId(accountId);
+        } catch (RuntimeException e) {
+            result = resultOf(e);
+            throw e;
+        } finally {
+            metrics.record(ServiceOperation.GET_TRANSACTION_HISTORY, result, System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public List<Transaction> getTransactionHistory(String accountId, LocalDateTime from, LocalDateTime to) {
+        long start = System.nanoTime();
+        OperationResult result = OperationResult.SUCCESS;
+        try {
+            return transactionRepository.findByAccountIdAndTimeRange(accountId, from, to);
+        } catch (RuntimeException e) {
+            result = resultOf(e);
+            throw e;
+        } finally {
+            metrics.record(ServiceOperation.GET_TRANSACTION_HISTORY, result, System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public List<Transaction> getTransactions(LocalDateTime from, LocalDateTime to) {
+        long start = System.nanoTime();
+        OperationResult result = OperationResult.SUCCESS;
+        try {
+            return transactionRepository.findByTimeRange(from, to);
+        } catch (RuntimeException e) {
+            result = resultOf(e);
+            throw e;
+        } finally {
+            metrics.record(ServiceOperation.GET_TRANSACTIONS_BY_TIME, result, System.nanoTime() - start);
+        }
     }
 }
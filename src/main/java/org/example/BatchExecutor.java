@@ -0,0 +1,218 @@
+package org.example;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Supplier;
+
+// Применение пакета операций к счетам. Вызывающий обеспечивает исключительный доступ
+// ко всем затронутым счетам на время выполнения (блокировки, остановка шардов и т.п.).
+final class BatchExecutor {
+    private BatchExecutor() {
+    }
+
+    // Счета, затронутые пакетом
+    static Set<String> accountIds(List<Operation> operations) {
+        Set<String> accountIds = new HashSet<>();
+        for (Operation operation : operations) {
+            if (operation == null) {
+                continue;
+            }
+            if (operation.getAccountId() != null) {
+                accountIds.add(operation.getAccountId());
+            }
+            if (operation.getTargetAccountId() != null) {
+                accountIds.add(operation.getTargetAccountId());
+            }
+        }
+        return accountIds;
+    }
+
+    static OperationResult[] execute(List<Operation> operations, BatchMode mode, Collection<String> accountIds,
+                                     AccountRepository accountRepository, AccountChangeListener changeListener) {
+        return execute(operations, mode, accountIds, accountRepository, changeListener, false);
+    }
+
+    // Вариант без исключительного доступа: пакет применяется к копиям счетов и фиксируется
+    // одним compareAndSaveAll. null - счета изменили параллельно, пакет нужно повторить
+    static OperationResult[] tryExecute(List<Operation> operations, BatchMode mode, Collection<String> accountIds,
+                                        AccountRepository accountRepository, AccountChangeListener changeListener) {
+        return execute(operations, mode, accountIds, accountRepository, changeListener, true);
+    }
+
+    private static OperationResult[] execute(List<Operation> operations, BatchMode mode,
+                                             Collection<String> accountIds, AccountRepository accountRepository,
+                                             AccountChangeListener changeListener, boolean optimistic) {
+        OperationResult[] results = new OperationResult[operations.size()];
+
+        // Каждый счет читается один раз, операции применяются к рабочей копии баланса
+        Map<String, BatchEntry> entries = new HashMap<>(accountIds.size() * 2);
+        for (String accountId : accountIds) {
+            BankAccount account = accountRepository.findById(accountId);
+            if (account != null) {
+                entries.put(accountId, new BatchEntry(account));
+            }
+        }
+
+        boolean failed = false;
+        for (int i = 0; i < results.length; i++) {
+            results[i] = applyToBatch(operations.get(i), entries);
+            failed |= !results[i].isSuccess();
+        }
+
+        if (failed && mode == BatchMode.ATOMIC) {
+            for (int i = 0; i < results.length; i++) {
+                if (results[i].isSuccess()) {
+                    results[i] = OperationResult.ROLLED_BACK;
+                }
+            }
+            return results;
+        }
+
+        // Каждый измененный счет сохраняется один раз
+        List<BankAccount> changed = new ArrayList<>();
+        long[] expectedVersions = new long[entries.size()];
+        for (BatchEntry entry : entries.values()) {
+            if (entry.changed) {
+                BankAccount account = entry.account;
+                if (optimistic) {
+                    expectedVersions[changed.size()] = entry.version;
+                    account = new BankAccount(account);
+                }
+                account.setBalanceMinorUnits(entry.balance);
+                changed.add(account);
+            }
+        }
+        if (changed.isEmpty()) {
+            return results;
+        }
+        if (!optimistic) {
+            accountRepository.saveAll(changed);
+        } else if (!accountRepository.compareAndSaveAll(changed,
+                Arrays.copyOf(expectedVersions, changed.size()))) {
+            return null;
+        }
+        changeListener.onCommitted(changed);
+        return results;
+    }
+
+    // Проводки по успешно примененным операциям пакета; перевод дает пару проводок TRANSFER
+    // (списание со знаком минус и зачисление)
+    static List<Transaction> ledgerEntries(List<Operation> operations, OperationResult[] results,
+                                           Supplier<String> ids, LocalDateTime timestamp) {
+        List<Transaction> entries = new ArrayList<>();
+        for (int i = 0; i < results.length; i++) {
+            if (!results[i].isSuccess()) {
+                continue;
+            }
+            Operation operation = operations.get(i);
+            long amount = operation.getAmountMinorUnits();
+            switch (operation.getType()) {
+                case DEPOSIT:
+                    entries.add(new Transaction(ids.get(), operation.getAccountId(),
+                            Transaction.TransactionType.DEPOSIT, Money.ofMinor(amount), timestamp));
+                    break;
+                case WITHDRAW:
+                    entries.add(new Transaction(ids.get(), operation.getAccountId(),
+                            Transaction.TransactionType.WITHDRAWAL, Money.ofMinor(amount), timestamp));
+                    break;
+                case TRANSFER:
+                    entries.add(new Transaction(ids.get(), operation.getAccountId(),
+                            Transaction.TransactionType.TRANSFER, Money.ofMinor(-amount), timestamp));
+                    entries.add(new Transaction(ids.get(), operation.getTargetAccountId(),
+                            Transaction.TransactionType.TRANSFER, Money.ofMinor(amount), timestamp));
+                    break;
+                default:
+                    break;
+            }
+        }
+        return entries;
+    }
+
+    private static OperationResult applyToBatch(Operation operation, Map<String, BatchEntry> entries) {
+        if (operation == null || operation.getAccountId() == null || operation.getAmountMinorUnits() <= 0) {
+            return OperationResult.INVALID_OPERATION;
+        }
+        long amount = operation.getAmountMinorUnits();
+        BatchEntry source = entries.get(operation.getAccountId());
+
+        switch (operation.getType()) {
+            case DEPOSIT:
+                if (source == null) {
+                    return OperationResult.ACCOUNT_NOT_FOUND;
+                }
+                if (source.account.isFrozen()) {
+                    return OperationResult.ACCOUNT_FROZEN;
+                }
+                return source.credit(amount);
+            case WITHDRAW:
+                if (source == null) {
+                    return OperationResult.ACCOUNT_NOT_FOUND;
+                }
+                if (source.account.isFrozen()) {
+                    return OperationResult.ACCOUNT_FROZEN;
+                }
+                return source.debit(amount);
+            case TRANSFER:
+                String targetId = operation.getTargetAccountId();
+                if (targetId == null || targetId.equals(operation.getAccountId())) {
+                    return OperationResult.INVALID_OPERATION;
+                }
+                BatchEntry target = entries.get(targetId);
+                if (source == null || target == null) {
+                    return OperationResult.ACCOUNT_NOT_FOUND;
+                }
+                if (source.account.isFrozen() || target.account.isFrozen()) {
+                    return OperationResult.ACCOUNT_FROZEN;
+                }
+                if (source.balance < amount) {
+                    return OperationResult.INSUFFICIENT_FUNDS;
+                }
+                OperationResult credited = target.credit(amount);
+                if (credited.isSuccess()) {
+                    source.debit(amount);
+                }
+                return credited;
+            default:
+                return OperationResult.INVALID_OPERATION;
+        }
+    }
+
+    // Рабочее состояние счета в пределах пакета
+    private static final class BatchEntry {
+        private final BankAccount account;
+        private final long version;
+        private long balance;
+        private boolean changed;
+
+        BatchEntry(BankAccount account) {
+            this.account = account;
+            this.version = account.getVersion();
+            this.balance = account.getBalanceMinorUnits();
+        }
+
+        OperationResult credit(long amount) {
+            if (amount > Long.MAX_VALUE - balance) {
+                return OperationResult.INVALID_OPERATION;
+            }
+            balance += amount;
+            changed = true;
+            return OperationResult.SUCCESS;
+        }
+
+        OperationResult debit(long amount) {
+            if (balance < amount) {
+                return OperationResult.INSUFFICIENT_FUNDS;
+            }
+            balance -= amount;
+            changed = true;
+            return OperationResult.SUCCESS;
+        }
+    }
+}
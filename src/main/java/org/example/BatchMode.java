@@ -0,0 +1,7 @@
+package org.example;
+
+// Режим пакетного выполнения операций
+public enum BatchMode {
+    ATOMIC, // Пакет применяется целиком или не применяется вовсе
+    BEST_EFFORT // Ошибочные операции пропускаются, остальные применяются
+}
@@ -0,0 +1,145 @@
+package org.example;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+
+// Общие примитивы двоичных кодеков (AccountCodec, TransactionCodec).
+// Числа в записях хранятся в порядке BIG_ENDIAN независимо от порядка байтов буфера,
+// поэтому записи переносимы между кучей, прямой памятью и файлами.
+// Строки кодируются в UTF-8 прямо в буфер, без промежуточного массива байтов;
+// одиночные суррогаты заменяются на '?', как в String.getBytes.
+final class BinaryFormat {
+    private BinaryFormat() {
+    }
+
+    static long getLong(ByteBuffer buffer, int offset) {
+        long value = buffer.getLong(offset);
+        return buffer.order() == ByteOrder.BIG_ENDIAN ? value : Long.reverseBytes(value);
+    }
+
+    static void putLong(ByteBuffer buffer, int offset, long value) {
+        buffer.putLong(offset, buffer.order() == ByteOrder.BIG_ENDIAN ? value : Long.reverseBytes(value));
+    }
+
+    static int getInt(ByteBuffer buffer, int offset) {
+        int value = buffer.getInt(offset);
+        return buffer.order() == ByteOrder.BIG_ENDIAN ? value : Integer.reverseBytes(value);
+    }
+
+    static void putInt(ByteBuffer buffer, int offset, int value) {
+        buffer.putInt(offset, buffer.order() == ByteOrder.BIG_ENDIAN ? value : Integer.reverseBytes(value));
+    }
+
+    static short getShort(ByteBuffer buffer, int offset) {
+        short value = buffer.getShort(offset);
+        return buffer.order() == ByteOrder.BIG_ENDIAN ? value : Short.reverseBytes(value);
+    }
+
+    static void putShort(ByteBuffer buffer, int offset, short value) {
+        buffer.putShort(offset, buffer.order() == ByteOrder.BIG_ENDIAN ? value : Short.reverseBytes(value));
+    }
+
+    // Длина строки в UTF-8
+    static int utf8Length(CharSequence value) {
+        int length = 0;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                length++;
+            } else if (c < 0x800) {
+                length += 2;
+            } else if (isSurrogatePair(value, i)) {
+                length += 4;
+                i++;
+            } else if (Character.isSurrogate(c)) {
+                length++;
+            } else {
+                length += 3;
+            }
+        }
+        return length;
+    }
+
+    // Записать строку в UTF-8 начиная с offset; возвращает число записанных байтов
+    static int putUtf8(ByteBuffer buffer, int offset, CharSequence value) {
+        int position = offset;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                buffer.put(position++, (byte) c);
+            } else if (c < 0x800) {
+                buffer.put(position++, (byte) (0xC0 | c >> 6));
+                buffer.put(position++, (byte) (0x80 | c & 0x3F));
+            } else if (isSurrogatePair(value, i)) {
+                int codePoint = Character.toCodePoint(c, value.charAt(++i));
+                buffer.put(position++, (byte) (0xF0 | codePoint >> 18));
+                buffer.put(position++, (byte) (0x80 | codePoint >> 12 & 0x3F));
+                buffer.put(position++, (byte) (0x80 | codePoint >> 6 & 0x3F));
+                buffer.put(position++, (byte) (0x80 | codePoint & 0x3F));
+            } else if (Character.isSurrogate(c)) {
+                buffer.put(position++, (byte) '?');
+            } else {
+                buffer.put(position++, (byte) (0xE0 | c >> 12));
+                buffer.put(position++, (byte) (0x80 | c >> 6 & 0x3F));
+                buffer.put(position++, (byte) (0x80 | c & 0x3F));
+            }
+        }
+        return position - offset;
+    }
+
+    static String getUtf8(ByteBuffer buffer, int offset, int length) {
+        byte[] bytes = new byte[length];
+        boolean ascii = true;
+        for (int i = 0; i < length; i++) {
+            bytes[i] = buffer.get(offset + i);
+            ascii &= bytes[i] >= 0;
+        }
+        return ascii ? new String(bytes, StandardCharsets.ISO_8859_1) : new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    // Сравнение строки в буфере с value без декодирования
+    static boolean utf8Equals(ByteBuffer buffer, int offset, int length, CharSequence value) {
+        if (value.length() > length || utf8Length(value) != length) {
+            return false;
+        }
+        int position = offset;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                if (buffer.get(position++) != (byte) c) {
+                    return false;
+                }
+            } else if (c < 0x800) {
+                if (buffer.get(position++) != (byte) (0xC0 | c >> 6)
+                        || buffer.get(position++) != (byte) (0x80 | c & 0x3F)) {
+                    return false;
+                }
+            } else if (isSurrogatePair(value, i)) {
+                int codePoint = Character.toCodePoint(c, value.charAt(++i));
+                if (buffer.get(position++) != (byte) (0xF0 | codePoint >> 18)
+                        || buffer.get(position++) != (byte) (0x80 | codePoint >> 12 & 0x3F)
+                        || buffer.get(position++) != (byte) (0x80 | codePoint >> 6 & 0x3F)
+                        || buffer.get(position++) != (byte) (0x80 | codePoint & 0x3F)) {
+                    return false;
+                }
+            } else if (Character.isSurrogate(c)) {
+                if (buffer.get(position++) != (byte) '?') {
+                    return false;
+                }
+            } else {
+                if (buffer.get(position++) != (byte) (0xE0 | c >> 12)
+                        || buffer.get(position++) != (byte) (0x80 | c >> 6 & 0x3F)
+                        || buffer.get(position++) != (byte) (0x80 | c & 0x3F)) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    private static boolean isSurrogatePair(CharSequence value, int index) {
+        return Character.isHighSurrogate(value.charAt(index)) && index + 1 < value.length()
+                && Character.isLowSurrogate(value.charAt(index + 1));
+    }
+}
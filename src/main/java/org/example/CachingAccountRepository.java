@@ -0,0 +1,424 @@
+package org.example;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+
+// Кеширующий декоратор AccountRepository с ограниченным размером и вытеснением W-TinyLFU.
+// Новые счета попадают в небольшое окно LRU (1% емкости); вытесненный из окна кандидат
+// допускается в основную область (SLRU: испытательный и защищенный сегменты), только если
+// по оценке частоты он популярнее жертвы из испытательного сегмента. Частоты считает FrequencySketch.
+// Попадание в кеш не берет блокировок: обращение записывается в буфер и учитывается политикой
+// пакетно (при переполнении буфера обращения теряются - политика приближенная).
+// Загрузка, сохранение и удаление счета выполняются под блокировкой полосы счета вместе
+// с обращением к нижележащему хранилищу, поэтому кеш не расходится с хранилищем.
+// Возвращаются те же объекты, что сохранены в кеше (как у InMemoryAccountRepository).
+// Выборки всех счетов и страниц идут в хранилище напрямую.
+// Условное сохранение по версии поддерживается, если его поддерживает хранилище.
+public class CachingAccountRepository implements AccountRepository {
+    private static final int READ_BUFFER_SIZE = 256;
+    private static final int DRAIN_THRESHOLD = READ_BUFFER_SIZE / 4;
+
+    private final AccountRepository delegate;
+    private final long maximumSize;
+    private final ConcurrentMap<String, Node> data = new ConcurrentHashMap<>();
+    private final StripedLocks locks;
+
+    // Состояние политики вытеснения изменяется только под evictionLock
+    private final ReentrantLock evictionLock = new ReentrantLock();
+    private final MpscRingBuffer<Node> readBuffer = new MpscRingBuffer<>(READ_BUFFER_SIZE);
+    private final FrequencySketch sketch;
+    private final AccessQueue window = new AccessQueue();
+    private final AccessQueue probation = new AccessQueue();
+    private final AccessQueue protectedQueue = new AccessQueue();
+    private final long windowMaximum;
+    private final long protectedMaximum;
+    private long windowSize;
+    private long mainSize;
+    private long protectedSize;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public CachingAccountRepository(AccountRepository delegate, long maximumSize) {
+        this(delegate, maximumSize, new StripedLocks());
+    }
+
+    public CachingAccountRepository(AccountRepository delegate, long maximumSize, StripedLocks locks) {
+        if (maximumSize <= 0) {
+            throw new IllegalArgumentException("Maximum cache size must be positive, got: " + maximumSize);
+        }
+        this.delegate = delegate;
+        this.maximumSize = maximumSize;
+        this.locks = locks;
+        this.sketch = new FrequencySketch(maximumSize);
+        this.windowMaximum = Math.max(1, maximumSize / 100);
+        this.protectedMaximum = (maximumSize - windowMaximum) * 80 / 100;
+    }
+
+    @Override
+    public BankAccount findById(String accountId) {
+        Node node = data.get(accountId);
+        if (node != null) {
+            hits.increment();
+            recordRead(node);
+            return node.account;
+        }
+
+        locks.lock(accountId);
+        try {
+            // Счет мог загрузить другой поток, пока мы ждали блокировку
+            node = data.get(accountId);
+            if (node != null) {
+                hits.increment();
+                recordRead(node);
+                return node.account;
+            }
+            misses.increment();
+            BankAccount account = delegate.findById(accountId);
+            if (account != null) {
+                insert(accountId, account);
+            }
+            return account;
+        } finally {
+            locks.unlock(accountId);
+        }
+    }
+
+    @Override
+    public void save(BankAccount account) {
+        String accountId = account.getAccountId();
+        locks.lock(accountId);
+        try {
+            delegate.save(account);
+            update(accountId, account);
+        } finally {
+            locks.unlock(accountId);
+        }
+    }
+
+    @Override
+    public void saveAll(Collection<BankAccount> accounts) {
+        List<String> accountIds = new ArrayList<>(accounts.size());
+        for (BankAccount account : accounts) {
+            accountIds.add(account.getAccountId());
+        }
+        int[] acquired = locks.lockAll(accountIds);
+        try {
+            delegate.saveAll(accounts);
+            for (BankAccount account : accounts) {
+                update(account.getAccountId(), account);
+            }
+        } finally {
+            locks.unlockAll(acquired);
+        }
+    }
+
+    @Override
+    public boolean supportsCompareAndSave() {
+        return delegate.supportsCompareAndSave();
+    }
+
+    @Override
+    public boolean compareAndSave(BankAccount account, long expectedVersion) {
+        String accountId = account.getAccountId();
+        locks.lock(accountId);
+        try {
+            if (!delegate.compareAndSave(account, expectedVersion)) {
+                return false;
+            }
+            update(accountId, account);
+            return true;
+        } finally {
+            locks.unlock(accountId);
+        }
+    }
+
+    @Override
+    public boolean compareAndSaveAll(List<BankAccount> accounts, long[] expectedVersions) {
+        List<String> accountIds = new ArrayList<>(accounts.size());
+        for (BankAccount account : accounts) {
+            accountIds.add(account.getAccountId());
+        }
+        int[] acquired = locks.lockAll(accountIds);
+        try {
+            if (!delegate.compareAndSaveAll(accounts, expectedVersions)) {
+                return false;
+            }
+            for (BankAccount account : accounts) {
+                update(account.getAccountId(), account);
+            }
+            return true;
+        } finally {
+            locks.unlockAll(acquired);
+        }
+    }
+
+    @Override
+    public void delete(String accountId) {
+        locks.lock(accountId);
+        try {
+            delegate.delete(accountId);
+            Node node = data.remove(accountId);
+            if (node != null) {
+                node.retired = true;
+                evictionLock.lock();
+                try {
+                    drainReadBuffer();
+                    unlink(node);
+                } finally {
+                    evictionLock.unlock();
+                }
+            }
+        } finally {
+            locks.unlock(accountId);
+        }
+    }
+
+    @Override
+    public List<BankAccount> findAll() {
+        return delegate.findAll();
+    }
+
+    @Override
+    public Page<BankAccount> findPage(String afterAccountId, int limit) {
+        return delegate.findPage(afterAccountId, limit);
+    }
+
+    @Override
+    public Stream<BankAccount> stream() {
+        return delegate.stream();
+    }
+
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    public long getEvictionCount() {
+        return evictions.sum();
+    }
+
+    // Доля попаданий среди всех обращений (1.0, если обращений не было)
+    public double getHitRate() {
+        long hitCount = hits.sum();
+        long requests = hitCount + misses.sum();
+        return requests == 0 ? 1.0 : (double) hitCount / requests;
+    }
+
+    public long size() {
+        return data.size();
+    }
+
+    public long getMaximumSize() {
+        return maximumSize;
+    }
+
+    // Вызывается под блокировкой полосы счета
+    private void update(String accountId, BankAccount account) {
+        Node node = data.get(accountId);
+        if (node == null) {
+            insert(accountId, account);
+            return;
+        }
+        node.account = account;
+        recordRead(node);
+    }
+
+    private void insert(String accountId, BankAccount account) {
+        Node node = new Node(accountId, account);
+        data.put(accountId, node);
+        evictionLock.lock();
+        try {
+            drainReadBuffer();
+            sketch.increment(accountId);
+            if (!node.retired) {
+                window.addLast(node);
+                node.queue = Node.WINDOW;
+                windowSize++;
+                evict();
+            }
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    private void recordRead(Node node) {
+        if (!readBuffer.offer(node) || readBuffer.size() >= DRAIN_THRESHOLD) {
+            if (evictionLock.tryLock()) {
+                try {
+                    drainReadBuffer();
+                } finally {
+                    evictionLock.unlock();
+                }
+            }
+        }
+    }
+
+    private void drainReadBuffer() {
+        Node node;
+        while ((node = readBuffer.poll()) != null) {
+            onAccess(node);
+        }
+    }
+
+    private void onAccess(Node node) {
+        sketch.increment(node.key);
+        switch (node.queue) {
+            case Node.WINDOW:
+                window.moveToLast(node);
+                break;
+            case Node.PROBATION:
+                // Повторное обращение переводит счет в защищенный сегмент
+                probation.remove(node);
+                protectedQueue.addLast(node);
+                node.queue = Node.PROTECTED;
+                protectedSize++;
+                while (protectedSize > protectedMaximum) {
+                    Node demoted = protectedQueue.pollFirst();
+                    probation.addLast(demoted);
+                    demoted.queue = Node.PROBATION;
+                    protectedSize--;
+                }
+                break;
+            case Node.PROTECTED:
+                protectedQueue.moveToLast(node);
+                break;
+            default:
+                // Счет уже вытеснен или удален
+                break;
+        }
+    }
+
+    private void evict() {
+        // Кандидаты из окна переходят в испытательный сегмент
+        while (windowSize > windowMaximum) {
+            Node candidate = window.pollFirst();
+            windowSize--;
+            probation.addLast(candidate);
+            candidate.queue = Node.PROBATION;
+            mainSize++;
+        }
+        // Пока основная область переполнена, кандидат соревнуется с жертвой по частоте
+        while (windowSize + mainSize > maximumSize) {
+            Node victim = probation.peekFirst();
+            Node candidate = probation.peekLast();
+            if (victim == null) {
+                victim = protectedQueue.peekFirst();
+                candidate = victim;
+            }
+            Node evicted = victim != candidate && sketch.frequency(candidate.key) > sketch.frequency(victim.key)
+                    ? victim : candidate;
+            unlink(evicted);
+            evicted.retired = true;
+            // Удаляется только этот узел: после удаления счет мог быть загружен заново
+            data.remove(evicted.key, evicted);
+            evictions.increment();
+        }
+    }
+
+    private void unlink(Node node) {
+        switch (node.queue) {
+            case Node.WINDOW:
+                window.remove(node);
+                windowSize--;
+                break;
+            case Node.PROBATION:
+                probation.remove(node);
+                mainSize--;
+                break;
+            case Node.PROTECTED:
+                protectedQueue.remove(node);
+                protectedSize--;
+                mainSize--;
+                break;
+            default:
+                break;
+        }
+        node.queue = Node.NONE;
+    }
+
+    private static final class Node {
+        static final int NONE = 0;
+        static final int WINDOW = 1;
+        static final int PROBATION = 2;
+        static final int PROTECTED = 3;
+
+        private final String key;
+        private volatile BankAccount account;
+        private volatile boolean retired;
+        // Поля ниже изменяются только под evictionLock
+        private int queue = NONE;
+        private Node previous;
+        private Node next;
+
+        Node(String key, BankAccount account) {
+            this.key = key;
+            this.account = account;
+        }
+    }
+
+    // Двусвязный список узлов в порядке обращений: в начале - самый давний
+    private static final class AccessQueue {
+        private Node first;
+        private Node last;
+
+        Node peekFirst() {
+            return first;
+        }
+
+        Node peekLast() {
+            return last;
+        }
+
+        Node pollFirst() {
+            Node node = first;
+            if (node != null) {
+                remove(node);
+            }
+            return node;
+        }
+
+        void addLast(Node node) {
+            node.previous = last;
+            node.next = null;
+            if (last == null) {
+                first = node;
+            } else {
+                last.next = node;
+            }
+            last = node;
+        }
+
+        void remove(Node node) {
+            if (node.previous == null) {
+                first = node.next;
+            } else {
+                node.previous.next = node.next;
+            }
+            if (node.next == null) {
+                last = node.previous;
+            } else {
+                node.next.previous = node.previous;
+            }
+            node.previous = null;
+            node.next = null;
+        }
+
+        void moveToLast(Node node) {
+            if (node != last) {
+                remove(node);
+                addLast(node);
+            }
+        }
+    }
+}
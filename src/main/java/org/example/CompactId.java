@@ -0,0 +1,59 @@
+package org.example;
+
+import java.util.UUID;
+
+// 128-битный идентификатор, хранящийся как два long. toString возвращает строку в формате UUID
+public final class CompactId implements Comparable<CompactId> {
+    private final long high;
+    private final long low;
+
+    public CompactId(long high, long low) {
+        this.high = high;
+        this.low = low;
+    }
+
+    public static CompactId of(UUID uuid) {
+        return new CompactId(uuid.getMostSignificantBits(), uuid.getLeastSignificantBits());
+    }
+
+    public long getHigh() {
+        return high;
+    }
+
+    public long getLow() {
+        return low;
+    }
+
+    public UUID toUuid() {
+        return new UUID(high, low);
+    }
+
+    // Сравнение беззнаковое, чтобы порядок совпадал с порядком строкового представления
+    @Override
+    public int compareTo(CompactId other) {
+        int byHigh = Long.compareUnsigned(high, other.high);
+        return byHigh != 0 ? byHigh : Long.compareUnsigned(low, other.low);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof CompactId)) {
+            return false;
+        }
+        CompactId other = (CompactId) o;
+        return high == other.high && low == other.low;
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(high * 31 + low);
+    }
+
+    @Override
+    public String toString() {
+        return new UUID(high, low).toString();
+    }
+}
@@ -0,0 +1,78 @@
+package org.example;
+
+// Приближенный счетчик частот обращений (Count-Min Sketch с 4-битными счетчиками).
+// Каждый ключ учитывается в четырех счетчиках, оценка частоты - минимум из них.
+// После sampleSize увеличений все счетчики делятся пополам, чтобы старая популярность затухала.
+// Не потокобезопасен: используется под блокировкой политики вытеснения.
+final class FrequencySketch {
+    private static final long[] SEEDS = {
+            0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L};
+    private static final long RESET_MASK = 0x7777777777777777L;
+    private static final int MAX_COUNT = 15;
+
+    private final long[] table;
+    private final int tableMask;
+    private final int sampleSize;
+    private int additions;
+
+    FrequencySketch(long maximumSize) {
+        int capacity = (int) Math.max(1, Math.min(maximumSize, 1 << 24));
+        int length = Math.max(8, Integer.highestOneBit(capacity - 1) << 1);
+        this.table = new long[length];
+        this.tableMask = length - 1;
+        this.sampleSize = 10 * capacity;
+    }
+
+    int frequency(Object key) {
+        int hash = spread(key.hashCode());
+        int frequency = MAX_COUNT;
+        for (int i = 0; i < SEEDS.length; i++) {
+            long h = mix(hash, i);
+            int shift = nibble(h) << 2;
+            frequency = Math.min(frequency, (int) ((table[index(h)] >>> shift) & MAX_COUNT));
+        }
+        return frequency;
+    }
+
+    void increment(Object key) {
+        int hash = spread(key.hashCode());
+        boolean added = false;
+        for (int i = 0; i < SEEDS.length; i++) {
+            long h = mix(hash, i);
+            int index = index(h);
+            int shift = nibble(h) << 2;
+            if (((table[index] >>> shift) & MAX_COUNT) < MAX_COUNT) {
+                table[index] += 1L << shift;
+                added = true;
+            }
+        }
+        if (added && ++additions == sampleSize) {
+            reset();
+        }
+    }
+
+    private void reset() {
+        for (int i = 0; i < table.length; i++) {
+            table[i] = (table[i] >>> 1) & RESET_MASK;
+        }
+        additions >>>= 1;
+    }
+
+    private int index(long h) {
+        return (int) h & tableMask;
+    }
+
+    private static int nibble(long h) {
+        return (int) (h >>> 60);
+    }
+
+    private static long mix(int hash, int i) {
+        long h = (hash + SEEDS[i]) * SEEDS[i];
+        return h ^ (h >>> 29);
+    }
+
+    private static int spread(int hash) {
+        int h = hash * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
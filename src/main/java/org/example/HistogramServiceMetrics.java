@@ -0,0 +1,37 @@
+package org.example;
+
+import java.util.concurrent.atomic.LongAdder;
+
+// Стандартный приемник метрик: гистограмма задержек и счетчики результатов для каждого метода
+public class HistogramServiceMetrics implements ServiceMetrics {
+    private static final int RESULT_COUNT = OperationResult.values().length;
+
+    private final LatencyHistogram[] latencies;
+    private final LongAdder[] counters;
+
+    public HistogramServiceMetrics() {
+        int operations = ServiceOperation.values().length;
+        latencies = new LatencyHistogram[operations];
+        counters = new LongAdder[operations * RESULT_COUNT];
+        for (int i = 0; i < operations; i++) {
+            latencies[i] = new LatencyHistogram();
+        }
+        for (int i = 0; i < counters.length; i++) {
+            counters[i] = new LongAdder();
+        }
+    }
+
+    @Override
+    public void record(ServiceOperation operation, OperationResult result, long latencyNanos) {
+        latencies[operation.ordinal()].record(latencyNanos);
+        counters[operation.ordinal() * RESULT_COUNT + result.ordinal()].increment();
+    }
+
+    public LatencyHistogram.Snapshot getLatency(ServiceOperation operation) {
+        return latencies[operation.ordinal()].snapshot();
+    }
+
+    public long getCount(ServiceOperation operation, OperationResult result) {
+        return counters[operation.ordinal() * RESULT_COUNT + result.ordinal()].sum();
+    }
+}
@@ -0,0 +1,16 @@
+package org.example;
+
+import java.util.UUID;
+
+// Источник идентификаторов счетов и транзакций
+@FunctionalInterface
+public interface IdGenerator {
+    CompactId next();
+
+    // Прежнее поведение: случайный UUID через общий SecureRandom
+    IdGenerator RANDOM_UUID = () -> CompactId.of(UUID.randomUUID());
+
+    default String nextString() {
+        return next().toString();
+    }
+}
@@ -0,0 +1,179 @@
+package org.example;
+
+import java.util.Iterator;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+// Хранилище ключей идемпотентности: повторный запрос с тем же ключом не выполняется,
+// а получает исход первого (результат или бизнес-исключение). Параллельный повтор ждет
+// завершения исходного запроса. Записи живут ttl и вытесняются в порядке добавления,
+// когда их больше maxEntries, поэтому память ограничена; запись выполняющегося запроса
+// не вытесняется до его завершения. Проверка повтора стоит O(1).
+// Непредвиденные ошибки не запоминаются: повтор после них выполнит операцию заново.
+public class IdempotencyStore {
+    public static final int DEFAULT_MAX_ENTRIES = 100_000;
+    public static final long DEFAULT_TTL_MINUTES = 60;
+
+    private final int maxEntries;
+    private final long ttlNanos;
+    private final LongSupplier clock;
+    private final ConcurrentMap<String, Entry> entries = new ConcurrentHashMap<>();
+    // Порядок добавления совпадает с порядком истечения, так как ttl у всех записей одинаковый
+    private final ConcurrentLinkedQueue<Entry> order = new ConcurrentLinkedQueue<>();
+    private final LongAdder replays = new LongAdder();
+
+    public IdempotencyStore() {
+        this(DEFAULT_MAX_ENTRIES, DEFAULT_TTL_MINUTES, TimeUnit.MINUTES);
+    }
+
+    public IdempotencyStore(int maxEntries, long ttl, TimeUnit unit) {
+        this(maxEntries, unit.toNanos(ttl), System::nanoTime);
+    }
+
+    IdempotencyStore(int maxEntries, long ttlNanos, LongSupplier clock) {
+        if (maxEntries <= 0) {
+            throw new IllegalArgumentException("Maximum entry count must be positive, got: " + maxEntries);
+        }
+        if (ttlNanos <= 0) {
+            throw new IllegalArgumentException("TTL must be positive, got: " + ttlNanos);
+        }
+        this.maxEntries = maxEntries;
+        this.ttlNanos = ttlNanos;
+        this.clock = clock;
+    }
+
+    // Выполнить действие один раз для ключа. fingerprint описывает параметры запроса:
+    // повтор ключа с другими параметрами отклоняется
+    public <T> T execute(String key, String fingerprint, Supplier<T> action) {
+        Objects.requireNonNull(key, "Idempotency key cannot be null");
+        long now = clock.getAsLong();
+        Entry entry = new Entry(key, fingerprint, now + ttlNanos);
+        while (true) {
+            Entry existing = entries.putIfAbsent(key, entry);
+            if (existing == null) {
+                break;
+            }
+            if (existing.expiresAt - now > 0) {
+                return replay(existing, fingerprint);
+            }
+            if (entries.replace(key, existing, entry)) {
+                break;
+            }
+        }
+        order.add(entry);
+        evictExpired(now);
+
+        T result;
+        try {
+            result = action.get();
+        } catch (RuntimeException e) {
+            if (!isReplayable(e)) {
+                // Запись убирается и из очереди вытеснения, иначе при потоке ошибок очередь
+                // растет до истечения ttl. Обход очереди допустим: путь редкий
+                entries.remove(key, entry);
+                order.remove(entry);
+            }
+            entry.outcome.completeExceptionally(e);
+            throw e;
+        }
+        entry.outcome.complete(result);
+        return result;
+    }
+
+    // Параметры денежной операции для сравнения повторов: сумма в минимальных единицах Money.SCALE,
+    // чтобы 10.0 и 10.00 считались одним запросом. Непредставимая сумма остается строкой,
+    // ее отклонит сама операция
+    static String fingerprint(String operation, Money amount, String... accountIds) {
+        StringBuilder fingerprint = new StringBuilder(operation);
+        for (String accountId : accountIds) {
+            fingerprint.append(':').append(accountId);
+        }
+        fingerprint.append(':');
+        if (amount != null && amount.isRepresentableAt(Money.SCALE)) {
+            fingerprint.append(amount.toMinorUnits(Money.SCALE));
+        } else {
+            fingerprint.append(amount);
+        }
+        return fingerprint.toString();
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    // Длина очереди вытеснения (для тестов)
+    int queuedCount() {
+        return order.size();
+    }
+
+    // Число запросов, получивших сохраненный исход вместо повторного выполнения
+    public long getReplayCount() {
+        return replays.sum();
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> T replay(Entry existing, String fingerprint) {
+        if (!Objects.equals(existing.fingerprint, fingerprint)) {
+            throw new IllegalArgumentException("Idempotency key " + existing.key
+                    + " was already used with different parameters");
+        }
+        replays.increment();
+        try {
+            return (T) existing.outcome.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IllegalStateException(cause);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for original request", e);
+        }
+    }
+
+    // Незавершенные записи пропускаются: иначе повтор выполняющегося запроса не нашел бы его
+    // и выполнил операцию второй раз. Таких записей не больше, чем запросов в работе
+    private void evictExpired(long now) {
+        Iterator<Entry> iterator = order.iterator();
+        while (iterator.hasNext()) {
+            Entry oldest = iterator.next();
+            if (oldest.expiresAt - now > 0 && entries.size() <= maxEntries) {
+                break;
+            }
+            if (oldest.outcome.isDone()) {
+                iterator.remove();
+                entries.remove(oldest.key, oldest);
+            }
+        }
+    }
+
+    // Бизнес-отказы детерминированы и повторяются; остальные ошибки могут быть временными
+    private static boolean isReplayable(RuntimeException e) {
+        return e instanceof InsufficientFundsException
+                || e instanceof AccountNotFoundException
+                || e instanceof AccountFrozenException
+                || e instanceof IllegalArgumentException;
+    }
+
+    private static final class Entry {
+        private final String key;
+        private final String fingerprint;
+        private final long expiresAt;
+        private final CompletableFuture<Object> outcome = new CompletableFuture<>();
+
+        Entry(String key, String fingerprint, long expiresAt) {
+            this.key = key;
+            this.fingerprint = fingerprint;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
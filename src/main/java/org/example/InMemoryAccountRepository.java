@@ -0,0 +1,155 @@
+package org.example;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.stream.Stream;
+
+// Потокобезопасное хранилище счетов в памяти.
+// Атомарность изменений баланса обеспечивает сервис: через StripedLocks или через
+// условное сохранение по версии (compareAndSave). Запись идет под блокировкой полосы счета,
+// чтобы проверка версий нескольких счетов и их замена были атомарны; чтение блокировок не берет.
+// Упорядоченный индекс идентификаторов нужен для постраничного обхода по ключу.
+// save увеличивает версию сохраненного счета, но оставляет переданную версию, если она больше.
+public class InMemoryAccountRepository implements AccountRepository {
+    private final ConcurrentMap<String, BankAccount> accounts;
+    private final NavigableSet<String> ids = new ConcurrentSkipListSet<>();
+    private final StripedLocks writeLocks = new StripedLocks(64);
+
+    public InMemoryAccountRepository() {
+        this.accounts = new ConcurrentHashMap<>();
+    }
+
+    public InMemoryAccountRepository(int expectedAccounts) {
+        this.accounts = new ConcurrentHashMap<>(expectedAccounts);
+    }
+
+    @Override
+    public BankAccount findById(String accountId) {
+        return accounts.get(accountId);
+    }
+
+    @Override
+    public void save(BankAccount account) {
+        String accountId = account.getAccountId();
+        writeLocks.lock(accountId);
+        try {
+            // Индекс меняется под блокировкой ключа, поэтому не расходится с картой
+            accounts.compute(accountId, (id, previous) -> {
+                if (previous == null) {
+                    ids.add(id);
+                } else {
+                    // Версия не уменьшается: счет с более новой версией (например, сброс отложенной
+                    // записи, в которой слились несколько условных сохранений) сохраняет свою
+                    account.setVersion(Math.max(previous.getVersion() + 1, account.getVersion()));
+                }
+                return account;
+            });
+        } finally {
+            writeLocks.unlock(accountId);
+        }
+    }
+
+    @Override
+    public void delete(String accountId) {
+        writeLocks.lock(accountId);
+        try {
+            accounts.computeIfPresent(accountId, (id, previous) -> {
+                ids.remove(id);
+                return null;
+            });
+        } finally {
+            writeLocks.unlock(accountId);
+        }
+    }
+
+    @Override
+    public boolean supportsCompareAndSave() {
+        return true;
+    }
+
+    @Override
+    public boolean compareAndSave(BankAccount account, long expectedVersion) {
+        String accountId = account.getAccountId();
+        writeLocks.lock(accountId);
+        try {
+            BankAccount current = accounts.get(accountId);
+            if (current == null || current.getVersion() != expectedVersion) {
+                return false;
+            }
+            account.setVersion(expectedVersion + 1);
+            accounts.put(accountId, account);
+            return true;
+        } finally {
+            writeLocks.unlock(accountId);
+        }
+    }
+
+    @Override
+    public boolean compareAndSaveAll(List<BankAccount> batch, long[] expectedVersions) {
+        if (batch.size() != expectedVersions.length) {
+            throw new IllegalArgumentException("Expected " + batch.size() + " versions, got: "
+                    + expectedVersions.length);
+        }
+        List<String> accountIds = new ArrayList<>(batch.size());
+        for (BankAccount account : batch) {
+            accountIds.add(account.getAccountId());
+        }
+        int[] acquired = writeLocks.lockAll(accountIds);
+        try {
+            for (int i = 0; i < expectedVersions.length; i++) {
+                BankAccount current = accounts.get(accountIds.get(i));
+                if (current == null || current.getVersion() != expectedVersions[i]) {
+                    return false;
+                }
+            }
+            for (int i = 0; i < expectedVersions.length; i++) {
+                BankAccount account = batch.get(i);
+                account.setVersion(expectedVersions[i] + 1);
+                accounts.put(accountIds.get(i), account);
+            }
+            return true;
+        } finally {
+            writeLocks.unlockAll(acquired);
+        }
+    }
+
+    @Override
+    public List<BankAccount> findAll() {
+        return new ArrayList<>(accounts.values());
+    }
+
+    @Override
+    public Page<BankAccount> findPage(String afterAccountId, int limit) {
+        Page.checkLimit(limit);
+        NavigableSet<String> tail = afterAccountId == null ? ids : ids.tailSet(afterAccountId, false);
+        List<BankAccount> items = new ArrayList<>(Math.min(limit, 1024));
+        Iterator<String> iterator = tail.iterator();
+        while (iterator.hasNext()) {
+            BankAccount account = accounts.get(iterator.next());
+            if (account == null) {
+                continue; // удален после чтения индекса
+            }
+            if (items.size() == limit) {
+                return new Page<>(items, items.get(limit - 1).getAccountId());
+            }
+            items.add(account);
+        }
+        return new Page<>(items, null);
+    }
+
+    @Override
+    public Stream<BankAccount> stream() {
+        return ids.stream().map(accounts::get).filter(Objects::nonNull);
+    }
+
+    // Количество счетов без копирования
+    public int size() {
+        return accounts.size();
+    }
+}
@@ -1,24 +1,184 @@
 package org.example;
 
+import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
 
+// Хранилище транзакций в памяти с индексом по счету.
+// Для каждого счета ведется отдельный журнал из блоков фиксированного размера,
+// поэтому поиск стоит O(размер истории счета), а запись в разные счета не конкурирует.
+// Временные индексы (по счету и общий) отвечают на запросы по интервалу за O(log n + k).
+// Транзакция индексируется по времени, которое было у нее на момент сохранения;
+// транзакции без времени в индексы не попадают.
 public class InMemoryTransactionRepository implements TransactionRepository {
-    private final List<Transaction> transactions = new ArrayList<>();
+    private final ConcurrentMap<String, AccountHistory> histories = new ConcurrentHashMap<>();
+    private final ConcurrentSkipListMap<TimeKey, Transaction> timeIndex = new ConcurrentSkipListMap<>();
+    // Порядковый номер различает транзакции с одинаковым временем и сохраняет порядок записи
+    private final AtomicLong sequence = new AtomicLong();
 
     @Override
     public void save(Transaction transaction) {
-        transactions.add(transaction);
+        TimeKey key = transaction.getTimestamp() == null
+                ? null
+                : new TimeKey(transaction.getTimestamp(), sequence.incrementAndGet());
+        histories.computeIfAbsent(transaction.getAccountId(), id -> new AccountHistory())
+                .append(transaction, key);
+        if (key != null) {
+            timeIndex.put(key, transaction);
+        }
+    }
+
+    @Override
+    public List<Transaction> findByAccountIdAndTimeRange(String accountId, LocalDateTime from, LocalDateTime to) {
+        TransactionRepository.checkTimeRange(from, to);
+        AccountHistory history = histories.get(accountId);
+        if (history == null) {
+            return new ArrayList<>();
+        }
+        return new ArrayList<>(range(history.timeIndex, from, to).values());
+    }
+
+    @Override
+    public List<Transaction> findByTimeRange(LocalDateTime from, LocalDateTime to) {
+        TransactionRepository.checkTimeRange(from, to);
+        return new ArrayList<>(range(timeIndex, from, to).values());
+    }
+
+    private static ConcurrentNavigableMap<TimeKey, Transaction> range(
+            ConcurrentSkipListMap<TimeKey, Transaction> index, LocalDateTime from, LocalDateTime to) {
+        // Минимальный номер делает границы ниже любой реальной записи с тем же временем
+        return index.subMap(new TimeKey(from, Long.MIN_VALUE), true, new TimeKey(to, Long.MIN_VALUE), false);
     }
 
     @Override
     public List<Transaction> findByAccountId(String accountId) {
-        List<Transaction> result = new ArrayList<>();
-        for (Transaction t : transactions) {
-            if (t.getAccountId().equals(accountId)) {
-                result.add(t);
+        AccountHistory history = histories.get(accountId);
+        if (history == null) {
+            return new ArrayList<>();
+        }
+        return history.toList();
+    }
+
+    @Override
+    public Page<Transaction> findByAccountId(String accountId, String cursor, int limit) {
+        Page.checkLimit(limit);
+        int from = TransactionRepository.parseCursor(cursor);
+        AccountHistory history = histories.get(accountId);
+        if (history == null) {
+            return new Page<>(new ArrayList<>(), null);
+        }
+        int size = history.size();
+        int to = (int) Math.min((long) from + limit, size);
+        List<Transaction> items = new ArrayList<>(Math.max(to - from, 0));
+        for (int i = from; i < to; i++) {
+            items.add(history.get(i));
+        }
+        return new Page<>(items, to < size ? Integer.toString(to) : null);
+    }
+
+    @Override
+    public Stream<Transaction> streamByAccountId(String accountId) {
+        AccountHistory history = histories.get(accountId);
+        if (history == null) {
+            return Stream.empty();
+        }
+        // Обходятся записи, сохраненные до начала обхода
+        return IntStream.range(0, history.size()).mapToObj(history::get);
+    }
+
+    @Override
+    public Stream<Transaction> streamAll() {
+        return histories.keySet().stream().flatMap(this::streamByAccountId);
+    }
+
+    // Журнал одного счета: писатели сериализуются на мониторе журнала,
+    // читатели работают без блокировок и видят все записи до опубликованного размера
+    static final class AccountHistory {
+        private static final int CHUNK_SHIFT = 6;
+        private static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+        private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+        private volatile Transaction[][] chunks = new Transaction[1][];
+        private volatile int size;
+        private final ConcurrentSkipListMap<TimeKey, Transaction> timeIndex = new ConcurrentSkipListMap<>();
+
+        synchronized void append(Transaction transaction, TimeKey key) {
+            if (key != null) {
+                timeIndex.put(key, transaction);
+            }
+            int index = size;
+            int chunkIndex = index >>> CHUNK_SHIFT;
+            Transaction[][] current = chunks;
+            if (chunkIndex == current.length) {
+                current = Arrays.copyOf(current, current.length << 1);
+            }
+            if (current[chunkIndex] == null) {
+                current[chunkIndex] = new Transaction[CHUNK_SIZE];
+            }
+            current[chunkIndex][index & CHUNK_MASK] = transaction;
+            // Сначала публикуем массив блоков, затем размер: читатель, увидевший размер, увидит и запись
+            chunks = current;
+            size = index + 1;
+        }
+
+        int size() {
+            return size;
+        }
+
+        Transaction get(int index) {
+            return chunks[index >>> CHUNK_SHIFT][index & CHUNK_MASK];
+        }
+
+        List<Transaction> toList() {
+            int count = size;
+            Transaction[][] snapshot = chunks;
+            List<Transaction> result = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                result.add(snapshot[i >>> CHUNK_SHIFT][i & CHUNK_MASK]);
             }
+            return result;
+        }
+    }
+
+    // Ключ временного индекса: время транзакции, затем порядковый номер записи
+    static final class TimeKey implements Comparable<TimeKey> {
+        private final LocalDateTime timestamp;
+        private final long sequence;
+
+        TimeKey(LocalDateTime timestamp, long sequence) {
+            this.timestamp = timestamp;
+            this.sequence = sequence;
+        }
+
+        @Override
+        public int compareTo(TimeKey other) {
+            int byTime = timestamp.compareTo(other.timestamp);
+            return byTime != 0 ? byTime : Long.compare(sequence, other.sequence);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof TimeKey)) {
+                return false;
+            }
+            TimeKey other = (TimeKey) o;
+            return sequence == other.sequence && timestamp.equals(other.timestamp);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * timestamp.hashCode() + Long.hashCode(sequence);
         }
-        return result;
     }
 }
@@ -5,4 +5,9 @@ public class InsufficientFundsException extends RuntimeException {
     public InsufficientFundsException(String message) {
         super(message);
     }
+
+    // writableStackTrace = false - дешевое исключение без стека для частых отказов
+    public InsufficientFundsException(String message, boolean writableStackTrace) {
+        super(message, null, false, writableStackTrace);
+    }
 }
@@ -0,0 +1,47 @@
+package org.example;
+
+import java.util.concurrent.TimeUnit;
+
+// Итоги массового начисления процентов
+public final class InterestAccrualReport {
+    private final long accountsProcessed; // Сколько счетов прошло фильтр
+    private final long accountsAccrued; // Скольким счетам начислена ненулевая сумма
+    private final long totalInterest; // Всего начислено, в копейках
+    private final long elapsedNanos;
+
+    public InterestAccrualReport(long accountsProcessed, long accountsAccrued,
+                                 long totalInterest, long elapsedNanos) {
+        this.accountsProcessed = accountsProcessed;
+        this.accountsAccrued = accountsAccrued;
+        this.totalInterest = totalInterest;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    public long getAccountsProcessed() {
+        return accountsProcessed;
+    }
+
+    public long getAccountsAccrued() {
+        return accountsAccrued;
+    }
+
+    public Money getTotalInterest() {
+        return Money.ofMinor(totalInterest);
+    }
+
+    public long getElapsed(TimeUnit unit) {
+        return unit.convert(elapsedNanos, TimeUnit.NANOSECONDS);
+    }
+
+    // Пропускная способность, счетов в секунду
+    public double getThroughput() {
+        return elapsedNanos == 0 ? 0 : accountsProcessed * 1e9 / elapsedNanos;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("processed=%d, accrued=%d, interest=%s, elapsed=%d ms, throughput=%.0f accounts/s",
+                accountsProcessed, accountsAccrued, getTotalInterest(),
+                getElapsed(TimeUnit.MILLISECONDS), getThroughput());
+    }
+}
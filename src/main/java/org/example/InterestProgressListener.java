@@ -0,0 +1,10 @@
+package org.example;
+
+// Уведомления о ходе массового начисления процентов.
+// Вызывается из рабочих потоков пула, реализация должна быть потокобезопасной.
+@FunctionalInterface
+public interface InterestProgressListener {
+    InterestProgressListener NONE = (processed, total) -> { };
+
+    void onProgress(long processed, long total);
+}
@@ -0,0 +1,111 @@
+package org.example;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.io.Closeable;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+
+// Публикация HistogramServiceMetrics в JMX: по одному MXBean на каждый метод сервиса
+// (org.example:type=BankAccountService,name=<имя>,operation=<метод>)
+public class JmxMetricsExporter implements Closeable {
+    private final MBeanServer server;
+    private final List<ObjectName> names = new ArrayList<>();
+
+    public JmxMetricsExporter(HistogramServiceMetrics metrics, String serviceName) {
+        this(metrics, serviceName, ManagementFactory.getPlatformMBeanServer());
+    }
+
+    public JmxMetricsExporter(HistogramServiceMetrics metrics, String serviceName, MBeanServer server) {
+        this.server = server;
+        try {
+            for (ServiceOperation operation : ServiceOperation.values()) {
+                ObjectName name = new ObjectName("org.example:type=BankAccountService,name="
+                        + ObjectName.quote(serviceName) + ",operation=" + operation);
+                server.registerMBean(new OperationMetrics(metrics, operation), name);
+                names.add(name);
+            }
+        } catch (JMException e) {
+            close();
+            throw new IllegalStateException("Cannot register metrics MBeans for " + serviceName, e);
+        }
+    }
+
+    @Override
+    public void close() {
+        for (ObjectName name : names) {
+            try {
+                server.unregisterMBean(name);
+            } catch (JMException ignored) {
+                // MBean уже снят с регистрации
+            }
+        }
+        names.clear();
+    }
+
+    static final class OperationMetrics implements OperationMetricsMXBean {
+        private final HistogramServiceMetrics metrics;
+        private final ServiceOperation operation;
+
+        OperationMetrics(HistogramServiceMetrics metrics, ServiceOperation operation) {
+            this.metrics = metrics;
+            this.operation = operation;
+        }
+
+        @Override
+        public long getSuccessCount() {
+            return metrics.getCount(operation, OperationResult.SUCCESS);
+        }
+
+        @Override
+        public long getInsufficientFundsCount() {
+            return metrics.getCount(operation, OperationResult.INSUFFICIENT_FUNDS);
+        }
+
+        @Override
+        public long getFrozenCount() {
+            return metrics.getCount(operation, OperationResult.ACCOUNT_FROZEN);
+        }
+
+        @Override
+        public long getNotFoundCount() {
+            return metrics.getCount(operation, OperationResult.ACCOUNT_NOT_FOUND);
+        }
+
+        @Override
+        public long getInvalidCount() {
+            return metrics.getCount(operation, OperationResult.INVALID_OPERATION);
+        }
+
+        @Override
+        public long getRolledBackCount() {
+            return metrics.getCount(operation, OperationResult.ROLLED_BACK);
+        }
+
+        @Override
+        public double getP50Micros() {
+            return percentileMicros(50);
+        }
+
+        @Override
+        public double getP99Micros() {
+            return percentileMicros(99);
+        }
+
+        @Override
+        public double getP999Micros() {
+            return percentileMicros(99.9);
+        }
+
+        @Override
+        public double getMaxMicros() {
+            return metrics.getLatency(operation).getMax() / 1000.0;
+        }
+
+        private double percentileMicros(double percentile) {
+            return metrics.getLatency(operation).getValueAtPercentile(percentile) / 1000.0;
+        }
+    }
+}
@@ -0,0 +1,12 @@
+package org.example;
+
+// Уровень надежности записи в журнал
+public enum JournalDurability {
+    // Запись подтверждается после сброса на диск; одновременные писатели делят один fsync
+    PER_WRITE,
+    // То же, но сбрасывающий поток выжидает интервал, чтобы собрать больше писателей в одну группу
+    PER_BATCH,
+    // Запись подтверждается сразу, фоновый поток сбрасывает журнал с заданным интервалом;
+    // при сбое теряется не больше одного интервала
+    TIME_BOUNDED
+}
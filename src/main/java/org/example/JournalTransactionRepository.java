@@ -0,0 +1,99 @@
+package org.example;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+// Долговременное хранилище транзакций: каждая транзакция добавляется в MappedJournal
+// записью фиксированного размера, а для чтения поддерживается индекс в памяти,
+// который восстанавливается из журнала при открытии.
+public class JournalTransactionRepository implements TransactionRepository, Closeable {
+    public static final int DEFAULT_SEGMENT_SIZE = 64 * 1024 * 1024;
+    private static final String JOURNAL_NAME = "transactions";
+
+    // Записи журнала - двоичные записи TransactionCodec фиксированного размера
+    static final int RECORD_SIZE = TransactionCodec.RECORD_SIZE;
+    static final int MAX_ID_BYTES = TransactionCodec.MAX_ID_BYTES;
+
+    private final MappedJournal journal;
+    private final InMemoryTransactionRepository index = new InMemoryTransactionRepository();
+
+    public JournalTransactionRepository(Path directory) throws IOException {
+        this(directory, DEFAULT_SEGMENT_SIZE, JournalDurability.PER_WRITE, 0, TimeUnit.MILLISECONDS);
+    }
+
+    public JournalTransactionRepository(Path directory, int segmentSize, JournalDurability durability,
+                                        long flushInterval, TimeUnit unit) throws IOException {
+        this.journal = new MappedJournal(directory, JOURNAL_NAME, segmentSize, durability, flushInterval, unit);
+        journal.replay(0, (sequence, payload) -> index.save(TransactionCodec.decode(payload, 0)));
+    }
+
+    @Override
+    public void save(Transaction transaction) {
+        TransactionCodec.checkEncodable(transaction);
+        journal.append(RECORD_SIZE, buffer -> TransactionCodec.encode(transaction, buffer));
+        index.save(transaction);
+    }
+
+    @Override
+    public void saveAll(Collection<Transaction> transactions) {
+        // Пакет проверяется целиком до первой записи: иначе часть пакета попала бы в журнал без индекса
+        for (Transaction transaction : transactions) {
+            TransactionCodec.checkEncodable(transaction);
+        }
+        long last = 0;
+        for (Transaction transaction : transactions) {
+            last = journal.write(RECORD_SIZE, buffer -> TransactionCodec.encode(transaction, buffer));
+        }
+        // Один сброс на диск на весь пакет
+        journal.awaitDurable(last);
+        for (Transaction transaction : transactions) {
+            index.save(transaction);
+        }
+    }
+
+    @Override
+    public List<Transaction> findByAccountId(String accountId) {
+        return index.findByAccountId(accountId);
+    }
+
+    @Override
+    public Page<Transaction> findByAccountId(String accountId, String cursor, int limit) {
+        return index.findByAccountId(accountId, cursor, limit);
+    }
+
+    @Override
+    public Stream<Transaction> streamByAccountId(String accountId) {
+        return index.streamByAccountId(accountId);
+    }
+
+    @Override
+    public Stream<Transaction> streamAll() {
+        return index.streamAll();
+    }
+
+    @Override
+    public List<Transaction> findByAccountIdAndTimeRange(String accountId, LocalDateTime from, LocalDateTime to) {
+        return index.findByAccountIdAndTimeRange(accountId, from, to);
+    }
+
+    @Override
+    public List<Transaction> findByTimeRange(LocalDateTime from, LocalDateTime to) {
+        return index.findByTimeRange(from, to);
+    }
+
+    // Сбросить на диск все записанные транзакции
+    public void flush() {
+        journal.flush();
+    }
+
+    @Override
+    public void close() {
+        journal.close();
+    }
+}
@@ -0,0 +1,117 @@
+package org.example;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+// Сверка балансов с историей проводок. Счета делятся на диапазоны по CHUNK_SIZE, диапазоны
+// обрабатываются параллельно в ForkJoinPool; история каждого счета сворачивается в сумму
+// хранилищем (TransactionRepository.sumBalanceEffects), поэтому проводки не собираются в
+// общую коллекцию и не сортируются, а память сверки не зависит от объема истории.
+// Сверка рассчитана на пакетное окно: изменения, идущие параллельно со сверкой, могут дать
+// временные расхождения (баланс уже изменен, проводка еще не записана). Зачисления горячих
+// счетов нужно перенести в баланс до сверки (BankAccountServiceImpl.foldHotAccounts).
+public class LedgerReconciler {
+    private static final Logger logger = LoggerFactory.getLogger(LedgerReconciler.class);
+    public static final int DEFAULT_MAX_REPORTED_MISMATCHES = 1000;
+    // Число счетов, которое сверяет одна задача
+    private static final int CHUNK_SIZE = 1024;
+
+    private final AccountRepository accountRepository;
+    private final TransactionRepository transactionRepository;
+    private final int maxReportedMismatches;
+
+    public LedgerReconciler(AccountRepository accountRepository, TransactionRepository transactionRepository) {
+        this(accountRepository, transactionRepository, DEFAULT_MAX_REPORTED_MISMATCHES);
+    }
+
+    public LedgerReconciler(AccountRepository accountRepository, TransactionRepository transactionRepository,
+                            int maxReportedMismatches) {
+        if (maxReportedMismatches < 0) {
+            throw new IllegalArgumentException("Mismatch limit cannot be negative, got: " + maxReportedMismatches);
+        }
+        this.accountRepository = accountRepository;
+        this.transactionRepository = transactionRepository;
+        this.maxReportedMismatches = maxReportedMismatches;
+    }
+
+    public ReconciliationReport reconcile() {
+        long start = System.nanoTime();
+        List<BankAccount> accounts = accountRepository.findAll();
+        ReconciliationTotals totals = new ReconciliationTotals();
+        ForkJoinPool.commonPool().invoke(new ReconciliationTask(accounts, 0, accounts.size(), totals));
+
+        ReconciliationReport report = new ReconciliationReport(accounts.size(), totals.mismatchCount.sum(),
+                new ArrayList<>(totals.mismatches), totals.ledgerTotal.sum(), totals.balanceTotal.sum(),
+                System.nanoTime() - start);
+        if (report.isBalanced()) {
+            logger.debug("Ledger reconciled: {}", report);
+        } else {
+            logger.warn("Ledger reconciliation found mismatches: {}", report);
+        }
+        return report;
+    }
+
+    // Общие счетчики всех задач одной сверки
+    private static final class ReconciliationTotals {
+        private final LongAdder ledgerTotal = new LongAdder();
+        private final LongAdder balanceTotal = new LongAdder();
+        private final LongAdder mismatchCount = new LongAdder();
+        private final AtomicInteger reported = new AtomicInteger();
+        private final ConcurrentLinkedQueue<ReconciliationReport.Mismatch> mismatches =
+                new ConcurrentLinkedQueue<>();
+    }
+
+    // Сверка диапазона счетов; делится пополам до CHUNK_SIZE
+    private final class ReconciliationTask extends RecursiveAction {
+        private final List<BankAccount> accounts;
+        private final int from;
+        private final int to;
+        private final ReconciliationTotals totals;
+
+        ReconciliationTask(List<BankAccount> accounts, int from, int to, ReconciliationTotals totals) {
+            this.accounts = accounts;
+            this.from = from;
+            this.to = to;
+            this.totals = totals;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > CHUNK_SIZE) {
+                int middle = (from + to) >>> 1;
+                invokeAll(new ReconciliationTask(accounts, from, middle, totals),
+                        new ReconciliationTask(accounts, middle, to, totals));
+                return;
+            }
+
+            long ledgerSum = 0;
+            long balanceSum = 0;
+            long mismatched = 0;
+            for (int i = from; i < to; i++) {
+                BankAccount account = accounts.get(i);
+                long ledger = transactionRepository.sumBalanceEffects(account.getAccountId());
+                long balance = account.getBalanceMinorUnits();
+                ledgerSum += ledger;
+                balanceSum += balance;
+                if (ledger != balance) {
+                    mismatched++;
+                    if (totals.reported.getAndIncrement() < maxReportedMismatches) {
+                        totals.mismatches.add(new ReconciliationReport.Mismatch(account.getAccountId(),
+                                ledger, balance));
+                    }
+                }
+            }
+            totals.ledgerTotal.add(ledgerSum);
+            totals.balanceTotal.add(balanceSum);
+            totals.mismatchCount.add(mismatched);
+        }
+    }
+}
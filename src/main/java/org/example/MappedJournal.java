@@ -0,0 +1,374 @@
+package org.example;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+// Журнал только для добавления поверх отображенных в память файлов-сегментов.
+// Формат записи: длина (int), CRC32 данных (int), номер записи (long), данные.
+// Сегмент называется по номеру своей первой записи, при заполнении открывается следующий.
+public class MappedJournal implements Closeable {
+    private static final Logger logger = LoggerFactory.getLogger(MappedJournal.class);
+
+    static final int HEADER_SIZE = 16;
+    private static final int END_OF_SEGMENT = -1;
+    private static final String SEGMENT_SUFFIX = ".log";
+
+    // Запись данных в буфер: ровно length байт начиная с текущей позиции
+    public interface RecordWriter {
+        void write(ByteBuffer target);
+    }
+
+    // Обработчик записей при чтении журнала; буфер действителен только во время вызова
+    public interface RecordHandler {
+        void onRecord(long sequence, ByteBuffer payload);
+    }
+
+    private final Path directory;
+    private final String name;
+    private final int segmentSize;
+    private final JournalDurability durability;
+    private final long flushIntervalNanos;
+    private final ScheduledExecutorService flusher;
+
+    private final Object appendLock = new Object();
+    private final Object forceLock = new Object();
+    private final CRC32 crc = new CRC32();
+
+    // Поля ниже изменяются только под appendLock
+    private FileChannel channel;
+    private ByteBuffer writeView;
+    private int position;
+    private long nextSequence;
+    private boolean closed;
+
+    private volatile MappedByteBuffer segment;
+    private volatile long writtenSequence;
+    private volatile long forcedSequence;
+
+    public MappedJournal(Path directory, String name, int segmentSize,
+                         JournalDurability durability, long flushInterval, TimeUnit unit) throws IOException {
+        if (segmentSize <= HEADER_SIZE) {
+            throw new IllegalArgumentException("Segment size is too small: " + segmentSize);
+        }
+        // Все аргументы проверяются до recover(): после него открыт канал сегмента
+        if (durability == JournalDurability.TIME_BOUNDED && unit.toNanos(flushInterval) <= 0) {
+            throw new IllegalArgumentException("Flush interval must be positive for TIME_BOUNDED durability");
+        }
+        this.directory = directory;
+        this.name = name;
+        this.segmentSize = segmentSize;
+        this.durability = durability;
+        this.flushIntervalNanos = unit.toNanos(flushInterval);
+
+        Files.createDirectories(directory);
+        recover();
+
+        if (durability == JournalDurability.TIME_BOUNDED) {
+            flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "journal-flusher-" + name);
+                thread.setDaemon(true);
+                return thread;
+            });
+            flusher.scheduleWithFixedDelay(this::flushQuietly, flushIntervalNanos, flushIntervalNanos,
+                    TimeUnit.NANOSECONDS);
+        } else {
+            flusher = null;
+        }
+    }
+
+    // Восстановление после перезапуска: позиция записи - конец последней целой записи
+    private void recover() throws IOException {
+        List<SegmentFile> segments = listSegments();
+        if (segments.isEmpty()) {
+            openSegment(1);
+            nextSequence = 1;
+        } else {
+            SegmentFile last = segments.get(segments.size() - 1);
+            openSegment(last.firstSequence);
+            ScanResult result = scan(segment, last.firstSequence, Long.MAX_VALUE, Long.MAX_VALUE, null);
+            position = result.position;
+            nextSequence = result.nextSequence;
+        }
+        writtenSequence = nextSequence - 1;
+        forcedSequence = writtenSequence;
+        logger.debug("Journal {} opened at sequence {}", name, writtenSequence);
+    }
+
+    private void openSegment(long firstSequence) throws IOException {
+        Path file = directory.resolve(segmentFileName(firstSequence));
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        long size = Math.max(channel.size(), segmentSize);
+        MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        writeView = mapped.duplicate();
+        position = 0;
+        segment = mapped;
+    }
+
+    private String segmentFileName(long firstSequence) {
+        return String.format("%s-%020d%s", name, firstSequence, SEGMENT_SUFFIX);
+    }
+
+    // Добавление записи с ожиданием, которого требует уровень надежности
+    public long append(int length, RecordWriter writer) {
+        long sequence = write(length, writer);
+        awaitDurable(sequence);
+        return sequence;
+    }
+
+    // Добавление записи без ожидания сброса на диск (для пакетов: потом один awaitDurable)
+    public long write(int length, RecordWriter writer) {
+        if (length <= 0 || length > segmentSize - HEADER_SIZE) {
+            throw new IllegalArgumentException("Invalid record length: " + length);
+        }
+        synchronized (appendLock) {
+            if (closed) {
+                throw new IllegalStateException("Journal " + name + " is closed");
+            }
+            if (position + HEADER_SIZE + length > segment.capacity()) {
+                rollSegment();
+            }
+            int start = position + HEADER_SIZE;
+            ByteBuffer view = writeView;
+            view.clear();
+            view.position(start).limit(start + length);
+            writer.write(view);
+            if (view.position() != start + length) {
+                throw new IllegalStateException("Record writer produced " + (view.position() - start)
+                        + " bytes, expected " + length);
+            }
+            view.position(start);
+            crc.reset();
+            crc.update(view);
+
+            long sequence = nextSequence++;
+            MappedByteBuffer current = segment;
+            current.putLong(position + 8, sequence);
+            current.putInt(position + 4, (int) crc.getValue());
+            // Длина пишется последней: до этого момента запись не считается существующей
+            current.putInt(position, length);
+            position = start + length;
+            writtenSequence = sequence;
+            return sequence;
+        }
+    }
+
+    private void rollSegment() {
+        MappedByteBuffer old = segment;
+        if (position + Integer.BYTES <= old.capacity()) {
+            old.putInt(position, END_OF_SEGMENT);
+        }
+        // Закрываемый сегмент сбрасывается целиком, дальше сбрасывается только текущий
+        old.force();
+        try {
+            channel.close();
+            openSegment(nextSequence);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot open next segment of journal " + name, e);
+        }
+    }
+
+    // Ожидание сброса записи на диск (групповая фиксация)
+    public void awaitDurable(long sequence) {
+        if (durability == JournalDurability.TIME_BOUNDED || forcedSequence >= sequence) {
+            return;
+        }
+        synchronized (forceLock) {
+            // Пока ждали монитор, другой поток мог сбросить и нашу запись
+            if (forcedSequence >= sequence) {
+                return;
+            }
+            if (durability == JournalDurability.PER_BATCH && flushIntervalNanos > 0) {
+                LockSupport.parkNanos(flushIntervalNanos);
+            }
+            forceWritten();
+        }
+    }
+
+    // Сбросить на диск все записанное
+    public void flush() {
+        synchronized (forceLock) {
+            forceWritten();
+        }
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            logger.warn("Background flush of journal {} failed", name, e);
+        }
+    }
+
+    private void forceWritten() {
+        long target = writtenSequence;
+        if (target <= forcedSequence) {
+            return;
+        }
+        // Сегмент читается после номера: записи до target лежат в нем или в уже сброшенных сегментах
+        segment.force();
+        forcedSequence = target;
+    }
+
+    public long getLastSequence() {
+        return writtenSequence;
+    }
+
+    public long getDurableSequence() {
+        return forcedSequence;
+    }
+
+    // Чтение всех записей с номером больше afterSequence
+    public void replay(long afterSequence, RecordHandler handler) {
+        long upTo = writtenSequence;
+        List<SegmentFile> segments = listSegments();
+        for (int i = 0; i < segments.size(); i++) {
+            SegmentFile current = segments.get(i);
+            if (i + 1 < segments.size() && segments.get(i + 1).firstSequence <= afterSequence + 1) {
+                continue; // все записи сегмента уже учтены
+            }
+            try (FileChannel readChannel = FileChannel.open(current.path, StandardOpenOption.READ)) {
+                ByteBuffer buffer = readChannel.map(FileChannel.MapMode.READ_ONLY, 0, readChannel.size());
+                scan(buffer, current.firstSequence, afterSequence, upTo, handler);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Cannot read journal segment " + current.path, e);
+            }
+        }
+    }
+
+    // Удаление сегментов, все записи которых не новее sequence (например, после снимка)
+    public int deleteSegmentsUpTo(long sequence) {
+        synchronized (appendLock) {
+            List<SegmentFile> segments = listSegments();
+            int deleted = 0;
+            for (int i = 0; i + 1 < segments.size(); i++) {
+                if (segments.get(i + 1).firstSequence - 1 > sequence) {
+                    break;
+                }
+                try {
+                    Files.deleteIfExists(segments.get(i).path);
+                    deleted++;
+                } catch (IOException e) {
+                    throw new UncheckedIOException("Cannot delete journal segment " + segments.get(i).path, e);
+                }
+            }
+            return deleted;
+        }
+    }
+
+    private static ScanResult scan(ByteBuffer buffer, long firstSequence, long afterSequence, long upTo,
+                                   RecordHandler handler) {
+        CRC32 checksum = new CRC32();
+        ByteBuffer payload = buffer.duplicate();
+        int limit = buffer.capacity();
+        int pos = 0;
+        long expected = firstSequence;
+        while (pos + HEADER_SIZE <= limit && expected <= upTo) {
+            int length = buffer.getInt(pos);
+            if (length <= 0 || length > limit - pos - HEADER_SIZE) {
+                break; // конец данных, метка конца сегмента или оборванная запись
+            }
+            int storedCrc = buffer.getInt(pos + 4);
+            long sequence = buffer.getLong(pos + 8);
+            if (sequence != expected) {
+                break;
+            }
+            int start = pos + HEADER_SIZE;
+            payload.clear();
+            payload.position(start).limit(start + length);
+            checksum.reset();
+            checksum.update(payload);
+            if ((int) checksum.getValue() != storedCrc) {
+                break;
+            }
+            if (handler != null && sequence > afterSequence) {
+                payload.position(start);
+                handler.onRecord(sequence, payload.slice());
+            }
+            pos = start + length;
+            expected++;
+        }
+        return new ScanResult(pos, expected);
+    }
+
+    private List<SegmentFile> listSegments() {
+        String prefix = name + "-";
+        try (Stream<Path> files = Files.list(directory)) {
+            return files
+                    .filter(path -> {
+                        String fileName = path.getFileName().toString();
+                        return fileName.startsWith(prefix) && fileName.endsWith(SEGMENT_SUFFIX);
+                    })
+                    .map(path -> {
+                        String fileName = path.getFileName().toString();
+                        String number = fileName.substring(prefix.length(), fileName.length() - SEGMENT_SUFFIX.length());
+                        return new SegmentFile(path, Long.parseLong(number));
+                    })
+                    .sorted(Comparator.comparingLong(segmentFile -> segmentFile.firstSequence))
+                    .collect(Collectors.toCollection(ArrayList::new));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot list journal directory " + directory, e);
+        }
+    }
+
+    @Override
+    public void close() {
+        synchronized (appendLock) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+        }
+        if (flusher != null) {
+            flusher.shutdownNow();
+        }
+        flush();
+        synchronized (appendLock) {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                throw new UncheckedIOException("Cannot close journal " + name, e);
+            }
+        }
+    }
+
+    private static final class SegmentFile {
+        private final Path path;
+        private final long firstSequence;
+
+        SegmentFile(Path path, long firstSequence) {
+            this.path = path;
+            this.firstSequence = firstSequence;
+        }
+    }
+
+    private static final class ScanResult {
+        private final int position;
+        private final long nextSequence;
+
+        ScanResult(int position, long nextSequence) {
+            this.position = position;
+            this.nextSequence = nextSequence;
+        }
+    }
+}
@@ -0,0 +1,206 @@
+package org.example;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+// Денежная сумма в виде целого числа минимальных единиц (копеек) с фиксированным масштабом.
+// Вся арифметика точная и проверяет переполнение; статические методы работают
+// с примитивами long и используются сервисом без создания объектов.
+public final class Money implements Comparable<Money> {
+    // Масштаб, в котором хранятся балансы счетов и суммы транзакций
+    public static final int SCALE = 2;
+
+    private static final long[] POWERS_OF_TEN = {
+            1L, 10L, 100L, 1_000L, 10_000L, 100_000L, 1_000_000L, 10_000_000L,
+            100_000_000L, 1_000_000_000L, 10_000_000_000L, 100_000_000_000L,
+            1_000_000_000_000L, 10_000_000_000_000L, 100_000_000_000_000L,
+            1_000_000_000_000_000L, 10_000_000_000_000_000L, 100_000_000_000_000_000L,
+            1_000_000_000_000_000_000L
+    };
+    private static final long UNITS_PER_MAJOR = POWERS_OF_TEN[SCALE];
+    // Процентная ставка переводится в целые миллионные доли процента
+    private static final long RATE_MICROS_PER_PERCENT = 1_000_000L;
+    private static final long RATE_DIVISOR = 100L * RATE_MICROS_PER_PERCENT;
+
+    public static final Money ZERO = new Money(0, SCALE);
+
+    private final long minorUnits;
+    private final int scale;
+
+    private Money(long minorUnits, int scale) {
+        this.minorUnits = minorUnits;
+        this.scale = scale;
+    }
+
+    public static Money ofMinor(long minorUnits) {
+        return new Money(minorUnits, SCALE);
+    }
+
+    public static Money ofMinor(long minorUnits, int scale) {
+        checkScale(scale);
+        return new Money(minorUnits, scale);
+    }
+
+    // Сумма из числа с плавающей точкой, округленная до копеек
+    public static Money of(double amount) {
+        return new Money(toMinorUnits(amount), SCALE);
+    }
+
+    public static Money of(BigDecimal amount) {
+        int scale = Math.max(amount.scale(), 0);
+        checkScale(scale);
+        return new Money(amount.setScale(scale, RoundingMode.UNNECESSARY).unscaledValue().longValueExact(), scale);
+    }
+
+    public static Money parse(String amount) {
+        return of(new BigDecimal(amount));
+    }
+
+    public long getMinorUnits() {
+        return minorUnits;
+    }
+
+    public int getScale() {
+        return scale;
+    }
+
+    // Сумма в минимальных единицах заданного масштаба; потеря точности недопустима
+    public long toMinorUnits(int targetScale) {
+        checkScale(targetScale);
+        if (targetScale == scale) {
+            return minorUnits;
+        }
+        if (targetScale > scale) {
+            return Math.multiplyExact(minorUnits, POWERS_OF_TEN[targetScale - scale]);
+        }
+        long divisor = POWERS_OF_TEN[scale - targetScale];
+        if (minorUnits % divisor != 0) {
+            throw new ArithmeticException("Amount " + this + " cannot be represented with scale " + targetScale);
+        }
+        return minorUnits / divisor;
+    }
+
+    // Можно ли выразить сумму в заданном масштабе без потери точности и переполнения
+    public boolean isRepresentableAt(int targetScale) {
+        checkScale(targetScale);
+        if (targetScale >= scale) {
+            long factor = POWERS_OF_TEN[targetScale - scale];
+            return minorUnits <= Long.MAX_VALUE / factor && minorUnits >= Long.MIN_VALUE / factor;
+        }
+        return minorUnits % POWERS_OF_TEN[scale - targetScale] == 0;
+    }
+
+    public Money plus(Money other) {
+        requireSameScale(other);
+        return new Money(Math.addExact(minorUnits, other.minorUnits), scale);
+    }
+
+    public Money minus(Money other) {
+        requireSameScale(other);
+        return new Money(Math.subtractExact(minorUnits, other.minorUnits), scale);
+    }
+
+    public boolean isPositive() {
+        return minorUnits > 0;
+    }
+
+    public boolean isNegative() {
+        return minorUnits < 0;
+    }
+
+    public double toDouble() {
+        return toDouble(minorUnits, scale);
+    }
+
+    public BigDecimal toBigDecimal() {
+        return BigDecimal.valueOf(minorUnits, scale);
+    }
+
+    // Перевод double в копейки с округлением до ближайшего; NaN и переполнение запрещены
+    public static long toMinorUnits(double amount) {
+        double scaled = amount * UNITS_PER_MAJOR;
+        if (Double.isNaN(scaled) || scaled >= 0x1p63 || scaled < -0x1p63) {
+            throw new ArithmeticException("Amount out of range: " + amount);
+        }
+        return Math.round(scaled);
+    }
+
+    public static double toDouble(long minorUnits) {
+        return toDouble(minorUnits, SCALE);
+    }
+
+    // Проценты от суммы в копейках с банковским округлением (half-even)
+    public static long percentOf(long minorUnits, double ratePercent) {
+        double scaledRate = ratePercent * RATE_MICROS_PER_PERCENT;
+        if (Double.isNaN(scaledRate) || Math.abs(scaledRate) >= 0x1p62) {
+            throw new ArithmeticException("Rate out of range: " + ratePercent);
+        }
+        long rateMicros = Math.round(scaledRate);
+        long product;
+        try {
+            product = Math.multiplyExact(minorUnits, rateMicros);
+        } catch (ArithmeticException overflow) {
+            // Редкий случай очень больших сумм: считаем без ограничения разрядности
+            return BigDecimal.valueOf(minorUnits)
+                    .multiply(BigDecimal.valueOf(rateMicros))
+                    .divide(BigDecimal.valueOf(RATE_DIVISOR), 0, RoundingMode.HALF_EVEN)
+                    .longValueExact();
+        }
+        return divideHalfEven(product, RATE_DIVISOR);
+    }
+
+    static long divideHalfEven(long dividend, long divisor) {
+        long quotient = dividend / divisor;
+        long remainder = dividend % divisor;
+        if (remainder == 0) {
+            return quotient;
+        }
+        long twiceRemainder = Math.abs(remainder) * 2;
+        if (twiceRemainder > divisor || (twiceRemainder == divisor && (quotient & 1) != 0)) {
+            quotient += dividend < 0 ? -1 : 1;
+        }
+        return quotient;
+    }
+
+    private static double toDouble(long minorUnits, int scale) {
+        return minorUnits / (double) POWERS_OF_TEN[scale];
+    }
+
+    private static void checkScale(int scale) {
+        if (scale < 0 || scale >= POWERS_OF_TEN.length) {
+            throw new IllegalArgumentException("Unsupported scale: " + scale);
+        }
+    }
+
+    private void requireSameScale(Money other) {
+        if (other.scale != scale) {
+            throw new IllegalArgumentException("Scale mismatch: " + scale + " and " + other.scale);
+        }
+    }
+
+    @Override
+    public int compareTo(Money other) {
+        if (other.scale == scale) {
+            return Long.compare(minorUnits, other.minorUnits);
+        }
+        return toBigDecimal().compareTo(other.toBigDecimal());
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof Money)) return false;
+        Money money = (Money) o;
+        return minorUnits == money.minorUnits && scale == money.scale;
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * Long.hashCode(minorUnits) + scale;
+    }
+
+    @Override
+    public String toString() {
+        return toBigDecimal().toPlainString();
+    }
+}
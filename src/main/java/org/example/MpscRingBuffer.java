@@ -0,0 +1,81 @@
+package org.example;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+// Ограниченная очередь без блокировок: много писателей, один читатель.
+// Каждая ячейка хранит порядковый номер: писатель занимает позицию CAS-ом хвоста
+// и публикует элемент, увеличивая номер ячейки; читатель забирает элемент, только
+// если номер ячейки показывает завершенную запись, и освобождает ячейку для следующего круга.
+final class MpscRingBuffer<E> {
+    private final int mask;
+    private final AtomicReferenceArray<E> elements;
+    private final AtomicLongArray sequences;
+    private final AtomicLong tail = new AtomicLong();
+    // Изменяется только читателем; volatile - для size() из других потоков
+    private volatile long head;
+
+    MpscRingBuffer(int capacity) {
+        if (capacity <= 0 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("Capacity must be a positive power of two, got: " + capacity);
+        }
+        this.mask = capacity - 1;
+        this.elements = new AtomicReferenceArray<>(capacity);
+        this.sequences = new AtomicLongArray(capacity);
+        for (int i = 0; i < capacity; i++) {
+            sequences.set(i, i);
+        }
+    }
+
+    // false, если очередь заполнена
+    boolean offer(E element) {
+        while (true) {
+            long position = tail.get();
+            int index = (int) (position & mask);
+            long difference = sequences.get(index) - position;
+            if (difference == 0) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    elements.lazySet(index, element);
+                    sequences.lazySet(index, position + 1);
+                    return true;
+                }
+            } else if (difference < 0) {
+                return false;
+            }
+            // Иначе позицию занял другой писатель - повторяем с новым хвостом
+        }
+    }
+
+    // Вызывается только потоком-читателем; null, если готовых элементов нет
+    E poll() {
+        long position = head;
+        int index = (int) (position & mask);
+        if (sequences.get(index) != position + 1) {
+            return null;
+        }
+        E element = elements.get(index);
+        elements.lazySet(index, null);
+        sequences.lazySet(index, position + mask + 1);
+        head = position + 1;
+        return element;
+    }
+
+    // Число позиций, занятых писателями с момента создания (включая еще не опубликованные)
+    long claimed() {
+        return tail.get();
+    }
+
+    // Число элементов, забранных читателем с момента создания
+    long consumed() {
+        return head;
+    }
+
+    int size() {
+        return (int) Math.max(0, tail.get() - head);
+    }
+
+    int capacity() {
+        return mask + 1;
+    }
+}
@@ -0,0 +1,428 @@
+package org.example;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+
+// Хранилище транзакций вне кучи в колоночном формате.
+// Записи лежат в блоках прямой памяти по CHUNK_RECORDS штук; внутри блока каждое поле
+// хранится отдельной колонкой: время (наносекунды эпохи, UTC), сумма, идентификатор
+// (UUID как два long), ссылка на предыдущую запись того же счета, номер счета и тип.
+// Номера счетов интернируются, на куче остаются только заголовки счетов и нестандартные идентификаторы.
+// Объекты Transaction создаются при обращении к элементам результата и являются копиями:
+// их изменение не влияет на хранилище.
+// Запись сериализуется на мониторе хранилища, чтение работает без блокировок.
+// Выборка по интервалу времени использует двоичный поиск, пока записи поступают в порядке
+// времени. После нарушения порядка (например, параллельные вызовы now()) она пропускает блоки,
+// чьи границы времени не пересекают интервал, поэтому небольшие перестановки не приводят
+// к полному обходу.
+public class OffHeapTransactionRepository implements TransactionRepository {
+    static final int CHUNK_SHIFT = 16;
+    static final int CHUNK_RECORDS = 1 << CHUNK_SHIFT;
+    private static final int CHUNK_MASK = CHUNK_RECORDS - 1;
+
+    // Смещения колонок внутри блока
+    private static final int TIME_COLUMN = 0;
+    private static final int AMOUNT_COLUMN = TIME_COLUMN + Long.BYTES * CHUNK_RECORDS;
+    private static final int ID_HIGH_COLUMN = AMOUNT_COLUMN + Long.BYTES * CHUNK_RECORDS;
+    private static final int ID_LOW_COLUMN = ID_HIGH_COLUMN + Long.BYTES * CHUNK_RECORDS;
+    private static final int PREVIOUS_COLUMN = ID_LOW_COLUMN + Long.BYTES * CHUNK_RECORDS;
+    private static final int ACCOUNT_COLUMN = PREVIOUS_COLUMN + Long.BYTES * CHUNK_RECORDS;
+    private static final int TYPE_COLUMN = ACCOUNT_COLUMN + Integer.BYTES * CHUNK_RECORDS;
+    private static final int CHUNK_BYTES = TYPE_COLUMN + CHUNK_RECORDS;
+
+    // Старшие биты байта типа: идентификатор хранится на куче или отсутствует
+    private static final int HEAP_ID_FLAG = 0x40;
+    private static final int NULL_ID_FLAG = 0x20;
+    private static final int TYPE_MASK = 0x1F;
+    private static final long NO_TIMESTAMP = Long.MIN_VALUE;
+    private static final long NO_RECORD = -1;
+    private static final Transaction.TransactionType[] TYPES = Transaction.TransactionType.values();
+    private static final int WITHDRAWAL_TYPE = Transaction.TransactionType.WITHDRAWAL.ordinal();
+
+    private final ConcurrentMap<String, AccountHead> accounts = new ConcurrentHashMap<>();
+    // Идентификаторы, которые нельзя упаковать в UUID, по номеру записи
+    private final ConcurrentMap<Long, String> heapIds = new ConcurrentHashMap<>();
+
+    private volatile ByteBuffer[] chunks = new ByteBuffer[0];
+    private volatile String[] accountIds = new String[16];
+    private volatile long size;
+    // Пока записи поступают в порядке времени, выборка по интервалу использует двоичный поиск
+    private volatile boolean timeOrdered = true;
+    private long lastTimestamp = Long.MIN_VALUE;
+    // Наименьшее время записей блока и наибольшее время записей с первого блока по данный
+    // включительно (не убывает). Записываются до публикации size
+    private volatile long[] chunkMinTimes = new long[0];
+    private volatile long[] prefixMaxTimes = new long[0];
+
+    @Override
+    public synchronized void save(Transaction transaction) {
+        if (transaction.getAccountId() == null || transaction.getType() == null) {
+            throw new IllegalArgumentException("Transaction account and type must not be null");
+        }
+        long timestamp = toEpochNanos(transaction.getTimestamp());
+        long record = size;
+        ByteBuffer chunk = chunkForWrite(record);
+        int slot = (int) (record & CHUNK_MASK);
+
+        AccountHead head = accounts.get(transaction.getAccountId());
+        if (head == null) {
+            head = intern(transaction.getAccountId());
+        }
+
+        int type = transaction.getType().ordinal();
+        String id = transaction.getId();
+        long high = 0;
+        long low = 0;
+        UUID uuid = id == null ? null : parseUuid(id);
+        if (id == null) {
+            type |= NULL_ID_FLAG;
+        } else if (uuid == null) {
+            type |= HEAP_ID_FLAG;
+            heapIds.put(record, id);
+        } else {
+            high = uuid.getMostSignificantBits();
+            low = uuid.getLeastSignificantBits();
+        }
+
+        chunk.putLong(TIME_COLUMN + slot * Long.BYTES, timestamp);
+        chunk.putLong(AMOUNT_COLUMN + slot * Long.BYTES, transaction.getAmountMinorUnits());
+        chunk.putLong(ID_HIGH_COLUMN + slot * Long.BYTES, high);
+        chunk.putLong(ID_LOW_COLUMN + slot * Long.BYTES, low);
+        chunk.putLong(PREVIOUS_COLUMN + slot * Long.BYTES, head.last);
+        chunk.putInt(ACCOUNT_COLUMN + slot * Integer.BYTES, head.index);
+        chunk.put(TYPE_COLUMN + slot, (byte) type);
+
+        if (timestamp != NO_TIMESTAMP) {
+            if (timestamp < lastTimestamp) {
+                timeOrdered = false;
+            }
+            lastTimestamp = timestamp;
+            int chunkIndex = (int) (record >>> CHUNK_SHIFT);
+            chunkMinTimes[chunkIndex] = Math.min(chunkMinTimes[chunkIndex], timestamp);
+            prefixMaxTimes[chunkIndex] = Math.max(prefixMaxTimes[chunkIndex], timestamp);
+        }
+        // Сначала публикуем общий размер, затем заголовок счета
+        size = record + 1;
+        head.count++;
+        head.last = record;
+    }
+
+    @Override
+    public List<Transaction> findByAccountId(String accountId) {
+        AccountHead head = accounts.get(accountId);
+        if (head == null) {
+            return new ArrayList<>();
+        }
+        // Номера записей счета собираются по обратным ссылкам и разворачиваются в порядок записи
+        long last = head.last;
+        int count = head.count;
+        long[] records = new long[count];
+        int filled = 0;
+        for (long record = last; record != NO_RECORD && filled < count; record = previous(record)) {
+            records[filled++] = record;
+        }
+        long[] ordered = new long[filled];
+        for (int i = 0; i < filled; i++) {
+            ordered[i] = records[filled - 1 - i];
+        }
+        return new RecordList(ordered);
+    }
+
+    @Override
+    public Stream<Transaction> streamByAccountId(String accountId) {
+        return findByAccountId(accountId).stream();
+    }
+
+    // Обход цепочки записей счета по колонкам суммы и типа, без создания объектов
+    @Override
+    public long sumBalanceEffects(String accountId) {
+        AccountHead head = accounts.get(accountId);
+        if (head == null) {
+            return 0;
+        }
+        long last = head.last;
+        int count = head.count;
+        long sum = 0;
+        int visited = 0;
+        for (long record = last; record != NO_RECORD && visited < count; record = previous(record)) {
+            ByteBuffer chunk = chunk(record);
+            int slot = (int) (record & CHUNK_MASK);
+            long amount = chunk.getLong(AMOUNT_COLUMN + slot * Long.BYTES);
+            if ((chunk.get(TYPE_COLUMN + slot) & TYPE_MASK) == WITHDRAWAL_TYPE) {
+                amount = -amount;
+            }
+            sum = Math.addExact(sum, amount);
+            visited++;
+        }
+        return sum;
+    }
+
+    @Override
+    public List<Transaction> findByAccountIdAndTimeRange(String accountId, LocalDateTime from, LocalDateTime to) {
+        TransactionRepository.checkTimeRange(from, to);
+        AccountHead head = accounts.get(accountId);
+        if (head == null) {
+            return new ArrayList<>();
+        }
+        long fromNanos = toEpochNanos(from);
+        long toNanos = toEpochNanos(to);
+        // Признак порядка и границы блоков читаются после заголовка, чтобы учесть все видимые записи
+        long last = head.last;
+        boolean ordered = timeOrdered;
+        long[] maxTimes = prefixMaxTimes;
+        long[] matches = new long[16];
+        int found = 0;
+        for (long record = last; record != NO_RECORD; record = previous(record)) {
+            if (maxTimes[(int) (record >>> CHUNK_SHIFT)] < fromNanos) {
+                // Все записи этого и предыдущих блоков раньше интервала
+                break;
+            }
+            long timestamp = timestamp(record);
+            if (timestamp != NO_TIMESTAMP && timestamp >= fromNanos && timestamp < toNanos) {
+                if (found == matches.length) {
+                    matches = Arrays.copyOf(matches, found << 1);
+                }
+                matches[found++] = record;
+            } else if (ordered && timestamp != NO_TIMESTAMP && timestamp < fromNanos) {
+                // Более ранние записи счета тоже раньше интервала
+                break;
+            }
+        }
+        return new RecordList(sortByTime(matches, found, ordered));
+    }
+
+    @Override
+    public List<Transaction> findByTimeRange(LocalDateTime from, LocalDateTime to) {
+        TransactionRepository.checkTimeRange(from, to);
+        long fromNanos = toEpochNanos(from);
+        long toNanos = toEpochNanos(to);
+        long count = size;
+        boolean ordered = timeOrdered;
+        long[] minTimes = chunkMinTimes;
+        long[] maxTimes = prefixMaxTimes;
+        long[] matches = new long[16];
+        int found = 0;
+        long start = ordered ? firstAtOrAfter(fromNanos, count) : 0;
+        scan:
+        for (int chunkIndex = (int) (start >>> CHUNK_SHIFT); (long) chunkIndex << CHUNK_SHIFT < count; chunkIndex++) {
+            if (maxTimes[chunkIndex] < fromNanos || minTimes[chunkIndex] >= toNanos) {
+                continue;
+            }
+            long end = Math.min(count, (long) (chunkIndex + 1) << CHUNK_SHIFT);
+            for (long record = Math.max(start, (long) chunkIndex << CHUNK_SHIFT); record < end; record++) {
+                long timestamp = timestamp(record);
+                if (timestamp == NO_TIMESTAMP || timestamp < fromNanos) {
+                    continue;
+                }
+                if (timestamp >= toNanos) {
+                    if (ordered) {
+                        break scan;
+                    }
+                    continue;
+                }
+                if (found == matches.length) {
+                    matches = Arrays.copyOf(matches, found << 1);
+                }
+                matches[found++] = record;
+            }
+        }
+        return new RecordList(sortByTime(matches, found, ordered));
+    }
+
+    // Записи в порядке сохранения
+    @Override
+    public Stream<Transaction> streamAll() {
+        return LongStream.range(0, size).mapToObj(this::materialize);
+    }
+
+    // Количество записей в хранилище
+    public long size() {
+        return size;
+    }
+
+    // Объем прямой памяти, занятой блоками
+    public long getOffHeapBytes() {
+        return (long) chunks.length * CHUNK_BYTES;
+    }
+
+    private AccountHead intern(String accountId) {
+        int index = accounts.size();
+        String[] ids = accountIds;
+        if (index == ids.length) {
+            ids = Arrays.copyOf(ids, ids.length << 1);
+        }
+        ids[index] = accountId;
+        accountIds = ids;
+        AccountHead head = new AccountHead(index);
+        accounts.put(accountId, head);
+        return head;
+    }
+
+    private ByteBuffer chunkForWrite(long record) {
+        int chunkIndex = (int) (record >>> CHUNK_SHIFT);
+        ByteBuffer[] current = chunks;
+        if (chunkIndex == current.length) {
+            current = Arrays.copyOf(current, current.length + 1);
+            current[chunkIndex] = ByteBuffer.allocateDirect(CHUNK_BYTES).order(ByteOrder.nativeOrder());
+            long[] minTimes = Arrays.copyOf(chunkMinTimes, current.length);
+            long[] maxTimes = Arrays.copyOf(prefixMaxTimes, current.length);
+            minTimes[chunkIndex] = Long.MAX_VALUE;
+            maxTimes[chunkIndex] = chunkIndex == 0 ? Long.MIN_VALUE : maxTimes[chunkIndex - 1];
+            chunkMinTimes = minTimes;
+            prefixMaxTimes = maxTimes;
+            chunks = current;
+        }
+        return current[chunkIndex];
+    }
+
+    private ByteBuffer chunk(long record) {
+        return chunks[(int) (record >>> CHUNK_SHIFT)];
+    }
+
+    private long timestamp(long record) {
+        return chunk(record).getLong(TIME_COLUMN + (int) (record & CHUNK_MASK) * Long.BYTES);
+    }
+
+    private long previous(long record) {
+        return chunk(record).getLong(PREVIOUS_COLUMN + (int) (record & CHUNK_MASK) * Long.BYTES);
+    }
+
+    // Первая запись со временем не раньше заданного. Записи без времени могут сдвинуть
+    // результат только влево - лишние записи отбрасывает проверка при обходе.
+    private long firstAtOrAfter(long fromNanos, long count) {
+        long low = 0;
+        long high = count;
+        while (low < high) {
+            long middle = (low + high) >>> 1;
+            long timestamp = timestamp(middle);
+            if (timestamp != NO_TIMESTAMP && timestamp < fromNanos) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    private long[] sortByTime(long[] records, int count, boolean ordered) {
+        long[] result = Arrays.copyOf(records, count);
+        if (ordered) {
+            Arrays.sort(result);
+            return result;
+        }
+        // Сортировка по времени с номером записи в качестве второго ключа
+        Long[] boxed = new Long[count];
+        for (int i = 0; i < count; i++) {
+            boxed[i] = result[i];
+        }
+        Arrays.sort(boxed, (a, b) -> {
+            int byTime = Long.compare(timestamp(a), timestamp(b));
+            return byTime != 0 ? byTime : Long.compare(a, b);
+        });
+        for (int i = 0; i < count; i++) {
+            result[i] = boxed[i];
+        }
+        return result;
+    }
+
+    private Transaction materialize(long record) {
+        ByteBuffer chunk = chunk(record);
+        int slot = (int) (record & CHUNK_MASK);
+        int type = chunk.get(TYPE_COLUMN + slot);
+        String id;
+        if ((type & NULL_ID_FLAG) != 0) {
+            id = null;
+        } else if ((type & HEAP_ID_FLAG) != 0) {
+            id = heapIds.get(record);
+        } else {
+            id = new UUID(chunk.getLong(ID_HIGH_COLUMN + slot * Long.BYTES),
+                    chunk.getLong(ID_LOW_COLUMN + slot * Long.BYTES)).toString();
+        }
+        return new Transaction(id,
+                accountIds[chunk.getInt(ACCOUNT_COLUMN + slot * Integer.BYTES)],
+                TYPES[type & TYPE_MASK],
+                Money.ofMinor(chunk.getLong(AMOUNT_COLUMN + slot * Long.BYTES)),
+                toLocalDateTime(chunk.getLong(TIME_COLUMN + slot * Long.BYTES)));
+    }
+
+    // Идентификатор упаковывается, только если он восстанавливается из UUID без изменений
+    private static UUID parseUuid(String id) {
+        if (id.length() != 36 || id.charAt(8) != '-' || id.charAt(13) != '-'
+                || id.charAt(18) != '-' || id.charAt(23) != '-') {
+            return null;
+        }
+        try {
+            UUID uuid = UUID.fromString(id);
+            return uuid.toString().equals(id) ? uuid : null;
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    static long toEpochNanos(LocalDateTime timestamp) {
+        if (timestamp == null) {
+            return NO_TIMESTAMP;
+        }
+        try {
+            return Math.addExact(Math.multiplyExact(timestamp.toEpochSecond(ZoneOffset.UTC), 1_000_000_000L),
+                    timestamp.getNano());
+        } catch (ArithmeticException e) {
+            throw new IllegalArgumentException("Timestamp out of supported range: " + timestamp, e);
+        }
+    }
+
+    private static LocalDateTime toLocalDateTime(long epochNanos) {
+        if (epochNanos == NO_TIMESTAMP) {
+            return null;
+        }
+        return LocalDateTime.ofEpochSecond(Math.floorDiv(epochNanos, 1_000_000_000L),
+                (int) Math.floorMod(epochNanos, 1_000_000_000L), ZoneOffset.UTC);
+    }
+
+    // Заголовок счета на куче: номер счета и последняя запись его истории
+    private static final class AccountHead {
+        private final int index;
+        private volatile long last = NO_RECORD;
+        private volatile int count;
+
+        AccountHead(int index) {
+            this.index = index;
+        }
+    }
+
+    // Результат выборки: на куче хранятся только номера записей, объекты создаются при чтении
+    private final class RecordList extends AbstractList<Transaction> implements RandomAccess {
+        private final long[] records;
+
+        RecordList(long[] records) {
+            this.records = records;
+        }
+
+        @Override
+        public Transaction get(int index) {
+            return materialize(records[index]);
+        }
+
+        @Override
+        public int size() {
+            return records.length;
+        }
+
+        @Override
+        public Stream<Transaction> stream() {
+            return LongStream.of(records).mapToObj(OffHeapTransactionRepository.this::materialize);
+        }
+    }
+}
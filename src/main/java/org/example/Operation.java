@@ -0,0 +1,63 @@
+package org.example;
+
+import java.util.Objects;
+
+// Операция над счетом для пакетного выполнения (BankAccountService.executeBatch)
+public final class Operation {
+    public enum Type { DEPOSIT, WITHDRAW, TRANSFER }
+
+    private final Type type;
+    private final String accountId; // Счет операции (для перевода - счет списания)
+    private final String targetAccountId; // Счет зачисления для перевода
+    private final long amount; // Сумма в копейках
+
+    private Operation(Type type, String accountId, String targetAccountId, long amount) {
+        this.type = type;
+        this.accountId = accountId;
+        this.targetAccountId = targetAccountId;
+        this.amount = amount;
+    }
+
+    public static Operation deposit(String accountId, Money amount) {
+        return new Operation(Type.DEPOSIT, accountId, null, toMinorUnits(amount));
+    }
+
+    public static Operation withdraw(String accountId, Money amount) {
+        return new Operation(Type.WITHDRAW, accountId, null, toMinorUnits(amount));
+    }
+
+    public static Operation transfer(String fromAccountId, String toAccountId, Money amount) {
+        return new Operation(Type.TRANSFER, fromAccountId, toAccountId, toMinorUnits(amount));
+    }
+
+    private static long toMinorUnits(Money amount) {
+        return Objects.requireNonNull(amount, "Amount cannot be null").toMinorUnits(Money.SCALE);
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public String getAccountId() {
+        return accountId;
+    }
+
+    public String getTargetAccountId() {
+        return targetAccountId;
+    }
+
+    public long getAmountMinorUnits() {
+        return amount;
+    }
+
+    public Money getAmount() {
+        return Money.ofMinor(amount);
+    }
+
+    @Override
+    public String toString() {
+        return type == Type.TRANSFER
+                ? type + " " + Money.ofMinor(amount) + " " + accountId + " -> " + targetAccountId
+                : type + " " + Money.ofMinor(amount) + " " + accountId;
+    }
+}
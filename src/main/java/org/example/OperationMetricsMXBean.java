@@ -0,0 +1,15 @@
+package org.example;
+
+// Метрики одного метода сервиса в JMX; задержки в микросекундах
+public interface OperationMetricsMXBean {
+    long getSuccessCount();
+    long getInsufficientFundsCount();
+    long getFrozenCount();
+    long getNotFoundCount();
+    long getInvalidCount();
+    long getRolledBackCount();
+    double getP50Micros();
+    double getP99Micros();
+    double getP999Micros();
+    double getMaxMicros();
+}
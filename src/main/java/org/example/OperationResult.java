@@ -0,0 +1,15 @@
+package org.example;
+
+// Результат выполнения одной операции
+public enum OperationResult {
+    SUCCESS,
+    INSUFFICIENT_FUNDS,
+    ACCOUNT_NOT_FOUND,
+    ACCOUNT_FROZEN,
+    INVALID_OPERATION,
+    ROLLED_BACK; // Операция корректна, но пакет отменен из-за ошибки в другой операции
+
+    public boolean isSuccess() {
+        return this == SUCCESS;
+    }
+}
@@ -0,0 +1,33 @@
+package org.example;
+
+import java.util.Collections;
+import java.util.List;
+
+// Страница результатов с курсором для запроса следующей страницы (null - страница последняя)
+public final class Page<T> {
+    private final List<T> items;
+    private final String nextCursor;
+
+    public Page(List<T> items, String nextCursor) {
+        this.items = Collections.unmodifiableList(items);
+        this.nextCursor = nextCursor;
+    }
+
+    public List<T> getItems() {
+        return items;
+    }
+
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    public boolean hasNext() {
+        return nextCursor != null;
+    }
+
+    static void checkLimit(int limit) {
+        if (limit <= 0) {
+            throw new IllegalArgumentException("Page limit must be positive, got: " + limit);
+        }
+    }
+}
@@ -0,0 +1,447 @@
+package org.example;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+// Долговременное хранилище счетов: состояние в памяти, каждое изменение пишется в журнал,
+// периодически в фоне сохраняется компактный двоичный снимок всех счетов.
+// При запуске загружается последний снимок и применяется только хвост журнала после него.
+// Хранятся два последних снимка и журнал после более старого из них: если последний снимок
+// не читается, загружается предыдущий, а журнал применяется с его номера.
+// Счета в журнале и снимке хранятся записями AccountCodec.
+// Поддерживает условное сохранение по версии: проверка версии и запись в журнал выполняются
+// под блокировкой полосы счета.
+public class PersistentAccountRepository implements AccountRepository, Closeable {
+    private static final Logger logger = LoggerFactory.getLogger(PersistentAccountRepository.class);
+
+    public static final int DEFAULT_SEGMENT_SIZE = 64 * 1024 * 1024;
+    private static final String JOURNAL_NAME = "accounts";
+    private static final String SNAPSHOT_PREFIX = "accounts-";
+    private static final String SNAPSHOT_SUFFIX = ".snapshot";
+
+    private static final int SNAPSHOT_MAGIC = 0x42414E4B; // "BANK"
+    private static final short SNAPSHOT_VERSION = 2;
+    private static final int SNAPSHOT_HEADER_SIZE = Integer.BYTES + Short.BYTES + Long.BYTES + Integer.BYTES;
+    private static final int SNAPSHOT_BUFFER_SIZE = 1024 * 1024;
+
+    private static final byte OP_DELETE = 2;
+    private static final byte OP_SAVE = 3;
+
+    private final Path directory;
+    private final InMemoryAccountRepository accounts = new InMemoryAccountRepository();
+    private final MappedJournal journal;
+    // Запись в журнал и в память выполняется под блокировкой полосы счета: так порядок
+    // изменений одного счета в журнале совпадает с порядком в памяти
+    private final StripedLocks writeLocks = new StripedLocks(64);
+    private final Object snapshotLock = new Object();
+    private final ScheduledExecutorService snapshotter;
+    private volatile long snapshotSequence;
+
+    public PersistentAccountRepository(Path directory) throws IOException {
+        this(directory, DEFAULT_SEGMENT_SIZE, JournalDurability.PER_WRITE, 0, 0, TimeUnit.MILLISECONDS);
+    }
+
+    // snapshotInterval = 0 отключает фоновые снимки (остается ручной вызов snapshot())
+    public PersistentAccountRepository(Path directory, int segmentSize, JournalDurability durability,
+                                       long flushInterval, long snapshotInterval, TimeUnit unit) throws IOException {
+        this.directory = directory;
+        Files.createDirectories(directory);
+
+        long start = System.nanoTime();
+        this.snapshotSequence = loadLatestSnapshot();
+        this.journal = new MappedJournal(directory, JOURNAL_NAME, segmentSize, durability, flushInterval, unit);
+        int[] replayed = new int[1];
+        journal.replay(snapshotSequence, (sequence, payload) -> {
+            applyJournalRecord(payload);
+            replayed[0]++;
+        });
+        logger.info("Restored {} accounts from snapshot at sequence {} and {} journal records in {} ms",
+                accounts.size(), snapshotSequence, replayed[0],
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+
+        if (snapshotInterval > 0) {
+            snapshotter = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "account-snapshotter");
+                thread.setDaemon(true);
+                return thread;
+            });
+            snapshotter.scheduleWithFixedDelay(this::snapshotQuietly, snapshotInterval, snapshotInterval, unit);
+        } else {
+            snapshotter = null;
+        }
+    }
+
+    @Override
+    public BankAccount findById(String accountId) {
+        return accounts.findById(accountId);
+    }
+
+    @Override
+    public void save(BankAccount account) {
+        journal.awaitDurable(writeSave(account));
+    }
+
+    @Override
+    public void saveAll(Collection<BankAccount> batch) {
+        long last = 0;
+        for (BankAccount account : batch) {
+            last = writeSave(account);
+        }
+        // Один сброс на диск на весь пакет
+        journal.awaitDurable(last);
+    }
+
+    private long writeSave(BankAccount account) {
+        String accountId = account.getAccountId();
+        int length = 1 + AccountCodec.encodedSize(account);
+        writeLocks.lock(accountId);
+        try {
+            return append(account, length);
+        } finally {
+            writeLocks.unlock(accountId);
+        }
+    }
+
+    @Override
+    public boolean supportsCompareAndSave() {
+        return true;
+    }
+
+    @Override
+    public boolean compareAndSave(BankAccount account, long expectedVersion) {
+        String accountId = account.getAccountId();
+        int length = 1 + AccountCodec.encodedSize(account);
+        long sequence;
+        writeLocks.lock(accountId);
+        try {
+            if (!hasVersion(accountId, expectedVersion)) {
+                return false;
+            }
+            account.setVersion(expectedVersion + 1);
+            sequence = append(account, length);
+        } finally {
+            writeLocks.unlock(accountId);
+        }
+        journal.awaitDurable(sequence);
+        return true;
+    }
+
+    @Override
+    public boolean compareAndSaveAll(List<BankAccount> batch, long[] expectedVersions) {
+        if (batch.size() != expectedVersions.length) {
+            throw new IllegalArgumentException("Expected " + batch.size() + " versions, got: "
+                    + expectedVersions.length);
+        }
+        // Размеры записей проверяются до первой записи в журнал
+        List<String> accountIds = new ArrayList<>(batch.size());
+        int[] lengths = new int[batch.size()];
+        for (int i = 0; i < lengths.length; i++) {
+            accountIds.add(batch.get(i).getAccountId());
+            lengths[i] = 1 + AccountCodec.encodedSize(batch.get(i));
+        }
+        long last;
+        int[] acquired = writeLocks.lockAll(accountIds);
+        try {
+            for (int i = 0; i < expectedVersions.length; i++) {
+                if (!hasVersion(accountIds.get(i), expectedVersions[i])) {
+                    return false;
+                }
+            }
+            last = 0;
+            for (int i = 0; i < expectedVersions.length; i++) {
+                BankAccount account = batch.get(i);
+                account.setVersion(expectedVersions[i] + 1);
+                last = append(account, lengths[i]);
+            }
+        } finally {
+            writeLocks.unlockAll(acquired);
+        }
+        journal.awaitDurable(last);
+        return true;
+    }
+
+    // Вызывается под блокировкой полосы счета
+    private boolean hasVersion(String accountId, long expectedVersion) {
+        BankAccount current = accounts.findById(accountId);
+        return current != null && current.getVersion() == expectedVersion;
+    }
+
+    // Вызывается под блокировкой полосы счета
+    private long append(BankAccount account, int length) {
+        long sequence = journal.write(length, buffer -> {
+            buffer.put(OP_SAVE);
+            AccountCodec.encode(account, buffer);
+        });
+        accounts.save(account);
+        return sequence;
+    }
+
+    @Override
+    public void delete(String accountId) {
+        byte[] id = toBytes(accountId);
+        long sequence;
+        writeLocks.lock(accountId);
+        try {
+            sequence = journal.write(1 + Short.BYTES + id.length, buffer -> {
+                buffer.put(OP_DELETE);
+                buffer.putShort((short) id.length);
+                buffer.put(id);
+            });
+            accounts.delete(accountId);
+        } finally {
+            writeLocks.unlock(accountId);
+        }
+        journal.awaitDurable(sequence);
+    }
+
+    @Override
+    public List<BankAccount> findAll() {
+        return accounts.findAll();
+    }
+
+    @Override
+    public Page<BankAccount> findPage(String afterAccountId, int limit) {
+        return accounts.findPage(afterAccountId, limit);
+    }
+
+    @Override
+    public Stream<BankAccount> stream() {
+        return accounts.stream();
+    }
+
+    // Номер последней записи журнала, учтенной в последнем снимке
+    public long getSnapshotSequence() {
+        return snapshotSequence;
+    }
+
+    // Записать снимок всех счетов. Писатели останавливаются только на время чтения
+    // номера журнала; сам снимок пишется параллельно с изменениями, а изменения,
+    // попавшие в него частично, будут повторно применены из журнала при восстановлении.
+    public long snapshot() {
+        synchronized (snapshotLock) {
+            long sequence;
+            writeLocks.lockAllStripes();
+            try {
+                sequence = journal.getLastSequence();
+            } finally {
+                writeLocks.unlockAllStripes();
+            }
+            if (sequence == snapshotSequence) {
+                return sequence;
+            }
+
+            long start = System.nanoTime();
+            Path target = directory.resolve(snapshotFileName(sequence));
+            Path temporary = directory.resolve(snapshotFileName(sequence) + ".tmp");
+            int count;
+            try {
+                count = writeSnapshot(temporary, sequence);
+                Files.move(temporary, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (IOException e) {
+                deleteQuietly(temporary);
+                throw new UncheckedIOException("Cannot write account snapshot " + target, e);
+            }
+            long previous = snapshotSequence;
+            snapshotSequence = sequence;
+
+            // Предыдущий снимок и журнал после него остаются для восстановления, если новый снимок
+            // окажется нечитаемым; остальные снимки (в том числе нечитаемые) и сегменты не нужны
+            for (SnapshotFile old : listSnapshots()) {
+                if (old.sequence != sequence && old.sequence != previous) {
+                    deleteQuietly(old.path);
+                }
+            }
+            journal.deleteSegmentsUpTo(previous);
+            logger.debug("Wrote snapshot of {} accounts at sequence {} in {} ms", count, sequence,
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+            return sequence;
+        }
+    }
+
+    private void snapshotQuietly() {
+        try {
+            snapshot();
+        } catch (RuntimeException e) {
+            logger.warn("Background account snapshot failed", e);
+        }
+    }
+
+    private int writeSnapshot(Path file, long sequence) throws IOException {
+        List<BankAccount> all = accounts.findAll();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(SNAPSHOT_BUFFER_SIZE);
+            buffer.putInt(SNAPSHOT_MAGIC);
+            buffer.putShort(SNAPSHOT_VERSION);
+            buffer.putLong(sequence);
+            buffer.putInt(all.size());
+            for (BankAccount account : all) {
+                int size = AccountCodec.encodedSize(account);
+                if (buffer.remaining() < size) {
+                    drain(buffer, channel);
+                }
+                AccountCodec.encode(account, buffer);
+            }
+            drain(buffer, channel);
+            channel.force(true);
+        }
+        return all.size();
+    }
+
+    private static void drain(ByteBuffer buffer, FileChannel channel) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    // Загрузка последнего читаемого снимка; возвращает его номер журнала (0 - снимков нет)
+    private long loadLatestSnapshot() throws IOException {
+        List<SnapshotFile> snapshots = listSnapshots();
+        for (int i = snapshots.size() - 1; i >= 0; i--) {
+            SnapshotFile snapshot = snapshots.get(i);
+            List<BankAccount> loaded = new ArrayList<>();
+            long sequence;
+            try {
+                sequence = readSnapshot(snapshot.path, loaded);
+            } catch (IOException | RuntimeException e) {
+                logger.warn("Cannot read account snapshot {}, falling back to the previous one", snapshot.path, e);
+                continue;
+            }
+            // Счета попадают в память только из целиком прочитанного снимка
+            for (BankAccount account : loaded) {
+                accounts.save(account);
+            }
+            return sequence;
+        }
+        if (!snapshots.isEmpty()) {
+            throw new IOException("No readable account snapshot in " + directory);
+        }
+        return 0;
+    }
+
+    // Чтение снимка через отображение файла в память; возвращает его номер журнала
+    private static long readSnapshot(Path file, List<BankAccount> into) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.remaining() < SNAPSHOT_HEADER_SIZE || buffer.getInt() != SNAPSHOT_MAGIC) {
+                throw new IOException("Not an account snapshot: " + file);
+            }
+            short version = buffer.getShort();
+            if (version != SNAPSHOT_VERSION) {
+                throw new IOException("Unsupported snapshot version " + version + ": " + file);
+            }
+            long sequence = buffer.getLong();
+            int count = buffer.getInt();
+            for (int i = 0; i < count; i++) {
+                into.add(AccountCodec.decode(buffer));
+            }
+            if (buffer.hasRemaining()) {
+                throw new IOException("Unexpected data after " + count + " accounts in snapshot " + file);
+            }
+            return sequence;
+        }
+    }
+
+    private void applyJournalRecord(ByteBuffer payload) {
+        byte op = payload.get();
+        if (op == OP_SAVE) {
+            accounts.save(AccountCodec.decode(payload));
+        } else if (op == OP_DELETE) {
+            accounts.delete(readString(payload));
+        } else {
+            throw new IllegalStateException("Unknown account journal operation: " + op);
+        }
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.getShort()];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static byte[] toBytes(String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > Short.MAX_VALUE) {
+            throw new IllegalArgumentException("Value is too long to store: " + bytes.length + " bytes");
+        }
+        return bytes;
+    }
+
+    private String snapshotFileName(long sequence) {
+        return String.format("%s%020d%s", SNAPSHOT_PREFIX, sequence, SNAPSHOT_SUFFIX);
+    }
+
+    private List<SnapshotFile> listSnapshots() {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files
+                    .filter(path -> {
+                        String fileName = path.getFileName().toString();
+                        return fileName.startsWith(SNAPSHOT_PREFIX) && fileName.endsWith(SNAPSHOT_SUFFIX);
+                    })
+                    .map(path -> {
+                        String fileName = path.getFileName().toString();
+                        String number = fileName.substring(SNAPSHOT_PREFIX.length(),
+                                fileName.length() - SNAPSHOT_SUFFIX.length());
+                        return new SnapshotFile(path, Long.parseLong(number));
+                    })
+                    .sorted(Comparator.comparingLong(snapshotFile -> snapshotFile.sequence))
+                    .collect(Collectors.toCollection(ArrayList::new));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot list snapshot directory " + directory, e);
+        }
+    }
+
+    private static void deleteQuietly(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            logger.warn("Cannot delete snapshot file {}", path, e);
+        }
+    }
+
+    @Override
+    public void close() {
+        if (snapshotter != null) {
+            // Даем завершиться снимку, который пишется прямо сейчас
+            snapshotter.shutdown();
+            try {
+                snapshotter.awaitTermination(1, TimeUnit.MINUTES);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        journal.close();
+    }
+
+    private static final class SnapshotFile {
+        private final Path path;
+        private final long sequence;
+
+        SnapshotFile(Path path, long sequence) {
+            this.path = path;
+            this.sequence = sequence;
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package org.example;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Итоги сверки балансов счетов с историей проводок (LedgerReconciler)
+public final class ReconciliationReport {
+    private final long accountsChecked;
+    private final long mismatchCount; // Все расхождения, в том числе не вошедшие в список
+    private final List<Mismatch> mismatches; // Не больше лимита сверки
+    private final long ledgerTotal; // Сумма балансов по истории, в копейках
+    private final long balanceTotal; // Сумма балансов счетов, в копейках
+    private final long elapsedNanos;
+
+    public ReconciliationReport(long accountsChecked, long mismatchCount, List<Mismatch> mismatches,
+                                long ledgerTotal, long balanceTotal, long elapsedNanos) {
+        this.accountsChecked = accountsChecked;
+        this.mismatchCount = mismatchCount;
+        this.mismatches = List.copyOf(mismatches);
+        this.ledgerTotal = ledgerTotal;
+        this.balanceTotal = balanceTotal;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    public boolean isBalanced() {
+        return mismatchCount == 0;
+    }
+
+    public long getAccountsChecked() {
+        return accountsChecked;
+    }
+
+    public long getMismatchCount() {
+        return mismatchCount;
+    }
+
+    public List<Mismatch> getMismatches() {
+        return mismatches;
+    }
+
+    public Money getLedgerTotal() {
+        return Money.ofMinor(ledgerTotal);
+    }
+
+    public Money getBalanceTotal() {
+        return Money.ofMinor(balanceTotal);
+    }
+
+    public long getElapsed(TimeUnit unit) {
+        return unit.convert(elapsedNanos, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("accounts=%d, mismatches=%d, ledger=%s, balances=%s, elapsed=%d ms",
+                accountsChecked, mismatchCount, getLedgerTotal(), getBalanceTotal(),
+                getElapsed(TimeUnit.MILLISECONDS));
+    }
+
+    // Счет, баланс которого не совпал с суммой его проводок
+    public static final class Mismatch {
+        private final String accountId;
+        private final long ledgerBalance;
+        private final long accountBalance;
+
+        public Mismatch(String accountId, long ledgerBalance, long accountBalance) {
+            this.accountId = accountId;
+            this.ledgerBalance = ledgerBalance;
+            this.accountBalance = accountBalance;
+        }
+
+        public String getAccountId() {
+            return accountId;
+        }
+
+        public Money getLedgerBalance() {
+            return Money.ofMinor(ledgerBalance);
+        }
+
+        public Money getAccountBalance() {
+            return Money.ofMinor(accountBalance);
+        }
+
+        // Баланс счета минус баланс по истории
+        public Money getDifference() {
+            return Money.ofMinor(accountBalance - ledgerBalance);
+        }
+
+        @Override
+        public String toString() {
+            return accountId + ": ledger=" + getLedgerBalance() + ", balance=" + getAccountBalance();
+        }
+    }
+}
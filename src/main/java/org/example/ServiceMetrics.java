@@ -0,0 +1,9 @@
+package org.example;
+
+// Приемник метрик сервиса: вызывается после каждого метода с его результатом и длительностью.
+// Вызывается из рабочих потоков, поэтому реализация должна быть потокобезопасной и дешевой.
+public interface ServiceMetrics {
+    ServiceMetrics NONE = (operation, result, latencyNanos) -> { };
+
+    void record(ServiceOperation operation, OperationResult result, long latencyNanos);
+}
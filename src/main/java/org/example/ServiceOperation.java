@@ -0,0 +1,19 @@
+package org.example;
+
+// Методы BankAccountService, для которых собираются метрики
+public enum ServiceOperation {
+    CREATE_ACCOUNT,
+    DEPOSIT,
+    WITHDRAW,
+    TRANSFER,
+    GET_BALANCE,
+    GET_ALL_ACCOUNTS,
+    APPLY_INTEREST,
+    APPLY_INTEREST_TO_ALL,
+    FREEZE_ACCOUNT,
+    UNFREEZE_ACCOUNT,
+    GET_TRANSACTION_HISTORY,
+    GET_TRANSACTIONS_BY_TIME,
+    EXECUTE_BATCH,
+    SETTLE_TRANSFERS
+}
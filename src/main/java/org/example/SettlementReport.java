@@ -0,0 +1,61 @@
+package org.example;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+// Итоги взаимозачета пакета переводов (BankAccountServiceImpl.settleTransfers)
+public final class SettlementReport {
+    private final boolean settled; // Применен ли пакет (иначе ни один счет не изменен)
+    private final int transfers;
+    private final int accountsUpdated; // Счета с ненулевой чистой позицией
+    private final long grossAmount; // Сумма всех переводов, в копейках
+    private final long netAmount; // Сумма положительных чистых позиций, в копейках
+    private final Map<String, OperationResult> rejections; // Счета, не прошедшие проверку
+    private final long elapsedNanos;
+
+    public SettlementReport(boolean settled, int transfers, int accountsUpdated, long grossAmount,
+                            long netAmount, Map<String, OperationResult> rejections, long elapsedNanos) {
+        this.settled = settled;
+        this.transfers = transfers;
+        this.accountsUpdated = accountsUpdated;
+        this.grossAmount = grossAmount;
+        this.netAmount = netAmount;
+        this.rejections = Map.copyOf(rejections);
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    public boolean isSettled() {
+        return settled;
+    }
+
+    public int getTransfers() {
+        return transfers;
+    }
+
+    public int getAccountsUpdated() {
+        return accountsUpdated;
+    }
+
+    public Money getGrossAmount() {
+        return Money.ofMinor(grossAmount);
+    }
+
+    public Money getNetAmount() {
+        return Money.ofMinor(netAmount);
+    }
+
+    public Map<String, OperationResult> getRejections() {
+        return rejections;
+    }
+
+    public long getElapsed(TimeUnit unit) {
+        return unit.convert(elapsedNanos, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("settled=%b, transfers=%d, accounts=%d, gross=%s, net=%s, rejected=%d, elapsed=%d ms",
+                settled, transfers, accountsUpdated, getGrossAmount(), getNetAmount(), rejections.size(),
+                getElapsed(TimeUnit.MILLISECONDS));
+    }
+}
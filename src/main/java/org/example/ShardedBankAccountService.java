@@ -0,0 +1,823 @@
+package org.example;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+// Движок с одним писателем на шард: счета распределяются по хешу идентификатора между
+// потоками шардов, и только поток шарда изменяет свои счета, поэтому блокировки на балансе не нужны.
+// Команды поступают в шард через ограниченную очередь без блокировок (при заполнении
+// вызывающий ждет). Перевод между шардами выполняется парой сообщений: шард источника
+// списывает средства и отправляет зачисление шарду получателя; если зачисление невозможно,
+// получатель возвращает сумму источнику. Зачисления и возвраты идут через отдельную
+// неограниченную очередь, поэтому шарды никогда не ждут друг друга, и сообщения не теряются:
+// при закрытии шарды останавливаются только после доставки всех зачислений.
+// Пакеты операций приостанавливают затронутые шарды и выполняются в вызывающем потоке.
+public class ShardedBankAccountService implements BankAccountService, Closeable {
+    private static final Logger logger = LoggerFactory.getLogger(ShardedBankAccountService.class);
+
+    public static final int DEFAULT_RING_CAPACITY = 4096;
+    private static final int INTEREST_CHUNK_SIZE = 1024;
+    private static final int COPY_CHUNK_SIZE = 1024;
+    private static final int STREAM_PAGE_SIZE = 1024;
+    private static final int SPIN_LIMIT = 100;
+    private static final long PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+    private static final long AWAIT_CHECK_MILLIS = 100;
+
+    private final AccountRepository accountRepository;
+    private final TransactionRepository transactionRepository;
+    private final IdGenerator idGenerator;
+    private final IdempotencyStore idempotencyStore;
+    private final Shard[] shards;
+    // Пакеты, останавливающие несколько шардов, выполняются по одному, иначе возможна взаимная блокировка
+    private final Object batchMonitor = new Object();
+    // Отправленные, но еще не примененные зачисления и возвраты
+    private final AtomicLong pendingCredits = new AtomicLong();
+    private volatile boolean closed;
+
+    public ShardedBankAccountService(AccountRepository accountRepository,
+                                     TransactionRepository transactionRepository) {
+        this(accountRepository, transactionRepository, Runtime.getRuntime().availableProcessors(),
+                DEFAULT_RING_CAPACITY);
+    }
+
+    public ShardedBankAccountService(AccountRepository accountRepository,
+                                     TransactionRepository transactionRepository,
+                                     int shardCount, int ringCapacity) {
+        this(accountRepository, transactionRepository, shardCount, ringCapacity, new TimeOrderedIdGenerator());
+    }
+
+    public ShardedBankAccountService(AccountRepository accountRepository,
+                                     TransactionRepository transactionRepository,
+                                     int shardCount, int ringCapacity, IdGenerator idGenerator) {
+        this(accountRepository, transactionRepository, shardCount, ringCapacity, idGenerator,
+                new IdempotencyStore());
+    }
+
+    public ShardedBankAccountService(AccountRepository accountRepository,
+                                     TransactionRepository transactionRepository,
+                                     int shardCount, int ringCapacity, IdGenerator idGenerator,
+                                     IdempotencyStore idempotencyStore) {
+        if (shardCount <= 0) {
+            throw new IllegalArgumentException("Shard count must be positive, got: " + shardCount);
+        }
+        this.accountRepository = accountRepository;
+        this.transactionRepository = transactionRepository;
+        this.idGenerator = idGenerator;
+        this.idempotencyStore = idempotencyStore;
+        this.shards = new Shard[shardCount];
+        for (int i = 0; i < shardCount; i++) {
+            shards[i] = new Shard(i, ringCapacity);
+        }
+        for (Shard shard : shards) {
+            shard.thread.start();
+        }
+    }
+
+    public int getShardCount() {
+        return shards.length;
+    }
+
+    @Override
+    public BankAccount createAccount(String ownerName, double initialBalance) {
+        if (initialBalance < 0) {
+            throw new IllegalArgumentException("Initial balance cannot be negative");
+        }
+        return openAccount(ownerName, Money.of(initialBalance));
+    }
+
+    @Override
+    public BankAccount createAccount(String ownerName, Money initialBalance) {
+        if (initialBalance.isNegative()) {
+            throw new IllegalArgumentException("Initial balance cannot be negative");
+        }
+        return openAccount(ownerName, initialBalance);
+    }
+
+    // Новый счет никому не виден до сохранения, поэтому сохраняется без участия шарда
+    private BankAccount openAccount(String ownerName, Money initialBalance) {
+        checkOpen();
+        BankAccount account = new BankAccount(idGenerator.nextString(), ownerName, initialBalance);
+        accountRepository.save(account);
+        if (account.getBalanceMinorUnits() > 0) {
+            recordEntry(account.getAccountId(), Transaction.TransactionType.DEPOSIT, account.getBalanceMinorUnits());
+        }
+        return account;
+    }
+
+    @Override
+    public void deposit(String accountId, double amount) {
+        Objects.requireNonNull(accountId, "Account ID cannot be null");
+        depositMinorUnits(accountId, BankAccountServiceImpl.positiveMinorUnits(amount, "Deposit"));
+    }
+
+    @Override
+    public void deposit(String accountId, Money amount) {
+        Objects.requireNonNull(accountId, "Account ID cannot be null");
+        depositMinorUnits(accountId, positiveMinorUnits(amount, "Deposit"));
+    }
+
+    private void depositMinorUnits(String accountId, long amount) {
+        call(accountId, () -> {
+            BankAccount account = findExisting(accountId);
+            if (account.isFrozen()) {
+                throw new AccountFrozenException("Cannot deposit to frozen account", false);
+            }
+            account.setBalanceMinorUnits(Math.addExact(account.getBalanceMinorUnits(), amount));
+            accountRepository.save(account);
+            return null;
+        });
+        recordEntry(accountId, Transaction.TransactionType.DEPOSIT, amount);
+    }
+
+    @Override
+    public void withdraw(String accountId, double amount) throws InsufficientFundsException {
+        Objects.requireNonNull(accountId, "Account ID cannot be null");
+        withdrawMinorUnits(accountId, BankAccountServiceImpl.positiveMinorUnits(amount, "Withdrawal"));
+    }
+
+    @Override
+    public void withdraw(String accountId, Money amount) throws InsufficientFundsException {
+        Objects.requireNonNull(accountId, "Account ID cannot be null");
+        withdrawMinorUnits(accountId, positiveMinorUnits(amount, "Withdrawal"));
+    }
+
+    private void withdrawMinorUnits(String accountId, long amount) {
+        call(accountId, () -> {
+            BankAccount account = findExisting(accountId);
+            if (account.isFrozen()) {
+                throw new AccountFrozenException("Cannot withdraw from frozen account", false);
+            }
+            long balance = account.getBalanceMinorUnits();
+            if (balance < amount) {
+                throw new InsufficientFundsException("Insufficient funds for withdrawal", false);
+            }
+            account.setBalanceMinorUnits(balance - amount);
+            accountRepository.save(account);
+            return null;
+        });
+        recordEntry(accountId, Transaction.TransactionType.WITHDRAWAL, amount);
+    }
+
+    @Override
+    public void transfer(String fromAccountId, String toAccountId, double amount)
+            throws InsufficientFundsException {
+        validateTransfer(fromAccountId, toAccountId);
+        transferMinorUnits(fromAccountId, toAccountId,
+                BankAccountServiceImpl.positiveMinorUnits(amount, "Transfer"));
+    }
+
+    @Override
+    public void transfer(String fromAccountId, String toAccountId, Money amount)
+            throws InsufficientFundsException {
+        validateTransfer(fromAccountId, toAccountId);
+        transferMinorUnits(fromAccountId, toAccountId, positiveMinorUnits(amount, "Transfer"));
+    }
+
+    @Override
+    public void deposit(String accountId, Money amount, String idempotencyKey) {
+        idempotencyStore.execute(idempotencyKey, IdempotencyStore.fingerprint("deposit", amount, accountId), () -> {
+            deposit(accountId, amount);
+            return null;
+        });
+    }
+
+    @Override
+    public void withdraw(String accountId, Money amount, String idempotencyKey) throws InsufficientFundsException {
+        idempotencyStore.execute(idempotencyKey, IdempotencyStore.fingerprint("withdraw", amount, accountId), () -> {
+            withdraw(accountId, amount);
+            return null;
+        });
+    }
+
+    @Override
+    public void transfer(String fromAccountId, String toAccountId, Money amount, String idempotencyKey)
+            throws InsufficientFundsException {
+        String fingerprint = IdempotencyStore.fingerprint("transfer", amount, fromAccountId, toAccountId);
+        idempotencyStore.execute(idempotencyKey, fingerprint, () -> {
+            transfer(fromAccountId, toAccountId, amount);
+            return null;
+        });
+    }
+
+    @Override
+    public OperationResult tryDeposit(String accountId, Money amount) {
+        long minorUnits = BankAccountServiceImpl.validMinorUnits(amount);
+        if (accountId == null || minorUnits <= 0) {
+            return OperationResult.INVALID_OPERATION;
+        }
+        try {
+            depositMinorUnits(accountId, minorUnits);
+            return OperationResult.SUCCESS;
+        } catch (RuntimeException e) {
+            return rejection(e);
+        }
+    }
+
+    @Override
+    public OperationResult tryWithdraw(String accountId, Money amount) {
+        long minorUnits = BankAccountServiceImpl.validMinorUnits(amount);
+        if (accountId == null || minorUnits <= 0) {
+            return OperationResult.INVALID_OPERATION;
+        }
+        try {
+            withdrawMinorUnits(accountId, minorUnits);
+            return OperationResult.SUCCESS;
+        } catch (RuntimeException e) {
+            return rejection(e);
+        }
+    }
+
+    @Override
+    public OperationResult tryTransfer(String fromAccountId, String toAccountId, Money amount) {
+        long minorUnits = BankAccountServiceImpl.validMinorUnits(amount);
+        if (fromAccountId == null || toAccountId == null || fromAccountId.equals(toAccountId)
+                || minorUnits <= 0) {
+            return OperationResult.INVALID_OPERATION;
+        }
+        try {
+            transferMinorUnits(fromAccountId, toAccountId, minorUnits);
+            return OperationResult.SUCCESS;
+        } catch (RuntimeException e) {
+            return rejection(e);
+        }
+    }
+
+    // Отказы шардов создаются без стека, поэтому их перехват дешев; прочие ошибки пробрасываются
+    private static OperationResult rejection(RuntimeException e) {
+        if (e instanceof AccountNotFoundException) {
+            return OperationResult.ACCOUNT_NOT_FOUND;
+        }
+        if (e instanceof AccountFrozenException) {
+            return OperationResult.ACCOUNT_FROZEN;
+        }
+        if (e instanceof InsufficientFundsException) {
+            return OperationResult.INSUFFICIENT_FUNDS;
+        }
+        if (e instanceof ArithmeticException) {
+            return OperationResult.INVALID_OPERATION;
+        }
+        throw e;
+    }
+
+    private static void validateTransfer(String fromAccountId, String toAccountId) {
+        Objects.requireNonNull(fromAccountId, "Source account ID cannot be null");
+        Objects.requireNonNull(toAccountId, "Target account ID cannot be null");
+        if (fromAccountId.equals(toAccountId)) {
+            throw new IllegalArgumentException("Cannot transfer to the same account");
+        }
+    }
+
+    private void transferMinorUnits(String fromAccountId, String toAccountId, long amount) {
+        Shard source = shardFor(fromAccountId);
+        Shard target = shardFor(toAccountId);
+        if (source == target) {
+            call(fromAccountId, () -> {
+                BankAccount fromAccount = accountRepository.findById(fromAccountId);
+                BankAccount toAccount = accountRepository.findById(toAccountId);
+                if (fromAccount == null || toAccount == null) {
+                    throw new AccountNotFoundException("Account not found", false);
+                }
+                long fromBalance = fromAccount.getBalanceMinorUnits();
+                if (fromBalance < amount) {
+                    throw new InsufficientFundsException("Insufficient funds for transfer", false);
+                }
+                long toBalance = Math.addExact(toAccount.getBalanceMinorUnits(), amount);
+                fromAccount.setBalanceMinorUnits(fromBalance - amount);
+                toAccount.setBalanceMinorUnits(toBalance);
+                accountRepository.save(fromAccount);
+                accountRepository.save(toAccount);
+                return null;
+            });
+            recordTransfer(fromAccountId, toAccountId, amount);
+            return;
+        }
+
+        // Вызов завершается после зачисления (или возврата суммы источнику)
+        CompletableFuture<Void> completion = new CompletableFuture<>();
+        source.submit(() -> {
+            try {
+                BankAccount fromAccount = accountRepository.findById(fromAccountId);
+                // Проверка существования получателя только читает чужой счет
+                if (fromAccount == null || accountRepository.findById(toAccountId) == null) {
+                    throw new AccountNotFoundException("Account not found", false);
+                }
+                long fromBalance = fromAccount.getBalanceMinorUnits();
+                if (fromBalance < amount) {
+                    throw new InsufficientFundsException("Insufficient funds for transfer", false);
+                }
+                fromAccount.setBalanceMinorUnits(fromBalance - amount);
+                accountRepository.save(fromAccount);
+            } catch (RuntimeException e) {
+                completion.completeExceptionally(e);
+                return;
+            }
+            pendingCredits.incrementAndGet();
+            target.sendCredit(() -> credit(source, fromAccountId, toAccountId, amount, completion));
+        });
+        await(completion, source);
+        recordTransfer(fromAccountId, toAccountId, amount);
+    }
+
+    // Проводки записываются вызывающим потоком после подтверждения изменения, шарды их не ждут
+    private void recordEntry(String accountId, Transaction.TransactionType type, long amount) {
+        transactionRepository.save(new Transaction(idGenerator.nextString(), accountId, type,
+                Money.ofMinor(amount)));
+    }
+
+    private void recordTransfer(String fromAccountId, String toAccountId, long amount) {
+        LocalDateTime now = LocalDateTime.now();
+        transactionRepository.saveAll(List.of(
+                new Transaction(idGenerator.nextString(), fromAccountId, Transaction.TransactionType.TRANSFER,
+                        Money.ofMinor(-amount), now),
+                new Transaction(idGenerator.nextString(), toAccountId, Transaction.TransactionType.TRANSFER,
+                        Money.ofMinor(amount), now)));
+    }
+
+    // Выполняется шардом получателя
+    private void credit(Shard source, String fromAccountId, String toAccountId, long amount,
+                        CompletableFuture<Void> completion) {
+        try {
+            BankAccount toAccount = findExisting(toAccountId);
+            toAccount.setBalanceMinorUnits(Math.addExact(toAccount.getBalanceMinorUnits(), amount));
+            accountRepository.save(toAccount);
+        } catch (RuntimeException e) {
+            source.sendCredit(() -> refund(fromAccountId, amount, e, completion));
+            return;
+        }
+        pendingCredits.decrementAndGet();
+        completion.complete(null);
+    }
+
+    // Выполняется шардом источника, если зачисление не удалось
+    private void refund(String fromAccountId, long amount, RuntimeException cause,
+                        CompletableFuture<Void> completion) {
+        try {
+            BankAccount fromAccount = accountRepository.findById(fromAccountId);
+            fromAccount.setBalanceMinorUnits(Math.addExact(fromAccount.getBalanceMinorUnits(), amount));
+            accountRepository.save(fromAccount);
+            completion.completeExceptionally(cause);
+        } catch (RuntimeException e) {
+            logger.error("Failed to refund {} to account {}", amount, fromAccountId, e);
+            completion.completeExceptionally(e);
+        } finally {
+            pendingCredits.decrementAndGet();
+        }
+    }
+
+    @Override
+    public double getBalance(String accountId) {
+        return Money.toDouble(getBalanceMinorUnits(accountId));
+    }
+
+    @Override
+    public Money getBalanceMoney(String accountId) {
+        return Money.ofMinor(getBalanceMinorUnits(accountId));
+    }
+
+    private long getBalanceMinorUnits(String accountId) {
+        Objects.requireNonNull(accountId, "Account ID cannot be null");
+        return call(accountId, () -> findExisting(accountId).getBalanceMinorUnits());
+    }
+
+    @Override
+    public List<BankAccount> getAllAccounts() {
+        return copyOnShards(accountRepository.findAll());
+    }
+
+    @Override
+    public void applyInterest(String accountId, double rate) {
+        if (rate <= 0) throw new IllegalArgumentException("Rate must be positive");
+        Objects.requireNonNull(accountId, "Account ID cannot be null");
+        long interest = call(accountId, () -> {
+            BankAccount account = findExisting(accountId);
+            long balance = account.getBalanceMinorUnits();
+            long accrued = Money.percentOf(balance, rate);
+            account.setBalanceMinorUnits(Math.addExact(balance, accrued));
+            accountRepository.save(account);
+            return accrued;
+        });
+        transactionRepository.save(new Transaction(idGenerator.nextString(), accountId,
+                Transaction.TransactionType.INTEREST, Money.ofMinor(interest)));
+    }
+
+    @Override
+    public InterestAccrualReport applyInterestToAll(double rate, Predicate<BankAccount> filter,
+                                                    InterestProgressListener listener) {
+        long start = System.nanoTime();
+        if (rate <= 0) throw new IllegalArgumentException("Rate must be positive");
+        Objects.requireNonNull(filter, "Filter cannot be null");
+        Objects.requireNonNull(listener, "Listener cannot be null");
+
+        List<BankAccount> accounts = accountRepository.findAll();
+        List<List<String>> owned = new ArrayList<>(shards.length);
+        for (int i = 0; i < shards.length; i++) {
+            owned.add(new ArrayList<>());
+        }
+        for (BankAccount account : accounts) {
+            owned.get(shardFor(account.getAccountId()).index).add(account.getAccountId());
+        }
+
+        // Счета шарда обрабатываются частями, чтобы между ними успевали выполняться другие команды
+        long total = accounts.size();
+        AtomicLong scanned = new AtomicLong();
+        LongAdder processed = new LongAdder();
+        LongAdder accrued = new LongAdder();
+        LongAdder interestTotal = new LongAdder();
+        List<CompletableFuture<Void>> chunks = new ArrayList<>();
+        for (Shard shard : shards) {
+            List<String> ids = owned.get(shard.index);
+            for (int from = 0; from < ids.size(); from += INTEREST_CHUNK_SIZE) {
+                List<String> chunk = ids.subList(from, Math.min(from + INTEREST_CHUNK_SIZE, ids.size()));
+                CompletableFuture<Void> done = new CompletableFuture<>();
+                chunks.add(done);
+                shard.submit(() -> {
+                    try {
+                        List<Transaction> transactions = new ArrayList<>();
+                        long chunkProcessed = 0;
+                        long chunkInterest = 0;
+                        for (String accountId : chunk) {
+                            BankAccount account = accountRepository.findById(accountId);
+                            if (account == null || !filter.test(account)) {
+                                continue;
+                            }
+                            chunkProcessed++;
+                            long balance = account.getBalanceMinorUnits();
+                            long interest = Money.percentOf(balance, rate);
+                            if (interest == 0) {
+                                continue;
+                            }
+                            account.setBalanceMinorUnits(Math.addExact(balance, interest));
+                            accountRepository.save(account);
+                            chunkInterest += interest;
+                            transactions.add(new Transaction(idGenerator.nextString(), accountId,
+                                    Transaction.TransactionType.INTEREST, Money.ofMinor(interest)));
+                        }
+                        if (!transactions.isEmpty()) {
+                            transactionRepository.saveAll(transactions);
+                        }
+                        processed.add(chunkProcessed);
+                        accrued.add(transactions.size());
+                        interestTotal.add(chunkInterest);
+                        listener.onProgress(scanned.addAndGet(chunk.size()), total);
+                        done.complete(null);
+                    } catch (Throwable e) {
+                        done.completeExceptionally(e);
+                    }
+                });
+            }
+        }
+        for (int i = 0; i < chunks.size(); i++) {
+            await(chunks.get(i), null);
+        }
+
+        InterestAccrualReport report = new InterestAccrualReport(processed.sum(), accrued.sum(),
+                interestTotal.sum(), System.nanoTime() - start);
+        logger.debug("Applied interest of {}% to all accounts: {}", rate, report);
+        return report;
+    }
+
+    @Override
+    public void freezeAccount(String accountId) {
+        setFrozen(accountId, true);
+    }
+
+    @Override
+    public void unfreezeAccount(String accountId) {
+        setFrozen(accountId, false);
+    }
+
+    private void setFrozen(String accountId, boolean frozen) {
+        Objects.requireNonNull(accountId, "Account ID cannot be null");
+        call(accountId, () -> {
+            BankAccount account = findExisting(accountId);
+            account.setFrozen(frozen);
+            accountRepository.save(account);
+            return null;
+        });
+    }
+
+    @Override
+    public List<Transaction> getTransactionHistory(String accountId) {
+        return transactionRepository.findByAccountId(accountId);
+    }
+
+    @Override
+    public OperationResult[] executeBatch(List<Operation> operations, BatchMode mode) {
+        Objects.requireNonNull(operations, "Operations cannot be null");
+        Objects.requireNonNull(mode, "Batch mode cannot be null");
+        if (operations.isEmpty()) {
+            return new OperationResult[0];
+        }
+        checkOpen();
+
+        Set<String> accountIds = BatchExecutor.accountIds(operations);
+        Set<Integer> involved = new TreeSet<>();
+        for (String accountId : accountIds) {
+            involved.add(shardFor(accountId).index);
+        }
+
+        OperationResult[] results;
+        // Затронутые шарды останавливаются на барьере, и на время пакета их счета принадлежат вызывающему
+        synchronized (batchMonitor) {
+            CountDownLatch arrived = new CountDownLatch(involved.size());
+            CountDownLatch release = new CountDownLatch(1);
+            for (int index : involved) {
+                shards[index].submit(() -> {
+                    arrived.countDown();
+                    awaitUninterruptibly(release);
+                });
+            }
+            try {
+                awaitUninterruptibly(arrived);
+                results = BatchExecutor.execute(operations, mode, accountIds, accountRepository,
+                        AccountChangeListener.NONE);
+            } finally {
+                release.countDown();
+            }
+        }
+        // Проводки пишутся после освобождения шардов
+        List<Transaction> entries = BatchExecutor.ledgerEntries(operations, results, idGenerator::nextString,
+                LocalDateTime.now());
+        if (!entries.isEmpty()) {
+            transactionRepository.saveAll(entries);
+        }
+        logger.debug("Executed batch of {} operations in {} mode", results.length, mode);
+        return results;
+    }
+
+    @Override
+    public Page<BankAccount> getAccounts(String cursor, int limit) {
+        Page<BankAccount> page = accountRepository.findPage(cursor, limit);
+        return new Page<>(copyOnShards(page.getItems()), page.getNextCursor());
+    }
+
+    // Обход по страницам: в памяти только копии текущей страницы
+    @Override
+    public Stream<BankAccount> streamAccounts() {
+        return Stream.iterate(getAccounts(null, STREAM_PAGE_SIZE), Objects::nonNull,
+                        page -> page.hasNext() ? getAccounts(page.getNextCursor(), STREAM_PAGE_SIZE) : null)
+                .flatMap(page -> page.getItems().stream());
+    }
+
+    @Override
+    public Page<Transaction> getTransactionHistory(String accountId, String cursor, int limit) {
+        return transactionRepository.findByAccountId(accountId, cursor, limit);
+    }
+
+    @Override
+    public Stream<Transaction> streamTransactionHistory(String accountId) {
+        return transactionRepository.streamByAccountId(accountId);
+    }
+
+    @Override
+    public List<Transaction> getTransactionHistory(String accountId, LocalDateTime from, LocalDateTime to) {
+        return transactionRepository.findByAccountIdAndTimeRange(accountId, from, to);
+    }
+
+    @Override
+    public List<Transaction> getTransactions(LocalDateTime from, LocalDateTime to) {
+        return transactionRepository.findByTimeRange(from, to);
+    }
+
+    // Новые команды отклоняются; принятые команды и все зачисления выполняются до остановки шардов
+    @Override
+    public void close() {
+        closed = true;
+        for (Shard shard : shards) {
+            LockSupport.unpark(shard.thread);
+        }
+        for (Shard shard : shards) {
+            try {
+                shard.thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private BankAccount findExisting(String accountId) {
+        BankAccount account = accountRepository.findById(accountId);
+        if (account == null) {
+            throw new AccountNotFoundException("Account not found", false);
+        }
+        return account;
+    }
+
+    // Сумма в копейках; дробные копейки и неположительные суммы отклоняются
+    private static long positiveMinorUnits(Money amount, String operation) {
+        Objects.requireNonNull(amount, "Amount cannot be null");
+        if (!amount.isPositive()) {
+            throw new IllegalArgumentException(operation + " amount must be positive, got: " + amount);
+        }
+        return amount.toMinorUnits(Money.SCALE);
+    }
+
+    private Shard shardFor(String accountId) {
+        int hash = accountId.hashCode();
+        return shards[Math.floorMod(hash ^ (hash >>> 16), shards.length)];
+    }
+
+    private void checkOpen() {
+        if (closed) {
+            throw new IllegalStateException("Service is closed");
+        }
+    }
+
+    // Копии счетов снимаются потоками шардов-владельцев частями: счет изменяет только его шард,
+    // поэтому вызывающий не получает объект, который меняется параллельно. Порядок сохраняется,
+    // удаленные к моменту копирования счета пропускаются
+    private List<BankAccount> copyOnShards(List<BankAccount> accounts) {
+        List<List<Integer>> owned = new ArrayList<>(shards.length);
+        for (int i = 0; i < shards.length; i++) {
+            owned.add(new ArrayList<>());
+        }
+        for (int i = 0; i < accounts.size(); i++) {
+            owned.get(shardFor(accounts.get(i).getAccountId()).index).add(i);
+        }
+        BankAccount[] copies = new BankAccount[accounts.size()];
+        List<CompletableFuture<Void>> chunks = new ArrayList<>();
+        for (Shard shard : shards) {
+            List<Integer> positions = owned.get(shard.index);
+            for (int from = 0; from < positions.size(); from += COPY_CHUNK_SIZE) {
+                List<Integer> chunk = positions.subList(from, Math.min(from + COPY_CHUNK_SIZE, positions.size()));
+                CompletableFuture<Void> done = new CompletableFuture<>();
+                chunks.add(done);
+                shard.submit(() -> {
+                    try {
+                        for (int position : chunk) {
+                            BankAccount current = accountRepository.findById(accounts.get(position).getAccountId());
+                            if (current != null) {
+                                copies[position] = new BankAccount(current);
+                            }
+                        }
+                        done.complete(null);
+                    } catch (Throwable e) {
+                        done.completeExceptionally(e);
+                    }
+                });
+            }
+        }
+        for (int i = 0; i < chunks.size(); i++) {
+            await(chunks.get(i), null);
+        }
+        List<BankAccount> result = new ArrayList<>(copies.length);
+        for (BankAccount copy : copies) {
+            if (copy != null) {
+                result.add(copy);
+            }
+        }
+        return result;
+    }
+
+    // Выполнить действие в шарде счета и дождаться результата
+    private <T> T call(String accountId, Supplier<T> action) {
+        Shard shard = shardFor(accountId);
+        CompletableFuture<T> result = new CompletableFuture<>();
+        shard.submit(() -> {
+            try {
+                result.complete(action.get());
+            } catch (Throwable e) {
+                result.completeExceptionally(e);
+            }
+        });
+        return await(result, shard);
+    }
+
+    // Исключение команды пробрасывается вызывающему без обертки
+    private <T> T await(CompletableFuture<T> result, Shard shard) {
+        while (true) {
+            try {
+                return result.get(AWAIT_CHECK_MILLIS, TimeUnit.MILLISECONDS);
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof RuntimeException) {
+                    throw (RuntimeException) cause;
+                }
+                if (cause instanceof Error) {
+                    throw (Error) cause;
+                }
+                throw new IllegalStateException(cause);
+            } catch (TimeoutException e) {
+                // Команда, принятая в момент закрытия, может остаться невыполненной
+                if (shard != null && !shard.thread.isAlive() && !result.isDone()) {
+                    throw new IllegalStateException("Service is closed");
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while waiting for shard", e);
+            }
+        }
+    }
+
+    private static void awaitUninterruptibly(CountDownLatch latch) {
+        boolean interrupted = false;
+        while (true) {
+            try {
+                latch.await();
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // Поток шарда и его входящие очереди
+    private final class Shard implements Runnable {
+        private final int index;
+        private final MpscRingBuffer<Runnable> commands;
+        private final ConcurrentLinkedQueue<Runnable> credits = new ConcurrentLinkedQueue<>();
+        private final Thread thread;
+        private volatile boolean sleeping;
+
+        Shard(int index, int ringCapacity) {
+            this.index = index;
+            this.commands = new MpscRingBuffer<>(ringCapacity);
+            this.thread = new Thread(this, "account-shard-" + index);
+            this.thread.setDaemon(true);
+        }
+
+        // При заполненной очереди вызывающий ждет, пока шард освободит место
+        void submit(Runnable command) {
+            checkOpen();
+            int attempts = 0;
+            while (!commands.offer(command)) {
+                checkOpen();
+                if (++attempts < SPIN_LIMIT) {
+                    Thread.onSpinWait();
+                } else {
+                    LockSupport.parkNanos(PARK_NANOS);
+                }
+            }
+            wake();
+        }
+
+        void sendCredit(Runnable credit) {
+            credits.add(credit);
+            wake();
+        }
+
+        private void wake() {
+            if (sleeping) {
+                LockSupport.unpark(thread);
+            }
+        }
+
+        @Override
+        public void run() {
+            int idle = 0;
+            while (true) {
+                // Зачисления обрабатываются первыми: они завершают уже начатые переводы
+                Runnable next = credits.poll();
+                if (next == null) {
+                    next = commands.poll();
+                }
+                if (next != null) {
+                    idle = 0;
+                    try {
+                        next.run();
+                    } catch (Throwable e) {
+                        logger.error("Unexpected failure in account shard {}", index, e);
+                    }
+                    continue;
+                }
+                if (closed && pendingCredits.get() == 0 && commands.size() == 0 && credits.isEmpty()) {
+                    return;
+                }
+                if (++idle < SPIN_LIMIT) {
+                    Thread.onSpinWait();
+                    continue;
+                }
+                sleeping = true;
+                if (credits.isEmpty() && commands.size() == 0) {
+                    // Пробуждение может быть пропущено, поэтому сон ограничен по времени
+                    LockSupport.parkNanos(PARK_NANOS);
+                }
+                sleeping = false;
+            }
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package org.example;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Набор блокировок, распределённых по счетам (lock striping).
+// Счета с разными полосами обрабатываются параллельно, а две блокировки
+// всегда берутся в порядке возрастания номера полосы, что исключает взаимные блокировки.
+public class StripedLocks {
+    private static final int DEFAULT_STRIPES_PER_CORE = 64;
+
+    private final ReentrantLock[] stripes;
+    private final int mask;
+
+    public StripedLocks() {
+        this(Runtime.getRuntime().availableProcessors() * DEFAULT_STRIPES_PER_CORE);
+    }
+
+    public StripedLocks(int stripeCount) {
+        if (stripeCount <= 0) {
+            throw new IllegalArgumentException("Stripe count must be positive, got: " + stripeCount);
+        }
+        // Округляем до степени двойки, чтобы номер полосы вычислялся маской
+        int size = Integer.highestOneBit(stripeCount - 1) << 1;
+        if (size <= 0) {
+            size = 1;
+        }
+        this.stripes = new ReentrantLock[size];
+        for (int i = 0; i < size; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+        this.mask = size - 1;
+    }
+
+    // Номер полосы для счета
+    int stripeOf(String accountId) {
+        int h = accountId.hashCode();
+        return (h ^ (h >>> 16)) & mask;
+    }
+
+    public int getStripeCount() {
+        return stripes.length;
+    }
+
+    public void lock(String accountId) {
+        stripes[stripeOf(accountId)].lock();
+    }
+
+    public void unlock(String accountId) {
+        stripes[stripeOf(accountId)].unlock();
+    }
+
+    // Захват блокировок двух счетов в детерминированном порядке
+    public void lockBoth(String firstAccountId, String secondAccountId) {
+        int first = stripeOf(firstAccountId);
+        int second = stripeOf(secondAccountId);
+        if (first == second) {
+            stripes[first].lock();
+        } else if (first < second) {
+            stripes[first].lock();
+            stripes[second].lock();
+        } else {
+            stripes[second].lock();
+            stripes[first].lock();
+        }
+    }
+
+    public void unlockBoth(String firstAccountId, String secondAccountId) {
+        int first = stripeOf(firstAccountId);
+        int second = stripeOf(secondAccountId);
+        stripes[first].unlock();
+        if (first != second) {
+            stripes[second].unlock();
+        }
+    }
+
+    // Захват блокировок набора счетов в порядке возрастания полос.
+    // Возвращает номера захваченных полос для последующего unlockAll.
+    public int[] lockAll(Collection<String> accountIds) {
+        int[] indexes = new int[accountIds.size()];
+        int count = 0;
+        for (String accountId : accountIds) {
+            indexes[count++] = stripeOf(accountId);
+        }
+        Arrays.sort(indexes);
+        int unique = 0;
+        for (int i = 0; i < count; i++) {
+            if (unique == 0 || indexes[unique - 1] != indexes[i]) {
+                indexes[unique++] = indexes[i];
+            }
+        }
+        int[] acquired = Arrays.copyOf(indexes, unique);
+        for (int i = 0; i < acquired.length; i++) {
+            try {
+                stripes[acquired[i]].lock();
+            } catch (RuntimeException | Error e) {
+                unlockStripes(acquired, i);
+                throw e;
+            }
+        }
+        return acquired;
+    }
+
+    // Захват всех полос: барьер, после которого ни одна операция под блокировкой не выполняется
+    public void lockAllStripes() {
+        for (ReentrantLock stripe : stripes) {
+            stripe.lock();
+        }
+    }
+
+    public void unlockAllStripes() {
+        for (int i = stripes.length - 1; i >= 0; i--) {
+            stripes[i].unlock();
+        }
+    }
+
+    public void unlockAll(int[] acquired) {
+        unlockStripes(acquired, acquired.length);
+    }
+
+    private void unlockStripes(int[] acquired, int count) {
+        for (int i = count - 1; i >= 0; i--) {
+            stripes[acquired[i]].unlock();
+        }
+    }
+}
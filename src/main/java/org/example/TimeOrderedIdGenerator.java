@@ -0,0 +1,88 @@
+package org.example;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+// Генератор упорядоченных по времени идентификаторов в формате UUID версии 7.
+// Раскладка 128 бит:
+//   high: 48 бит - миллисекунды эпохи, 4 бита - версия (7), 12 бит - старшая часть счетчика
+//   low:  2 бита - вариант (10), 18 бит - младшая часть счетчика, 20 бит - номер полосы, 24 бита - узел
+// Счетчики разнесены по фиксированному набору полос (в несколько раз больше числа ядер), поток
+// выбирает полосу по хешу своего номера. Состояние не привязано к потокам, поэтому исполнитель,
+// создающий поток на каждую задачу, не порождает новых объектов и не исчерпывает номера полос.
+// В новой миллисекунде счетчик полосы начинается со случайного значения. В пределах полосы,
+// а значит и потока, идентификаторы строго возрастают.
+public class TimeOrderedIdGenerator implements IdGenerator {
+    private static final int SEQUENCE_BITS = 30;
+    private static final int SEQUENCE_LOW_BITS = 18;
+    private static final long SEQUENCE_MASK = (1L << SEQUENCE_BITS) - 1;
+    private static final int LANE_BITS = 20;
+    private static final int NODE_BITS = 24;
+    private static final long VERSION = 7L << 12;
+    private static final long VARIANT = 1L << 63;
+
+    private final long node;
+    private final Lane[] lanes;
+    private final int laneMask;
+
+    public TimeOrderedIdGenerator() {
+        this(ThreadLocalRandom.current().nextInt(1 << NODE_BITS));
+    }
+
+    // Номер узла различает генераторы разных процессов (используются младшие 24 бита)
+    public TimeOrderedIdGenerator(int node) {
+        this.node = node & ((1L << NODE_BITS) - 1);
+        int count = 1;
+        while (count < Runtime.getRuntime().availableProcessors() * 4 && count < 1 << LANE_BITS) {
+            count <<= 1;
+        }
+        this.lanes = new Lane[count];
+        for (int i = 0; i < count; i++) {
+            lanes[i] = new Lane(i);
+        }
+        this.laneMask = count - 1;
+    }
+
+    @Override
+    public CompactId next() {
+        Lane lane = lanes[laneOf(Thread.currentThread())];
+        long millis;
+        long sequence;
+        synchronized (lane) {
+            long now = System.currentTimeMillis();
+            if (now > lane.millis) {
+                lane.millis = now;
+                // Старт в нижней половине диапазона оставляет место для роста счетчика
+                lane.sequence = ThreadLocalRandom.current().nextLong(1L << (SEQUENCE_BITS - 1));
+            } else if (++lane.sequence > SEQUENCE_MASK) {
+                // Счетчик исчерпан (или часы пошли назад): занимаем следующую миллисекунду
+                lane.millis++;
+                lane.sequence = 0;
+            }
+            millis = lane.millis;
+            sequence = lane.sequence;
+        }
+        long high = (millis << 16) | VERSION | (sequence >>> SEQUENCE_LOW_BITS);
+        long low = VARIANT
+                | ((sequence & ((1L << SEQUENCE_LOW_BITS) - 1)) << (LANE_BITS + NODE_BITS))
+                | ((long) lane.index << NODE_BITS)
+                | node;
+        return new CompactId(high, low);
+    }
+
+    // Полоса потока: перемешанный номер потока, чтобы подряд созданные потоки расходились по полосам
+    private int laneOf(Thread thread) {
+        long mixed = thread.getId() * 0x9E3779B97F4A7C15L;
+        return (int) (mixed >>> 32) & laneMask;
+    }
+
+    // Счетчик полосы; изменяется под монитором объекта
+    private static final class Lane {
+        private final int index;
+        private long millis = Long.MIN_VALUE;
+        private long sequence;
+
+        Lane(int index) {
+            this.index = index;
+        }
+    }
+}
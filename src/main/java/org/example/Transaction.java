@@ -6,7 +6,7 @@ public class Transaction {
     private String id;
     private String accountId;
     private TransactionType type;
-    private double amount;
+    private long amount; // Сумма в копейках (Money.SCALE)
     private LocalDateTime timestamp;
 
     public enum TransactionType { DEPOSIT, WITHDRAWAL, TRANSFER, INTEREST }
@@ -14,15 +14,24 @@ public class Transaction {
     // Полный конструктор
     public Transaction(String id, String accountId, TransactionType type,
                        double amount, LocalDateTime timestamp) {
+        this(id, accountId, type, Money.of(amount), timestamp);
+    }
+
+    // Упрощенный конструктор (устанавливает текущее время автоматически)
+    public Transaction(String id, String accountId, TransactionType type, double amount) {
+        this(id, accountId, type, amount, LocalDateTime.now());
+    }
+
+    public Transaction(String id, String accountId, TransactionType type,
+                       Money amount, LocalDateTime timestamp) {
         this.id = id;
         this.accountId = accountId;
         this.type = type;
-        this.amount = amount;
+        this.amount = amount.toMinorUnits(Money.SCALE);
         this.timestamp = timestamp;
     }
 
-    // Упрощенный конструктор (устанавливает текущее время автоматически)
-    public Transaction(String id, String accountId, TransactionType type, double amount) {
+    public Transaction(String id, String accountId, TransactionType type, Money amount) {
         this(id, accountId, type, amount, LocalDateTime.now());
     }
 
@@ -51,13 +60,31 @@ public class Transaction {
     }
 
     public double getAmount() {
-        return amount;
+        return Money.toDouble(amount);
     }
 
     public void setAmount(double amount) {
+        this.amount = Money.toMinorUnits(amount);
+    }
+
+    public long getAmountMinorUnits() {
+        return amount;
+    }
+
+    public void setAmountMinorUnits(long amount) {
         this.amount = amount;
     }
 
+    public Money getAmountMoney() {
+        return Money.ofMinor(amount);
+    }
+
+    // Изменение баланса счета по проводке, в копейках. Сумма списания хранится положительной
+    // и уменьшает баланс; у перевода сумма хранится со знаком (списание отрицательное)
+    public long getBalanceEffectMinorUnits() {
+        return type == TransactionType.WITHDRAWAL ? -amount : amount;
+    }
+
     public LocalDateTime getTimestamp() {
         return timestamp;
     }
@@ -0,0 +1,161 @@
+package org.example;
+
+import java.nio.ByteBuffer;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+// Двоичный формат транзакции: запись фиксированного размера RECORD_SIZE, поля по
+// постоянным смещениям (числа BIG_ENDIAN, строки UTF-8 не длиннее MAX_ID_BYTES).
+// Раскладка версии 1 (совпадает с записями журнала JournalTransactionRepository):
+//   0 версия, 1 тип, 2 длина идентификатора (-1 - нет), 3 длина номера счета,
+//   4 сумма в копейках, 12 секунды эпохи UTC (Long.MIN_VALUE - нет времени), 20 наносекунды,
+//   24 идентификатор, 72 номер счета, 120..127 резерв.
+// Кодирование пишет прямо в буфер (в куче или прямой памяти) без промежуточных объектов;
+// Reader читает поля записи на месте.
+public final class TransactionCodec {
+    public static final byte VERSION = 1;
+    public static final int RECORD_SIZE = 128;
+    public static final int MAX_ID_BYTES = 48;
+
+    private static final int VERSION_OFFSET = 0;
+    private static final int TYPE_OFFSET = 1;
+    private static final int ID_LENGTH_OFFSET = 2;
+    private static final int ACCOUNT_LENGTH_OFFSET = 3;
+    private static final int AMOUNT_OFFSET = 4;
+    private static final int EPOCH_SECOND_OFFSET = 12;
+    private static final int NANO_OFFSET = 20;
+    private static final int ID_OFFSET = 24;
+    private static final int ACCOUNT_OFFSET = ID_OFFSET + MAX_ID_BYTES;
+    private static final int RESERVED_OFFSET = ACCOUNT_OFFSET + MAX_ID_BYTES;
+
+    private static final long NO_TIMESTAMP = Long.MIN_VALUE;
+    private static final Transaction.TransactionType[] TYPES = Transaction.TransactionType.values();
+
+    private TransactionCodec() {
+    }
+
+    // Проверить, что транзакцию можно закодировать (до начала записи в буфер)
+    public static void checkEncodable(Transaction transaction) {
+        if (transaction.getAccountId() == null || transaction.getType() == null) {
+            throw new IllegalArgumentException("Transaction account and type must not be null");
+        }
+        checkLength(transaction.getId(), "Transaction ID");
+        checkLength(transaction.getAccountId(), "Account ID");
+    }
+
+    // Записать транзакцию с текущей позиции буфера; позиция сдвигается на RECORD_SIZE
+    public static void encode(Transaction transaction, ByteBuffer buffer) {
+        int start = buffer.position();
+        encode(transaction, buffer, start);
+        buffer.position(start + RECORD_SIZE);
+    }
+
+    // Записать транзакцию по смещению offset, не меняя позицию буфера
+    public static void encode(Transaction transaction, ByteBuffer buffer, int offset) {
+        checkEncodable(transaction);
+        if (buffer.limit() - offset < RECORD_SIZE || offset < 0) {
+            throw new IllegalArgumentException("Buffer has no room for a transaction record at " + offset);
+        }
+        String id = transaction.getId();
+        LocalDateTime timestamp = transaction.getTimestamp();
+        buffer.put(offset + VERSION_OFFSET, VERSION);
+        buffer.put(offset + TYPE_OFFSET, (byte) transaction.getType().ordinal());
+        buffer.put(offset + ID_LENGTH_OFFSET,
+                (byte) (id == null ? -1 : BinaryFormat.putUtf8(buffer, offset + ID_OFFSET, id)));
+        buffer.put(offset + ACCOUNT_LENGTH_OFFSET,
+                (byte) BinaryFormat.putUtf8(buffer, offset + ACCOUNT_OFFSET, transaction.getAccountId()));
+        BinaryFormat.putLong(buffer, offset + AMOUNT_OFFSET, transaction.getAmountMinorUnits());
+        BinaryFormat.putLong(buffer, offset + EPOCH_SECOND_OFFSET,
+                timestamp == null ? NO_TIMESTAMP : timestamp.toEpochSecond(ZoneOffset.UTC));
+        BinaryFormat.putInt(buffer, offset + NANO_OFFSET, timestamp == null ? 0 : timestamp.getNano());
+        BinaryFormat.putLong(buffer, offset + RESERVED_OFFSET, 0);
+    }
+
+    // Прочитать транзакцию с текущей позиции буфера; позиция сдвигается на RECORD_SIZE
+    public static Transaction decode(ByteBuffer buffer) {
+        int start = buffer.position();
+        Transaction transaction = decode(buffer, start);
+        buffer.position(start + RECORD_SIZE);
+        return transaction;
+    }
+
+    public static Transaction decode(ByteBuffer buffer, int offset) {
+        return new Reader().wrap(buffer, offset).toTransaction();
+    }
+
+    private static void checkLength(String value, String field) {
+        if (value != null && BinaryFormat.utf8Length(value) > MAX_ID_BYTES) {
+            throw new IllegalArgumentException(field + " is longer than " + MAX_ID_BYTES + " bytes: " + value);
+        }
+    }
+
+    // Чтение полей записи на месте. Один объект переиспользуется для многих записей (wrap);
+    // строки и объекты создаются только методами, которые их возвращают. Не потокобезопасен.
+    public static final class Reader {
+        private ByteBuffer buffer;
+        private int offset;
+
+        public Reader wrap(ByteBuffer buffer, int offset) {
+            if (offset < 0 || buffer.limit() - offset < RECORD_SIZE) {
+                throw new IllegalArgumentException("Buffer has no transaction record at " + offset);
+            }
+            byte version = buffer.get(offset + VERSION_OFFSET);
+            if (version != VERSION) {
+                throw new IllegalStateException("Unsupported transaction record version: " + version);
+            }
+            this.buffer = buffer;
+            this.offset = offset;
+            return this;
+        }
+
+        public Transaction.TransactionType getType() {
+            return TYPES[buffer.get(offset + TYPE_OFFSET)];
+        }
+
+        public long getAmountMinorUnits() {
+            return BinaryFormat.getLong(buffer, offset + AMOUNT_OFFSET);
+        }
+
+        // См. Transaction.getBalanceEffectMinorUnits
+        public long getBalanceEffectMinorUnits() {
+            long amount = getAmountMinorUnits();
+            return getType() == Transaction.TransactionType.WITHDRAWAL ? -amount : amount;
+        }
+
+        public boolean hasTimestamp() {
+            return getEpochSecond() != NO_TIMESTAMP;
+        }
+
+        public long getEpochSecond() {
+            return BinaryFormat.getLong(buffer, offset + EPOCH_SECOND_OFFSET);
+        }
+
+        public int getNano() {
+            return BinaryFormat.getInt(buffer, offset + NANO_OFFSET);
+        }
+
+        public LocalDateTime getTimestamp() {
+            return hasTimestamp() ? LocalDateTime.ofEpochSecond(getEpochSecond(), getNano(), ZoneOffset.UTC) : null;
+        }
+
+        public String getId() {
+            int length = buffer.get(offset + ID_LENGTH_OFFSET);
+            return length < 0 ? null : BinaryFormat.getUtf8(buffer, offset + ID_OFFSET, length);
+        }
+
+        public String getAccountId() {
+            return BinaryFormat.getUtf8(buffer, offset + ACCOUNT_OFFSET, buffer.get(offset + ACCOUNT_LENGTH_OFFSET));
+        }
+
+        // Проверка счета без создания строки (фильтрация при обходе записей)
+        public boolean accountIdEquals(CharSequence accountId) {
+            return BinaryFormat.utf8Equals(buffer, offset + ACCOUNT_OFFSET,
+                    buffer.get(offset + ACCOUNT_LENGTH_OFFSET), accountId);
+        }
+
+        public Transaction toTransaction() {
+            return new Transaction(getId(), getAccountId(), getType(), Money.ofMinor(getAmountMinorUnits()),
+                    getTimestamp());
+        }
+    }
+}
@@ -1,8 +1,110 @@
 package org.example;
 
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
 import java.util.List;
+import java.util.stream.Stream;
 
 public interface TransactionRepository {
     void save(Transaction transaction);
     List<Transaction> findByAccountId(String accountId);
+
+    // Сохранить группу транзакций одним вызовом (хранилища с пакетной записью переопределяют)
+    default void saveAll(Collection<Transaction> transactions) {
+        for (Transaction transaction : transactions) {
+            save(transaction);
+        }
+    }
+
+    // Страница истории счета в порядке сохранения. Курсор - позиция в истории счета
+    // (null - с начала); так как история только дополняется, курсор остается корректным.
+    default Page<Transaction> findByAccountId(String accountId, String cursor, int limit) {
+        Page.checkLimit(limit);
+        List<Transaction> all = findByAccountId(accountId);
+        int from = Math.min(parseCursor(cursor), all.size());
+        int to = (int) Math.min((long) from + limit, all.size());
+        return new Page<>(new ArrayList<>(all.subList(from, to)), to < all.size() ? Integer.toString(to) : null);
+    }
+
+    // Ленивый обход истории счета
+    default Stream<Transaction> streamByAccountId(String accountId) {
+        return findByAccountId(accountId).stream();
+    }
+
+    // Транзакции счета с временем в полуинтервале [from, to), упорядоченные по времени.
+    // Реализация по умолчанию просматривает всю историю счета.
+    default List<Transaction> findByAccountIdAndTimeRange(String accountId, LocalDateTime from, LocalDateTime to) {
+        checkTimeRange(from, to);
+        List<Transaction> result = new ArrayList<>();
+        for (Transaction transaction : findByAccountId(accountId)) {
+            LocalDateTime timestamp = transaction.getTimestamp();
+            if (timestamp != null && !timestamp.isBefore(from) && timestamp.isBefore(to)) {
+                result.add(transaction);
+            }
+        }
+        result.sort(Comparator.comparing(Transaction::getTimestamp));
+        return result;
+    }
+
+    // Ленивый обход транзакций всех счетов (порядок не определен). Хранилища, которые
+    // могут перечислить все записи, переопределяют
+    default Stream<Transaction> streamAll() {
+        throw new UnsupportedOperationException(
+                "Full scan is not supported by " + getClass().getSimpleName());
+    }
+
+    // Транзакции всех счетов с временем в полуинтервале [from, to), упорядоченные по времени.
+    // Реализация по умолчанию просматривает streamAll(); хранилища с временным индексом переопределяют.
+    default List<Transaction> findByTimeRange(LocalDateTime from, LocalDateTime to) {
+        checkTimeRange(from, to);
+        List<Transaction> result = new ArrayList<>();
+        try (Stream<Transaction> all = streamAll()) {
+            for (Transaction transaction : (Iterable<Transaction>) all::iterator) {
+                LocalDateTime timestamp = transaction.getTimestamp();
+                if (timestamp != null && !timestamp.isBefore(from) && timestamp.isBefore(to)) {
+                    result.add(transaction);
+                }
+            }
+        }
+        result.sort(Comparator.comparing(Transaction::getTimestamp));
+        return result;
+    }
+
+    // Баланс счета, восстановленный по истории: сумма Transaction.getBalanceEffectMinorUnits.
+    // Хранилища, которые могут сложить суммы без создания объектов, переопределяют
+    default long sumBalanceEffects(String accountId) {
+        long sum = 0;
+        try (Stream<Transaction> history = streamByAccountId(accountId)) {
+            for (Transaction transaction : (Iterable<Transaction>) history::iterator) {
+                sum = Math.addExact(sum, transaction.getBalanceEffectMinorUnits());
+            }
+        }
+        return sum;
+    }
+
+    static void checkTimeRange(LocalDateTime from, LocalDateTime to) {
+        if (from == null || to == null) {
+            throw new IllegalArgumentException("Time range bounds must not be null");
+        }
+        if (from.isAfter(to)) {
+            throw new IllegalArgumentException("Time range start " + from + " is after end " + to);
+        }
+    }
+
+    static int parseCursor(String cursor) {
+        if (cursor == null) {
+            return 0;
+        }
+        try {
+            int position = Integer.parseInt(cursor);
+            if (position < 0) {
+                throw new IllegalArgumentException("Invalid cursor: " + cursor);
+            }
+            return position;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid cursor: " + cursor, e);
+        }
+    }
 }
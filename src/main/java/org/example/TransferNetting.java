@@ -0,0 +1,246 @@
+package org.example;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.Supplier;
+
+// Взаимозачет пакета переводов: переводы сворачиваются в чистые позиции счетов (параллельно,
+// по диапазонам пакета), средства проверяются по чистому результату, и каждый счет изменяется
+// один раз. Вызывающий обеспечивает исключительный доступ к счетам или использует tryApply.
+final class TransferNetting {
+    // Число переводов, которое сворачивает или записывает одна задача
+    private static final int CHUNK_SIZE = 4096;
+
+    private TransferNetting() {
+    }
+
+    // Чистые позиции пакета; некорректный перевод отклоняет весь пакет
+    static Positions net(List<Operation> transfers) {
+        return ForkJoinPool.commonPool().invoke(new NettingTask(transfers, 0, transfers.size()));
+    }
+
+    static Map<String, OperationResult> apply(Positions positions, AccountRepository accountRepository,
+                                              AccountChangeListener changeListener) {
+        return apply(positions, accountRepository, changeListener, false);
+    }
+
+    // Вариант без исключительного доступа: счета сохраняются одним compareAndSaveAll.
+    // null - счета изменили параллельно, попытку нужно повторить
+    static Map<String, OperationResult> tryApply(Positions positions, AccountRepository accountRepository,
+                                                 AccountChangeListener changeListener) {
+        return apply(positions, accountRepository, changeListener, true);
+    }
+
+    // Пустой результат - пакет применен; иначе счета, не прошедшие проверку, и ни одного изменения
+    private static Map<String, OperationResult> apply(Positions positions, AccountRepository accountRepository,
+                                                      AccountChangeListener changeListener, boolean optimistic) {
+        Map<String, OperationResult> rejections = new HashMap<>();
+        List<BankAccount> changed = new ArrayList<>();
+        // Новые балансы запоминаются отдельно и переносятся в счета только после проверки
+        // всех счетов: иначе отклоненный пакет оставил бы часть счетов измененными
+        long[] balances = new long[positions.nets.size()];
+        long[] expectedVersions = new long[positions.nets.size()];
+        for (Map.Entry<String, long[]> entry : positions.nets.entrySet()) {
+            String accountId = entry.getKey();
+            long net = entry.getValue()[0];
+            BankAccount account = accountRepository.findById(accountId);
+            if (account == null) {
+                rejections.put(accountId, OperationResult.ACCOUNT_NOT_FOUND);
+                continue;
+            }
+            if (account.isFrozen()) {
+                rejections.put(accountId, OperationResult.ACCOUNT_FROZEN);
+                continue;
+            }
+            long balance = account.getBalanceMinorUnits();
+            if (net < 0 && balance < -net) {
+                rejections.put(accountId, OperationResult.INSUFFICIENT_FUNDS);
+                continue;
+            }
+            if (net > Long.MAX_VALUE - balance) {
+                rejections.put(accountId, OperationResult.INVALID_OPERATION);
+                continue;
+            }
+            if (net == 0) {
+                continue;
+            }
+            expectedVersions[changed.size()] = account.getVersion();
+            balances[changed.size()] = balance + net;
+            changed.add(account);
+        }
+        if (!rejections.isEmpty() || changed.isEmpty()) {
+            return rejections;
+        }
+        for (int i = 0; i < changed.size(); i++) {
+            BankAccount account = optimistic ? new BankAccount(changed.get(i)) : changed.get(i);
+            account.setBalanceMinorUnits(balances[i]);
+            changed.set(i, account);
+        }
+        if (!optimistic) {
+            accountRepository.saveAll(changed);
+        } else if (!accountRepository.compareAndSaveAll(changed,
+                Arrays.copyOf(expectedVersions, changed.size()))) {
+            return null;
+        }
+        changeListener.onCommitted(changed);
+        return rejections;
+    }
+
+    // Проводки по каждому переводу: списание у источника (отрицательная сумма) и зачисление получателю
+    static void record(List<Operation> transfers, TransactionRepository transactionRepository,
+                       Supplier<String> ids, LocalDateTime timestamp) {
+        ForkJoinPool.commonPool().invoke(
+                new RecordTask(transfers, 0, transfers.size(), transactionRepository, ids, timestamp));
+    }
+
+    // Чистые позиции счетов и оборот пакета
+    static final class Positions {
+        // Значение - массив из одного элемента, чтобы складывать без упаковки
+        private final Map<String, long[]> nets;
+        private long grossAmount;
+
+        Positions(Map<String, long[]> nets) {
+            this.nets = nets;
+        }
+
+        List<String> accountIds() {
+            return new ArrayList<>(nets.keySet());
+        }
+
+        int changedAccounts() {
+            int count = 0;
+            for (long[] net : nets.values()) {
+                if (net[0] != 0) {
+                    count++;
+                }
+            }
+            return count;
+        }
+
+        long grossAmount() {
+            return grossAmount;
+        }
+
+        // Сумма положительных позиций - столько реально перемещается после взаимозачета
+        long netAmount() {
+            long total = 0;
+            for (long[] net : nets.values()) {
+                if (net[0] > 0) {
+                    total += net[0];
+                }
+            }
+            return total;
+        }
+
+        void add(String accountId, long amount) {
+            long[] net = nets.computeIfAbsent(accountId, id -> new long[1]);
+            net[0] = Math.addExact(net[0], amount);
+        }
+
+        // Слияние меньшей таблицы в большую
+        Positions merge(Positions other) {
+            Positions target = nets.size() >= other.nets.size() ? this : other;
+            Positions source = target == this ? other : this;
+            for (Map.Entry<String, long[]> entry : source.nets.entrySet()) {
+                target.add(entry.getKey(), entry.getValue()[0]);
+            }
+            target.grossAmount = Math.addExact(grossAmount, other.grossAmount);
+            return target;
+        }
+    }
+
+    private static final class NettingTask extends RecursiveTask<Positions> {
+        private final List<Operation> transfers;
+        private final int from;
+        private final int to;
+
+        NettingTask(List<Operation> transfers, int from, int to) {
+            this.transfers = transfers;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected Positions compute() {
+            if (to - from > CHUNK_SIZE) {
+                int middle = (from + to) >>> 1;
+                NettingTask right = new NettingTask(transfers, middle, to);
+                right.fork();
+                Positions left = new NettingTask(transfers, from, middle).compute();
+                return left.merge(right.join());
+            }
+            Positions positions = new Positions(new HashMap<>());
+            for (int i = from; i < to; i++) {
+                Operation transfer = transfers.get(i);
+                validate(transfer);
+                long amount = transfer.getAmountMinorUnits();
+                positions.add(transfer.getAccountId(), -amount);
+                positions.add(transfer.getTargetAccountId(), amount);
+                positions.grossAmount = Math.addExact(positions.grossAmount, amount);
+            }
+            return positions;
+        }
+
+        private static void validate(Operation transfer) {
+            Objects.requireNonNull(transfer, "Transfer cannot be null");
+            if (transfer.getType() != Operation.Type.TRANSFER) {
+                throw new IllegalArgumentException("Only transfers can be netted, got: " + transfer);
+            }
+            Objects.requireNonNull(transfer.getAccountId(), "Source account ID cannot be null");
+            Objects.requireNonNull(transfer.getTargetAccountId(), "Target account ID cannot be null");
+            if (transfer.getAccountId().equals(transfer.getTargetAccountId())) {
+                throw new IllegalArgumentException("Cannot transfer to the same account");
+            }
+            if (transfer.getAmountMinorUnits() <= 0) {
+                throw new IllegalArgumentException("Transfer amount must be positive, got: " + transfer);
+            }
+        }
+    }
+
+    private static final class RecordTask extends RecursiveAction {
+        private final List<Operation> transfers;
+        private final int from;
+        private final int to;
+        private final TransactionRepository transactionRepository;
+        private final Supplier<String> ids;
+        private final LocalDateTime timestamp;
+
+        RecordTask(List<Operation> transfers, int from, int to, TransactionRepository transactionRepository,
+                   Supplier<String> ids, LocalDateTime timestamp) {
+            this.transfers = transfers;
+            this.from = from;
+            this.to = to;
+            this.transactionRepository = transactionRepository;
+            this.ids = ids;
+            this.timestamp = timestamp;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > CHUNK_SIZE) {
+                int middle = (from + to) >>> 1;
+                invokeAll(new RecordTask(transfers, from, middle, transactionRepository, ids, timestamp),
+                        new RecordTask(transfers, middle, to, transactionRepository, ids, timestamp));
+                return;
+            }
+            List<Transaction> transactions = new ArrayList<>((to - from) * 2);
+            for (int i = from; i < to; i++) {
+                Operation transfer = transfers.get(i);
+                long amount = transfer.getAmountMinorUnits();
+                transactions.add(new Transaction(ids.get(), transfer.getAccountId(),
+                        Transaction.TransactionType.TRANSFER, Money.ofMinor(-amount), timestamp));
+                transactions.add(new Transaction(ids.get(), transfer.getTargetAccountId(),
+                        Transaction.TransactionType.TRANSFER, Money.ofMinor(amount), timestamp));
+            }
+            transactionRepository.saveAll(transactions);
+        }
+    }
+}
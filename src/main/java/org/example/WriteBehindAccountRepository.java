@@ -0,0 +1,347 @@
+package org.example;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+// Отложенная запись в AccountRepository: изменения счетов накапливаются в памяти, повторные
+// сохранения одного счета сливаются в одно, а в хранилище уходят пакетом (saveAll) - по таймеру
+// или при накоплении maxBatchSize измененных счетов. Объем записи в хранилище зависит от числа
+// различных счетов, а не от числа операций.
+// Чтение видит несброшенные изменения. Если включено подтверждение сброса (acknowledgeAfterFlush),
+// save и delete возвращают управление только после сброса, включающего их изменение;
+// несколько ожидающих потоков подтверждаются одним сбросом.
+// Если сброс завершился ошибкой, изменения остаются в буфере и будут повторены при следующем сбросе.
+// После close() save и delete отклоняются с IllegalStateException.
+// Условное сохранение по версии поддерживается, если его поддерживает хранилище: версия
+// сверяется с несброшенным изменением счета, а если его нет - с хранилищем.
+public class WriteBehindAccountRepository implements AccountRepository, Closeable {
+    private static final Logger logger = LoggerFactory.getLogger(WriteBehindAccountRepository.class);
+
+    private final AccountRepository delegate;
+    private final int maxBatchSize;
+    private final boolean acknowledgeAfterFlush;
+    private final ConcurrentMap<String, Pending> dirty = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService flusher;
+    private final AtomicBoolean flushRequested = new AtomicBoolean();
+    // Изменение буфера выполняется под блокировкой полосы счета, чтобы условное сохранение
+    // проверяло и заменяло версию атомарно
+    private final StripedLocks locks = new StripedLocks();
+    private volatile boolean closed;
+
+    // Поколения сбросов: ожидающий поток ждет завершения сброса, начатого после его записи
+    private final Object flushLock = new Object();
+    private final Object completionMonitor = new Object();
+    private volatile long startedFlushes;
+    private long completedFlushes;
+    private long failedFlush;
+    private RuntimeException lastFailure;
+
+    private final LongAdder coalesced = new LongAdder();
+    private final LongAdder flushedAccounts = new LongAdder();
+    private final LongAdder flushes = new LongAdder();
+
+    public WriteBehindAccountRepository(AccountRepository delegate, int maxBatchSize,
+                                        long flushInterval, TimeUnit unit) {
+        this(delegate, maxBatchSize, flushInterval, unit, false);
+    }
+
+    public WriteBehindAccountRepository(AccountRepository delegate, int maxBatchSize,
+                                        long flushInterval, TimeUnit unit, boolean acknowledgeAfterFlush) {
+        if (maxBatchSize <= 0) {
+            throw new IllegalArgumentException("Batch size must be positive, got: " + maxBatchSize);
+        }
+        if (flushInterval <= 0) {
+            throw new IllegalArgumentException("Flush interval must be positive, got: " + flushInterval);
+        }
+        this.delegate = delegate;
+        this.maxBatchSize = maxBatchSize;
+        this.acknowledgeAfterFlush = acknowledgeAfterFlush;
+        this.flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "account-write-behind");
+            thread.setDaemon(true);
+            return thread;
+        });
+        flusher.scheduleWithFixedDelay(this::flushQuietly, flushInterval, flushInterval, unit);
+    }
+
+    @Override
+    public BankAccount findById(String accountId) {
+        Pending pending = dirty.get(accountId);
+        if (pending != null) {
+            return pending.account;
+        }
+        return delegate.findById(accountId);
+    }
+
+    @Override
+    public void save(BankAccount account) {
+        enqueue(account.getAccountId(), new Pending(account));
+    }
+
+    @Override
+    public void delete(String accountId) {
+        enqueue(accountId, new Pending(null));
+    }
+
+    @Override
+    public boolean supportsCompareAndSave() {
+        return delegate.supportsCompareAndSave();
+    }
+
+    @Override
+    public boolean compareAndSave(BankAccount account, long expectedVersion) {
+        checkOpen();
+        String accountId = account.getAccountId();
+        locks.lock(accountId);
+        try {
+            if (!hasVersion(accountId, expectedVersion)) {
+                return false;
+            }
+            account.setVersion(expectedVersion + 1);
+            put(accountId, new Pending(account));
+        } finally {
+            locks.unlock(accountId);
+        }
+        afterEnqueue();
+        return true;
+    }
+
+    @Override
+    public boolean compareAndSaveAll(List<BankAccount> accounts, long[] expectedVersions) {
+        if (accounts.size() != expectedVersions.length) {
+            throw new IllegalArgumentException("Expected " + accounts.size() + " versions, got: "
+                    + expectedVersions.length);
+        }
+        checkOpen();
+        List<String> accountIds = new ArrayList<>(accounts.size());
+        for (BankAccount account : accounts) {
+            accountIds.add(account.getAccountId());
+        }
+        int[] acquired = locks.lockAll(accountIds);
+        try {
+            for (int i = 0; i < expectedVersions.length; i++) {
+                if (!hasVersion(accountIds.get(i), expectedVersions[i])) {
+                    return false;
+                }
+            }
+            for (int i = 0; i < expectedVersions.length; i++) {
+                BankAccount account = accounts.get(i);
+                account.setVersion(expectedVersions[i] + 1);
+                put(accountIds.get(i), new Pending(account));
+            }
+        } finally {
+            locks.unlockAll(acquired);
+        }
+        afterEnqueue();
+        return true;
+    }
+
+    // Несброшенные изменения накладываются на содержимое хранилища
+    @Override
+    public List<BankAccount> findAll() {
+        Map<String, BankAccount> merged = new LinkedHashMap<>();
+        for (BankAccount account : delegate.findAll()) {
+            merged.put(account.getAccountId(), account);
+        }
+        for (Map.Entry<String, Pending> entry : dirty.entrySet()) {
+            if (entry.getValue().account == null) {
+                merged.remove(entry.getKey());
+            } else {
+                merged.put(entry.getKey(), entry.getValue().account);
+            }
+        }
+        return new ArrayList<>(merged.values());
+    }
+
+    // Сбросить все накопленные изменения в хранилище
+    public void flush() {
+        synchronized (flushLock) {
+            // Флаг снимается до нового поколения: поток, увидевший это поколение, сможет запросить
+            // следующий сброс, а не будет ждать таймера
+            flushRequested.set(false);
+            long generation = ++startedFlushes;
+            RuntimeException failure = null;
+            try {
+                writeDirty();
+            } catch (RuntimeException e) {
+                failure = e;
+            }
+            synchronized (completionMonitor) {
+                completedFlushes = generation;
+                if (failure != null) {
+                    failedFlush = generation;
+                    lastFailure = failure;
+                }
+                completionMonitor.notifyAll();
+            }
+            if (failure != null) {
+                throw failure;
+            }
+        }
+    }
+
+    // Число счетов с несброшенными изменениями
+    public int getPendingCount() {
+        return dirty.size();
+    }
+
+    // Сохранения, поглощенные более поздним сохранением того же счета
+    public long getCoalescedCount() {
+        return coalesced.sum();
+    }
+
+    public long getFlushedAccountCount() {
+        return flushedAccounts.sum();
+    }
+
+    public long getFlushCount() {
+        return flushes.sum();
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        flusher.shutdown();
+        try {
+            flusher.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flush();
+    }
+
+    private void enqueue(String accountId, Pending pending) {
+        checkOpen();
+        locks.lock(accountId);
+        try {
+            put(accountId, pending);
+        } finally {
+            locks.unlock(accountId);
+        }
+        afterEnqueue();
+    }
+
+    private void checkOpen() {
+        if (closed) {
+            throw new IllegalStateException("Write-behind repository is closed");
+        }
+    }
+
+    // Вызывается под блокировкой полосы счета. Сброс удаляет запись из буфера только после
+    // записи в хранилище, поэтому при отсутствии записи в буфере хранилище уже актуально
+    private boolean hasVersion(String accountId, long expectedVersion) {
+        Pending pending = dirty.get(accountId);
+        BankAccount current = pending != null ? pending.account : delegate.findById(accountId);
+        return current != null && current.getVersion() == expectedVersion;
+    }
+
+    // Вызывается под блокировкой полосы счета
+    private void put(String accountId, Pending pending) {
+        if (dirty.put(accountId, pending) != null) {
+            coalesced.increment();
+        }
+    }
+
+    private void afterEnqueue() {
+        if (acknowledgeAfterFlush) {
+            // Сброс с номером больше прочитанного начнется уже после нашей записи
+            long observed = startedFlushes;
+            requestFlush();
+            awaitFlush(observed);
+        } else if (dirty.size() >= maxBatchSize) {
+            requestFlush();
+        }
+    }
+
+    private void requestFlush() {
+        if (flushRequested.compareAndSet(false, true)) {
+            try {
+                flusher.execute(this::flushQuietly);
+            } catch (RuntimeException e) {
+                // Исполнитель остановлен гонкой с close(): сбрасываем в вызывающем потоке,
+                // иначе изменение останется в буфере, а ожидающий поток не дождется сброса
+                flushRequested.set(false);
+                flushQuietly();
+            }
+        }
+    }
+
+    private void awaitFlush(long observed) {
+        synchronized (completionMonitor) {
+            while (completedFlushes <= observed) {
+                try {
+                    completionMonitor.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException("Interrupted while waiting for write-behind flush", e);
+                }
+            }
+            if (failedFlush > observed) {
+                throw new IllegalStateException("Write-behind flush is not confirmed", lastFailure);
+            }
+        }
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            logger.error("Write-behind flush failed, {} accounts stay pending", dirty.size(), e);
+        }
+    }
+
+    // Вызывается под flushLock. Запись удаляется из буфера, только если ее не заменили во время сброса
+    private void writeDirty() {
+        if (dirty.isEmpty()) {
+            return;
+        }
+        List<Map.Entry<String, Pending>> snapshot = new ArrayList<>(dirty.size());
+        List<BankAccount> saved = new ArrayList<>();
+        for (Map.Entry<String, Pending> entry : dirty.entrySet()) {
+            Pending pending = entry.getValue();
+            snapshot.add(Map.entry(entry.getKey(), pending));
+            if (pending.account != null) {
+                saved.add(pending.account);
+            }
+            if (saved.size() == maxBatchSize) {
+                delegate.saveAll(saved);
+                saved = new ArrayList<>();
+            }
+        }
+        if (!saved.isEmpty()) {
+            delegate.saveAll(saved);
+        }
+        for (Map.Entry<String, Pending> entry : snapshot) {
+            if (entry.getValue().account == null) {
+                delegate.delete(entry.getKey());
+            }
+        }
+        for (Map.Entry<String, Pending> entry : snapshot) {
+            dirty.remove(entry.getKey(), entry.getValue());
+        }
+        flushedAccounts.add(snapshot.size());
+        flushes.increment();
+    }
+
+    // Последнее несброшенное состояние счета; account == null - счет удален
+    private static final class Pending {
+        private final BankAccount account;
+
+        Pending(BankAccount account) {
+            this.account = account;
+        }
+    }
+}
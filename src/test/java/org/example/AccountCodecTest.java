@@ -0,0 +1,75 @@
+package org.example;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AccountCodecTest {
+    @Test
+    void encodeDecode_HeapAndDirectBuffers_RoundTrip() {
+        BankAccount account = new BankAccount("acc-1", "Иван Петров 😀", Money.parse("1234.56"));
+        account.setFrozen(true);
+        account.setVersion(42);
+
+        for (ByteBuffer buffer : new ByteBuffer[]{ByteBuffer.allocate(256),
+                ByteBuffer.allocateDirect(256).order(ByteOrder.LITTLE_ENDIAN)}) {
+            buffer.position(3);
+            AccountCodec.encode(account, buffer);
+            assertEquals(3 + AccountCodec.encodedSize(account), buffer.position());
+
+            buffer.position(3);
+            BankAccount decoded = AccountCodec.decode(buffer);
+            assertEquals(3 + AccountCodec.encodedSize(account), buffer.position());
+            assertEquals("acc-1", decoded.getAccountId());
+            assertEquals(account.getOwnerName(), decoded.getOwnerName());
+            assertEquals(123456, decoded.getBalanceMinorUnits());
+            assertTrue(decoded.isFrozen());
+            assertEquals(42, decoded.getVersion());
+        }
+    }
+
+    @Test
+    void reader_ReadsConsecutiveRecordsInPlace() {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(1024);
+        for (int i = 0; i < 10; i++) {
+            AccountCodec.encode(new BankAccount("acc" + i, i % 2 == 0 ? null : "owner" + i, Money.ofMinor(i)),
+                    buffer);
+        }
+        int end = buffer.position();
+
+        AccountCodec.Reader reader = new AccountCodec.Reader();
+        long total = 0;
+        int records = 0;
+        for (int offset = 0; offset < end; offset += reader.size()) {
+            reader.wrap(buffer, offset);
+            total += reader.getBalanceMinorUnits();
+            if (reader.accountIdEquals("acc7")) {
+                assertEquals("owner7", reader.getOwnerName());
+            }
+            records++;
+        }
+        assertEquals(10, records);
+        assertEquals(45, total);
+        assertNull(reader.wrap(buffer, 0).getOwnerName());
+        assertFalse(reader.accountIdEquals("acc"));
+    }
+
+    @Test
+    void invalidInput_IsRejected() {
+        BankAccount account = new BankAccount("acc", "owner", Money.ZERO);
+        assertThrows(IllegalArgumentException.class, () -> AccountCodec.encode(account, ByteBuffer.allocate(10), 0));
+        assertThrows(IllegalArgumentException.class,
+                () -> AccountCodec.encodedSize(new BankAccount("x".repeat(AccountCodec.MAX_STRING_BYTES + 1),
+                        null, Money.ZERO)));
+
+        ByteBuffer buffer = ByteBuffer.allocate(64);
+        AccountCodec.encode(account, buffer, 0);
+        buffer.put(0, (byte) 9);
+        assertThrows(IllegalStateException.class, () -> AccountCodec.decode(buffer, 0));
+        assertThrows(IllegalArgumentException.class,
+                () -> new AccountCodec.Reader().wrap(buffer.duplicate().limit(10), 0));
+    }
+}
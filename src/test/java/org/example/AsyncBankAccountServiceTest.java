@@ -0,0 +1,101 @@
+package org.example;
+
+import org.junit.jupiter.api.Test;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyDouble;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+class AsyncBankAccountServiceTest {
+    @Test
+    void concurrentDeposits_AllApplied() throws Exception {
+        BankAccountService service = new BankAccountServiceImpl(
+                new InMemoryAccountRepository(), new InMemoryTransactionRepository());
+        try (AsyncBankAccountService async = new AsyncBankAccountService(service)) {
+            BankAccount first = async.createAccount("John", 0).get();
+            BankAccount second = async.createAccount("Jane", 0).get();
+
+            List<CompletableFuture<Void>> futures = new ArrayList<>();
+            for (int i = 0; i < 1000; i++) {
+                futures.add(async.deposit(first.getAccountId(), Money.parse("1.00")));
+                futures.add(async.transfer(first.getAccountId(), second.getAccountId(), Money.parse("0.50")));
+            }
+            CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).get(30, TimeUnit.SECONDS);
+
+            assertEquals(Money.parse("1000.00"), async.getBalanceMoney(first.getAccountId()).get()
+                    .plus(async.getBalanceMoney(second.getAccountId()).get()));
+            assertEquals(0, async.getActiveAccountCount());
+        }
+    }
+
+    @Test
+    void failedOperation_CompletesExceptionally() throws Exception {
+        BankAccountService service = new BankAccountServiceImpl(
+                new InMemoryAccountRepository(), new InMemoryTransactionRepository());
+        try (AsyncBankAccountService async = new AsyncBankAccountService(service)) {
+            BankAccount account = async.createAccount("John", 10).get();
+
+            ExecutionException thrown = assertThrows(ExecutionException.class,
+                    () -> async.withdraw(account.getAccountId(), 100).get());
+            assertTrue(thrown.getCause() instanceof InsufficientFundsException);
+            // Разрешение счета освобождено и после ошибки
+            async.withdraw(account.getAccountId(), 5).get();
+            assertEquals(5.0, async.getBalance(account.getAccountId()).get());
+        }
+    }
+
+    @Test
+    void nullAccountIds_CompleteExceptionallyOrAreRejectedByBatch() throws Exception {
+        BankAccountService service = new BankAccountServiceImpl(
+                new InMemoryAccountRepository(), new InMemoryTransactionRepository());
+        try (AsyncBankAccountService async = new AsyncBankAccountService(service)) {
+            String accountId = async.createAccount("John", 10).get().getAccountId();
+
+            CompletableFuture<Void> deposit = async.deposit(null, 1.0);
+            assertTrue(assertThrows(ExecutionException.class, deposit::get).getCause()
+                    instanceof NullPointerException);
+            CompletableFuture<Void> transfer = async.transfer(accountId, null, Money.parse("1.00"));
+            assertTrue(assertThrows(ExecutionException.class, transfer::get).getCause()
+                    instanceof NullPointerException);
+
+            List<Operation> operations = new ArrayList<>();
+            operations.add(null);
+            operations.add(Operation.deposit(null, Money.parse("1.00")));
+            operations.add(Operation.deposit(accountId, Money.parse("1.00")));
+            assertArrayEquals(new OperationResult[]{OperationResult.INVALID_OPERATION,
+                    OperationResult.INVALID_OPERATION, OperationResult.SUCCESS},
+                    async.executeBatch(operations, BatchMode.BEST_EFFORT).get());
+            assertEquals(0, async.getActiveAccountCount());
+        }
+    }
+
+    @Test
+    void operationsOnSameAccount_RespectConcurrencyLimit() throws Exception {
+        BankAccountService service = mock(BankAccountService.class);
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger maxInFlight = new AtomicInteger();
+        doAnswer(invocation -> {
+            int current = inFlight.incrementAndGet();
+            maxInFlight.accumulateAndGet(current, Math::max);
+            Thread.sleep(2);
+            inFlight.decrementAndGet();
+            return null;
+        }).when(service).deposit(eq("acc1"), anyDouble());
+
+        try (AsyncBankAccountService async = new AsyncBankAccountService(service, 2)) {
+            List<CompletableFuture<Void>> futures = new ArrayList<>();
+            for (int i = 0; i < 50; i++) {
+                futures.add(async.deposit("acc1", 1.0));
+            }
+            CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).get(30, TimeUnit.SECONDS);
+        }
+        assertTrue(maxInFlight.get() <= 2);
+    }
+}
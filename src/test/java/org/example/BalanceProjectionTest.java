@@ -0,0 +1,187 @@
+package org.example;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BalanceProjectionTest {
+    private BalanceProjection projection;
+    private BankAccountServiceImpl service;
+
+    @BeforeEach
+    void setUp() {
+        projection = new BalanceProjection(1024);
+        service = new BankAccountServiceImpl(new InMemoryAccountRepository(), new InMemoryTransactionRepository(),
+                new StripedLocks(), ServiceMetrics.NONE, new TimeOrderedIdGenerator(), new IdempotencyStore(),
+                projection);
+    }
+
+    @AfterEach
+    void tearDown() {
+        projection.close();
+    }
+
+    @Test
+    void committedChanges_AppearInSnapshotAfterCatchUp() {
+        String first = service.createAccount("John", Money.parse("100.00")).getAccountId();
+        String second = service.createAccount("Jane", Money.ZERO).getAccountId();
+        service.transfer(first, second, Money.parse("30.00"));
+        service.freezeAccount(second);
+        assertEquals(OperationResult.INSUFFICIENT_FUNDS, service.tryWithdraw(first, Money.parse("500.00")));
+
+        assertTrue(projection.awaitCatchUp(5, TimeUnit.SECONDS));
+        assertEquals(0, projection.getLag());
+        assertEquals(0, projection.getStalenessNanos());
+        assertEquals(Money.parse("70.00"), projection.getBalance(first));
+        assertEquals(Money.parse("30.00"), projection.getBalance(second));
+        assertTrue(projection.getAccount(second).isFrozen());
+        assertEquals(2, projection.getAccounts().size());
+        assertNull(projection.getAccount("missing"));
+        assertThrows(AccountNotFoundException.class, () -> projection.getBalance("missing"));
+    }
+
+    @Test
+    void snapshots_StayConsistentDuringConcurrentTransfers() throws Exception {
+        int accountCount = 2000;
+        List<String> ids = new ArrayList<>();
+        for (int i = 0; i < accountCount; i++) {
+            ids.add(service.createAccount("owner" + i, Money.ofMinor(1000)).getAccountId());
+        }
+        long expectedTotal = accountCount * 1000L;
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            futures.add(executor.submit(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                for (int i = 0; i < 5000; i++) {
+                    int from = random.nextInt(accountCount);
+                    int to = (from + 1 + random.nextInt(accountCount - 1)) % accountCount;
+                    service.tryTransfer(ids.get(from), ids.get(to), Money.ofMinor(1 + random.nextInt(50)));
+                }
+                return null;
+            }));
+        }
+
+        // Каждый опубликованный снимок содержит переводы целиком, поэтому сумма балансов не меняется
+        AtomicBoolean done = new AtomicBoolean();
+        Future<Integer> reader = Executors.newSingleThreadExecutor().submit(() -> {
+            int checked = 0;
+            while (!done.get()) {
+                BalanceSnapshot snapshot = projection.snapshot();
+                if (snapshot.size() == accountCount) {
+                    long total = 0;
+                    for (AccountView view : snapshot.getAccounts()) {
+                        total += view.getBalanceMinorUnits();
+                    }
+                    assertEquals(expectedTotal, total);
+                    checked++;
+                }
+            }
+            return checked;
+        });
+
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+        assertTrue(projection.awaitCatchUp(5, TimeUnit.SECONDS));
+        done.set(true);
+        assertTrue(reader.get() > 0);
+
+        for (String id : ids) {
+            assertEquals(service.getBalanceMoney(id), projection.getBalance(id));
+        }
+    }
+
+    @Test
+    void withProjection_ServesBalancesAndDetachedAccountsFromSnapshot() {
+        InMemoryAccountRepository accounts = new InMemoryAccountRepository();
+        accounts.save(new BankAccount("existing", "John", Money.parse("10.00")));
+        BankAccountServiceImpl reader = BankAccountServiceImpl.withProjection(accounts,
+                new InMemoryTransactionRepository(), projection);
+        String created = reader.createAccount("Jane", Money.parse("5.00")).getAccountId();
+        reader.transfer("existing", created, Money.parse("4.00"));
+
+        assertTrue(projection.awaitCatchUp(5, TimeUnit.SECONDS));
+        assertEquals(Money.parse("6.00"), reader.getBalanceMoney("existing"));
+        assertEquals(Money.parse("9.00"), reader.getBalanceMoney(created));
+        assertThrows(AccountNotFoundException.class, () -> reader.getBalance("missing"));
+
+        List<BankAccount> all = reader.getAllAccounts();
+        assertEquals(2, all.size());
+        all.get(0).setBalanceMinorUnits(0);
+        assertNotEquals(0, accounts.findById(all.get(0).getAccountId()).getBalanceMinorUnits());
+    }
+
+    @Test
+    void unfoldedHotCredits_AreVisibleInBalanceAndStaleness() throws Exception {
+        BankAccountServiceImpl reader = BankAccountServiceImpl.withProjection(new InMemoryAccountRepository(),
+                new InMemoryTransactionRepository(), projection);
+        String id = reader.createAccount("John", Money.ZERO).getAccountId();
+        reader.setHotAccount(id, true);
+        reader.deposit(id, Money.parse("3.00"));
+        assertTrue(projection.awaitCatchUp(5, TimeUnit.SECONDS));
+        Thread.sleep(2);
+
+        // Зачисление еще не в проекции, но баланс его учитывает, а снимок не считается актуальным
+        assertEquals(Money.ZERO, projection.getBalance(id));
+        assertEquals(Money.parse("3.00"), reader.getBalanceMoney(id));
+        assertTrue(projection.getStalenessNanos() > 0);
+
+        reader.foldHotAccounts();
+        assertTrue(projection.awaitCatchUp(5, TimeUnit.SECONDS));
+        assertEquals(Money.parse("3.00"), projection.getBalance(id));
+        assertEquals(0, projection.getStalenessNanos());
+    }
+
+    @Test
+    void hotBalance_NeverGoesBackOrAheadWhileFoldsAreProjected() throws Exception {
+        BankAccountServiceImpl reader = BankAccountServiceImpl.withProjection(new InMemoryAccountRepository(),
+                new InMemoryTransactionRepository(), projection);
+        String id = reader.createAccount("John", Money.ZERO).getAccountId();
+        reader.setHotAccount(id, true);
+        int deposits = 20000;
+
+        // Перенос меняет счетчик сразу, а представление позже: чтение между ними не должно
+        // терять или удваивать перенесенную сумму
+        AtomicBoolean done = new AtomicBoolean();
+        Future<Integer> checker = Executors.newSingleThreadExecutor().submit(() -> {
+            int checked = 0;
+            long previous = 0;
+            while (!done.get()) {
+                long balance = reader.getBalanceMoney(id).toMinorUnits(Money.SCALE);
+                assertTrue(balance >= previous, "balance went back from " + previous + " to " + balance);
+                assertTrue(balance <= deposits, "balance ahead of deposits: " + balance);
+                previous = balance;
+                checked++;
+            }
+            return checked;
+        });
+
+        for (int i = 1; i <= deposits; i++) {
+            reader.deposit(id, Money.ofMinor(1));
+            if (i % 7 == 0) {
+                reader.foldHotAccounts();
+            }
+        }
+        reader.foldHotAccounts();
+        assertTrue(projection.awaitCatchUp(5, TimeUnit.SECONDS));
+        done.set(true);
+        assertTrue(checker.get() > 0);
+
+        assertEquals(Money.ofMinor(deposits), reader.getBalanceMoney(id));
+        assertEquals(Money.ofMinor(deposits), projection.getBalance(id));
+    }
+}
@@ -0,0 +1,91 @@
+package org.example;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BankAccountServiceBatchTest {
+    private BankAccountService service;
+    private String first;
+    private String second;
+
+    @BeforeEach
+    void setUp() {
+        service = new BankAccountServiceImpl(new InMemoryAccountRepository(), new InMemoryTransactionRepository());
+        first = service.createAccount("John", Money.parse("100.00")).getAccountId();
+        second = service.createAccount("Jane", Money.parse("50.00")).getAccountId();
+    }
+
+    @Test
+    void executeBatch_AllValid_AppliesEveryOperation() {
+        OperationResult[] results = service.executeBatch(List.of(
+                Operation.deposit(first, Money.parse("10.00")),
+                Operation.transfer(first, second, Money.parse("110.00")),
+                Operation.withdraw(second, Money.parse("60.00"))
+        ));
+
+        assertArrayEquals(new OperationResult[]{
+                OperationResult.SUCCESS, OperationResult.SUCCESS, OperationResult.SUCCESS}, results);
+        assertEquals(Money.ZERO, service.getBalanceMoney(first));
+        assertEquals(Money.parse("100.00"), service.getBalanceMoney(second));
+    }
+
+    @Test
+    void executeBatch_AtomicWithFailure_RollsBackWholeBatch() {
+        OperationResult[] results = service.executeBatch(List.of(
+                Operation.deposit(first, Money.parse("10.00")),
+                Operation.withdraw(second, Money.parse("500.00"))
+        ), BatchMode.ATOMIC);
+
+        assertArrayEquals(new OperationResult[]{
+                OperationResult.ROLLED_BACK, OperationResult.INSUFFICIENT_FUNDS}, results);
+        assertEquals(Money.parse("100.00"), service.getBalanceMoney(first));
+        assertEquals(Money.parse("50.00"), service.getBalanceMoney(second));
+    }
+
+    @Test
+    void executeBatch_BestEffort_SkipsOnlyFailedOperations() {
+        service.freezeAccount(second);
+
+        OperationResult[] results = service.executeBatch(List.of(
+                Operation.withdraw(first, Money.parse("30.00")),
+                Operation.deposit(second, Money.parse("5.00")),
+                Operation.deposit("missing", Money.parse("5.00")),
+                Operation.transfer(first, first, Money.parse("1.00"))
+        ), BatchMode.BEST_EFFORT);
+
+        assertArrayEquals(new OperationResult[]{
+                OperationResult.SUCCESS, OperationResult.ACCOUNT_FROZEN,
+                OperationResult.ACCOUNT_NOT_FOUND, OperationResult.INVALID_OPERATION}, results);
+        assertEquals(Money.parse("70.00"), service.getBalanceMoney(first));
+        assertEquals(Money.parse("50.00"), service.getBalanceMoney(second));
+    }
+
+    @Test
+    void applyInterestToAll_AccruesFilteredAccountsAndReportsProgress() {
+        List<String> ids = new ArrayList<>();
+        for (int i = 0; i < 3000; i++) {
+            ids.add(service.createAccount("owner" + i, Money.parse("200.00")).getAccountId());
+        }
+        service.freezeAccount(ids.get(0));
+        AtomicLong lastProgress = new AtomicLong();
+
+        InterestAccrualReport report = service.applyInterestToAll(5.0,
+                account -> !account.isFrozen(),
+                (processed, total) -> lastProgress.accumulateAndGet(processed, Math::max));
+
+        assertEquals(3001, report.getAccountsProcessed());
+        assertEquals(3002, lastProgress.get());
+        assertEquals(Money.parse("200.00"), service.getBalanceMoney(ids.get(0)));
+        assertEquals(Money.parse("210.00"), service.getBalanceMoney(ids.get(1)));
+        assertEquals(Money.parse("105.00"), service.getBalanceMoney(first));
+        // Проводка открытия счета и начисление процентов
+        assertEquals(2, service.getTransactionHistory(ids.get(1)).size());
+        assertEquals(Money.parse("29997.50"), report.getTotalInterest());
+    }
+}
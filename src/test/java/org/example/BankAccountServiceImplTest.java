@@ -474,4 +474,77 @@ class BankAccountServiceImplTest {
         // Assert
         assertTrue(result.isEmpty());
     }
-}
\ No newline at end of file
+
+    @Test
+    void depositAndWithdraw_MoneyAmounts_AreExact() {
+        // Arrange
+        String accountId = "acc1";
+        BankAccount account = new BankAccount(accountId, "John", Money.parse("0.10"));
+        when(accountRepository.findById(accountId)).thenReturn(account);
+
+        // Act
+        bankAccountService.deposit(accountId, Money.parse("0.20"));
+        bankAccountService.withdraw(accountId, Money.parse("0.30"));
+
+        // Assert
+        assertEquals(Money.ZERO, bankAccountService.getBalanceMoney(accountId));
+    }
+
+    @Test
+    void deposit_FractionalMinorUnits_ThrowsArithmeticException() {
+        assertThrows(ArithmeticException.class,
+                () -> bankAccountService.deposit("acc1", Money.parse("0.001")));
+        verify(accountRepository, never()).save(any());
+    }
+
+    @ParameterizedTest
+    @ValueSource(doubles = {0.001, 0.0049})
+    void doubleAmountBelowOneMinorUnit_ThrowsIllegalArgumentException(double tinyAmount) {
+        assertThrows(IllegalArgumentException.class, () -> bankAccountService.deposit("acc1", tinyAmount));
+        assertThrows(IllegalArgumentException.class, () -> bankAccountService.withdraw("acc1", tinyAmount));
+        assertThrows(IllegalArgumentException.class,
+                () -> bankAccountService.transfer("acc1", "acc2", tinyAmount));
+        verify(accountRepository, never()).save(any());
+        verify(transactionRepository, never()).save(any());
+    }
+
+    @Test
+    void tryOperations_Rejections_ReturnResultCodesWithoutThrowing() {
+        // Arrange
+        BankAccount account = new BankAccount("acc1", "John", 100);
+        BankAccount frozen = new BankAccount("acc2", "Jane", 100);
+        frozen.setFrozen(true);
+        when(accountRepository.findById("acc1")).thenReturn(account);
+        when(accountRepository.findById("acc2")).thenReturn(frozen);
+        when(accountRepository.findById("missing")).thenReturn(null);
+
+        // Act & Assert
+        assertEquals(OperationResult.INSUFFICIENT_FUNDS, bankAccountService.tryWithdraw("acc1", Money.parse("100.01")));
+        assertEquals(OperationResult.ACCOUNT_FROZEN, bankAccountService.tryDeposit("acc2", Money.parse("1.00")));
+        assertEquals(OperationResult.ACCOUNT_NOT_FOUND, bankAccountService.tryTransfer("acc1", "missing", Money.parse("1.00")));
+        assertEquals(OperationResult.INVALID_OPERATION, bankAccountService.tryDeposit("acc1", Money.parse("0.001")));
+        assertEquals(OperationResult.INVALID_OPERATION, bankAccountService.tryDeposit("acc1", Money.ZERO));
+        assertEquals(OperationResult.INVALID_OPERATION, bankAccountService.tryTransfer("acc1", "acc1", Money.parse("1.00")));
+        assertEquals(OperationResult.INVALID_OPERATION, bankAccountService.tryWithdraw(null, Money.parse("1.00")));
+        verify(accountRepository, never()).save(any());
+    }
+
+    @Test
+    void tryTransfer_Success_MovesFunds() {
+        // Arrange
+        BankAccount fromAccount = new BankAccount("acc1", "John", 100);
+        BankAccount toAccount = new BankAccount("acc2", "Jane", 50);
+        when(accountRepository.findById("acc1")).thenReturn(fromAccount);
+        when(accountRepository.findById("acc2")).thenReturn(toAccount);
+
+        // Act
+        OperationResult result = bankAccountService.tryTransfer("acc1", "acc2", Money.parse("30.00"));
+
+        // Assert
+        assertEquals(OperationResult.SUCCESS, result);
+        assertEquals(70.0, fromAccount.getBalance());
+        assertEquals(80.0, toAccount.getBalance());
+        verify(accountRepository).save(fromAccount);
+        verify(accountRepository).save(toAccount);
+    }
+}
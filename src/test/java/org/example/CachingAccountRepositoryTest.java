@@ -0,0 +1,102 @@
+package org.example;
+
+import org.junit.jupiter.api.Test;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import static org.junit.jupiter.api.Assertions.*;
+
+class CachingAccountRepositoryTest {
+    // Хранилище, считающее обращения к findById
+    private static final class CountingRepository extends InMemoryAccountRepository {
+        private final AtomicInteger lookups = new AtomicInteger();
+
+        @Override
+        public BankAccount findById(String accountId) {
+            lookups.incrementAndGet();
+            return super.findById(accountId);
+        }
+    }
+
+    @Test
+    void findById_SecondLookupIsServedFromCache() {
+        CountingRepository delegate = new CountingRepository();
+        delegate.save(new BankAccount("acc1", "John", 100.0));
+        CachingAccountRepository cache = new CachingAccountRepository(delegate, 10);
+
+        assertEquals("John", cache.findById("acc1").getOwnerName());
+        assertEquals("John", cache.findById("acc1").getOwnerName());
+        assertNull(cache.findById("missing"));
+
+        assertEquals(2, delegate.lookups.get());
+        assertEquals(1, cache.getHitCount());
+        assertEquals(2, cache.getMissCount());
+        assertEquals(1.0 / 3, cache.getHitRate(), 1e-9);
+    }
+
+    @Test
+    void saveAndDelete_KeepCacheCoherent() {
+        CountingRepository delegate = new CountingRepository();
+        CachingAccountRepository cache = new CachingAccountRepository(delegate, 10);
+
+        cache.save(new BankAccount("acc1", "John", 100.0));
+        cache.saveAll(List.of(new BankAccount("acc1", "John", 150.0), new BankAccount("acc2", "Jane", 5.0)));
+        assertEquals(150.0, cache.findById("acc1").getBalance());
+        assertEquals(150.0, delegate.findById("acc1").getBalance());
+
+        cache.delete("acc1");
+        assertNull(cache.findById("acc1"));
+        assertNull(delegate.findById("acc1"));
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    void eviction_KeepsSizeBoundedAndProtectsFrequentAccounts() {
+        InMemoryAccountRepository delegate = new InMemoryAccountRepository();
+        for (int i = 0; i < 10_000; i++) {
+            delegate.save(new BankAccount("acc" + i, "owner", 1.0));
+        }
+        CachingAccountRepository cache = new CachingAccountRepository(delegate, 100);
+
+        // Горячие счета читаются часто, затем идет однократный просмотр всех счетов
+        for (int round = 0; round < 20; round++) {
+            for (int i = 0; i < 50; i++) {
+                cache.findById("acc" + i);
+            }
+        }
+        for (int i = 0; i < 10_000; i++) {
+            cache.findById("acc" + i);
+        }
+
+        assertTrue(cache.size() <= 100);
+        assertTrue(cache.getEvictionCount() > 0);
+        long missesBefore = cache.getMissCount();
+        for (int i = 0; i < 50; i++) {
+            cache.findById("acc" + i);
+        }
+        // Просмотр не вытеснил большую часть горячих счетов
+        assertTrue(cache.getMissCount() - missesBefore < 10,
+                "hot accounts evicted: " + (cache.getMissCount() - missesBefore));
+    }
+
+    @Test
+    void compareAndSave_IsForwardedAndUpdatesCache() {
+        InMemoryAccountRepository delegate = new InMemoryAccountRepository();
+        delegate.save(new BankAccount("acc1", "John", 100.0));
+        CachingAccountRepository cache = new CachingAccountRepository(delegate, 10);
+        assertTrue(cache.supportsCompareAndSave());
+
+        BankAccount copy = new BankAccount(cache.findById("acc1"));
+        long version = copy.getVersion();
+        copy.setBalanceMinorUnits(500);
+        assertTrue(cache.compareAndSave(copy, version));
+        assertSame(copy, cache.findById("acc1"));
+        assertSame(copy, delegate.findById("acc1"));
+        assertFalse(cache.compareAndSave(new BankAccount(copy), version));
+
+        // Оптимистичный сервис поверх кеша
+        BankAccountServiceImpl service = new BankAccountServiceImpl(cache, new InMemoryTransactionRepository());
+        service.deposit("acc1", Money.parse("1.00"));
+        assertEquals(Money.parse("6.00"), service.getBalanceMoney("acc1"));
+        assertEquals(0, service.getOptimisticConflictCount());
+    }
+}
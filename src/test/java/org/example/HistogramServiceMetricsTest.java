@@ -0,0 +1,87 @@
+package org.example;
+
+import org.junit.jupiter.api.Test;
+
+import javax.management.MBeanServer;
+import javax.management.MBeanServerFactory;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HistogramServiceMetricsTest {
+    @Test
+    void latencyHistogram_PercentilesWithinBucketPrecision() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long value = 1; value <= 10_000; value++) {
+            histogram.record(value * 1000);
+        }
+
+        LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+        assertEquals(10_000, snapshot.getCount());
+        assertEquals(10_000_000, snapshot.getMax());
+        assertEquals(5_000_000, snapshot.getValueAtPercentile(50), 5_000_000 * 0.04);
+        assertEquals(9_900_000, snapshot.getValueAtPercentile(99), 9_900_000 * 0.04);
+        assertEquals(10_000_000, snapshot.getValueAtPercentile(100));
+    }
+
+    @Test
+    void service_RecordsOutcomesPerOperation() {
+        HistogramServiceMetrics metrics = new HistogramServiceMetrics();
+        BankAccountService service = new BankAccountServiceImpl(new InMemoryAccountRepository(),
+                new InMemoryTransactionRepository(), new StripedLocks(), metrics);
+        String accountId = service.createAccount("John", 100).getAccountId();
+
+        service.withdraw(accountId, 10);
+        assertThrows(InsufficientFundsException.class, () -> service.withdraw(accountId, 1000));
+        service.freezeAccount(accountId);
+        assertThrows(IllegalStateException.class, () -> service.deposit(accountId, 10));
+        assertThrows(IllegalArgumentException.class, () -> service.deposit("missing", 10));
+
+        assertEquals(1, metrics.getCount(ServiceOperation.CREATE_ACCOUNT, OperationResult.SUCCESS));
+        assertEquals(1, metrics.getCount(ServiceOperation.WITHDRAW, OperationResult.SUCCESS));
+        assertEquals(1, metrics.getCount(ServiceOperation.WITHDRAW, OperationResult.INSUFFICIENT_FUNDS));
+        assertEquals(1, metrics.getCount(ServiceOperation.DEPOSIT, OperationResult.ACCOUNT_FROZEN));
+        assertEquals(1, metrics.getCount(ServiceOperation.DEPOSIT, OperationResult.ACCOUNT_NOT_FOUND));
+        assertEquals(2, metrics.getLatency(ServiceOperation.WITHDRAW).getCount());
+
+        service.streamAccounts().close();
+        service.streamTransactionHistory(accountId).close();
+        assertEquals(1, metrics.getCount(ServiceOperation.GET_ALL_ACCOUNTS, OperationResult.SUCCESS));
+        assertEquals(1, metrics.getCount(ServiceOperation.GET_TRANSACTION_HISTORY, OperationResult.SUCCESS));
+    }
+
+    @Test
+    void jmxExporter_PublishesOperationMetrics() throws Exception {
+        HistogramServiceMetrics metrics = new HistogramServiceMetrics();
+        metrics.record(ServiceOperation.DEPOSIT, OperationResult.SUCCESS, 2_000);
+        metrics.record(ServiceOperation.SETTLE_TRANSFERS, OperationResult.ROLLED_BACK, 1_000);
+        MBeanServer server = MBeanServerFactory.newMBeanServer();
+
+        try (JmxMetricsExporter ignored = new JmxMetricsExporter(metrics, "test", server)) {
+            ObjectName name = new ObjectName("org.example:type=BankAccountService,name=\"test\",operation=DEPOSIT");
+            assertEquals(1L, server.getAttribute(name, "SuccessCount"));
+            assertEquals(2.0, (Double) server.getAttribute(name, "MaxMicros"));
+            assertEquals(1L, server.getAttribute(new ObjectName(
+                    "org.example:type=BankAccountService,name=\"test\",operation=SETTLE_TRANSFERS"), "RolledBackCount"));
+        }
+        assertTrue(server.queryNames(new ObjectName("org.example:*"), null).isEmpty());
+    }
+
+    @Test
+    void withJmxMetrics_RegistersDefaultExporter() throws Exception {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name = new ObjectName(
+                "org.example:type=BankAccountService,name=\"jmx-default\",operation=CREATE_ACCOUNT");
+        BankAccountServiceImpl service = BankAccountServiceImpl.withJmxMetrics(new InMemoryAccountRepository(),
+                new InMemoryTransactionRepository(), "jmx-default");
+        try {
+            service.createAccount("John", 100);
+            assertTrue(service.getMetrics() instanceof HistogramServiceMetrics);
+            assertEquals(1L, server.getAttribute(name, "SuccessCount"));
+        } finally {
+            service.unregisterMetrics();
+        }
+        assertFalse(server.isRegistered(name));
+    }
+}
@@ -0,0 +1,83 @@
+package org.example;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HotAccountModeTest {
+    @Test
+    void credits_AreFoldedWhenExactBalanceIsNeeded() {
+        InMemoryAccountRepository repository = new InMemoryAccountRepository();
+        BankAccountServiceImpl service = new BankAccountServiceImpl(repository, new InMemoryTransactionRepository());
+        String merchant = service.createAccount("Merchant", Money.ZERO).getAccountId();
+        String payer = service.createAccount("Payer", Money.parse("100.00")).getAccountId();
+        service.setHotAccount(merchant, true);
+
+        service.deposit(merchant, Money.parse("10.00"));
+        service.transfer(payer, merchant, Money.parse("25.00"));
+        // Зачисления еще не перенесены в сохраненный счет
+        assertEquals(0, repository.findById(merchant).getBalanceMinorUnits());
+
+        assertEquals(Money.parse("35.00"), service.getBalanceMoney(merchant));
+        assertEquals(3500, repository.findById(merchant).getBalanceMinorUnits());
+
+        service.deposit(merchant, Money.parse("5.00"));
+        assertThrows(InsufficientFundsException.class, () -> service.withdraw(merchant, Money.parse("40.01")));
+        service.withdraw(merchant, Money.parse("40.00"));
+        assertEquals(Money.ZERO, service.getBalanceMoney(merchant));
+
+        service.deposit(merchant, Money.parse("1.00"));
+        service.setHotAccount(merchant, false);
+        assertFalse(service.isHotAccount(merchant));
+        assertEquals(100, repository.findById(merchant).getBalanceMinorUnits());
+        assertThrows(AccountNotFoundException.class, () -> service.setHotAccount("missing", true));
+    }
+
+    @Test
+    void concurrentCreditsAndDebits_NeverOverdrawOrLoseMoney() throws Exception {
+        BankAccountServiceImpl service = new BankAccountServiceImpl(
+                new InMemoryAccountRepository(), new InMemoryTransactionRepository());
+        String hot = service.createAccount("Merchant", Money.ZERO).getAccountId();
+        service.setHotAccount(hot, true);
+
+        int threads = 4;
+        int depositsPerThread = 5000;
+        ExecutorService executor = Executors.newFixedThreadPool(threads + 1);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            futures.add(executor.submit(() -> {
+                start.await();
+                for (int i = 0; i < depositsPerThread; i++) {
+                    service.deposit(hot, Money.ofMinor(1));
+                }
+                return null;
+            }));
+        }
+        Future<Long> withdrawn = executor.submit(() -> {
+            start.await();
+            long total = 0;
+            for (int i = 0; i < 2000; i++) {
+                if (service.tryWithdraw(hot, Money.ofMinor(3)) == OperationResult.SUCCESS) {
+                    total += 3;
+                }
+            }
+            return total;
+        });
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        long debited = withdrawn.get();
+        executor.shutdown();
+
+        assertEquals(Money.ofMinor(threads * depositsPerThread - debited), service.getBalanceMoney(hot));
+    }
+}
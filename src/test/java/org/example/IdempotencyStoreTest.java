@@ -0,0 +1,146 @@
+package org.example;
+
+import org.junit.jupiter.api.Test;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import static org.junit.jupiter.api.Assertions.*;
+
+class IdempotencyStoreTest {
+    @Test
+    void repeatedKey_ReturnsOriginalResultUntilExpired() {
+        AtomicLong now = new AtomicLong();
+        IdempotencyStore store = new IdempotencyStore(100, 1000, now::get);
+        AtomicInteger calls = new AtomicInteger();
+
+        assertEquals(1, store.execute("k1", "op", calls::incrementAndGet));
+        assertEquals(1, store.execute("k1", "op", calls::incrementAndGet));
+        assertEquals(1, store.getReplayCount());
+        assertThrows(IllegalArgumentException.class, () -> store.execute("k1", "other", calls::incrementAndGet));
+
+        now.set(1000);
+        assertEquals(2, store.execute("k1", "op", calls::incrementAndGet));
+    }
+
+    @Test
+    void sizeBound_EvictsOldestKeys() {
+        IdempotencyStore store = new IdempotencyStore(10, 1_000_000, () -> 0L);
+        for (int i = 0; i < 100; i++) {
+            store.execute("k" + i, "op", () -> null);
+        }
+        assertTrue(store.size() <= 11);
+    }
+
+    @Test
+    void sizeBound_KeepsEntryOfRunningRequest() throws Exception {
+        IdempotencyStore store = new IdempotencyStore(1, 1_000_000, () -> 0L);
+        AtomicInteger calls = new AtomicInteger();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<Integer> running = executor.submit(() -> store.execute("slow", "op", () -> {
+                started.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return calls.incrementAndGet();
+            }));
+            started.await();
+            for (int i = 0; i < 10; i++) {
+                store.execute("k" + i, "op", () -> null);
+            }
+            assertTrue(store.size() <= 2);
+
+            release.countDown();
+            assertEquals(1, running.get());
+            // Повтор получает исход исходного запроса, а не выполняет действие снова
+            assertEquals(1, store.execute("slow", "op", calls::incrementAndGet));
+            assertEquals(1, calls.get());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    void businessFailure_IsReplayedButUnexpectedFailureIsNot() {
+        IdempotencyStore store = new IdempotencyStore(100, 1_000_000, () -> 0L);
+        InsufficientFundsException original = new InsufficientFundsException("no money");
+        assertThrows(InsufficientFundsException.class, () -> store.execute("k1", "op", () -> {
+            throw original;
+        }));
+        InsufficientFundsException replayed = assertThrows(InsufficientFundsException.class,
+                () -> store.execute("k1", "op", () -> "retried"));
+        assertSame(original, replayed);
+
+        assertThrows(IllegalStateException.class, () -> store.execute("k2", "op", () -> {
+            throw new IllegalStateException("backend down");
+        }));
+        assertEquals("retried", store.execute("k2", "op", () -> "retried"));
+    }
+
+    @Test
+    void unexpectedFailures_DoNotAccumulateInEvictionQueue() {
+        IdempotencyStore store = new IdempotencyStore(100, 1_000_000, () -> 0L);
+        for (int i = 0; i < 1000; i++) {
+            String key = "k" + i;
+            assertThrows(IllegalStateException.class, () -> store.execute(key, "op", () -> {
+                throw new IllegalStateException("backend down");
+            }));
+        }
+        assertEquals(0, store.size());
+        assertEquals(0, store.queuedCount());
+    }
+
+    @Test
+    void concurrentRetries_ApplyDepositOnce() throws Exception {
+        BankAccountService service = new BankAccountServiceImpl(
+                new InMemoryAccountRepository(), new InMemoryTransactionRepository());
+        BankAccount account = service.createAccount("John", 0);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            Future<?>[] futures = new Future<?>[8];
+            for (int t = 0; t < futures.length; t++) {
+                futures[t] = executor.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < 100; i++) {
+                        service.deposit(account.getAccountId(), Money.parse("1.00"), "request-" + i);
+                    }
+                    return null;
+                });
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+        assertEquals(Money.parse("100.00"), service.getBalanceMoney(account.getAccountId()));
+        assertThrows(InsufficientFundsException.class,
+                () -> service.withdraw(account.getAccountId(), Money.parse("500"), "w1"));
+        service.deposit(account.getAccountId(), Money.parse("1000"));
+        // Повтор получает исходный отказ, даже если теперь средств достаточно
+        assertThrows(InsufficientFundsException.class,
+                () -> service.withdraw(account.getAccountId(), Money.parse("500"), "w1"));
+    }
+
+    @Test
+    void retryWithSameAmountAtOtherScale_IsReplayed() {
+        BankAccountService service = new BankAccountServiceImpl(
+                new InMemoryAccountRepository(), new InMemoryTransactionRepository());
+        String accountId = service.createAccount("John", 0).getAccountId();
+
+        service.deposit(accountId, Money.parse("10.0"), "d1");
+        service.deposit(accountId, Money.parse("10.00"), "d1");
+        assertEquals(Money.parse("10.00"), service.getBalanceMoney(accountId));
+        assertThrows(IllegalArgumentException.class,
+                () -> service.deposit(accountId, Money.parse("10.01"), "d1"));
+    }
+}
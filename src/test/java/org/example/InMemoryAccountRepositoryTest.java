@@ -0,0 +1,176 @@
+package org.example;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class InMemoryAccountRepositoryTest {
+    @Test
+    void saveFindAndDelete_WorksForSingleAccount() {
+        AccountRepository repository = new InMemoryAccountRepository();
+        BankAccount account = new BankAccount("acc1", "John", 100.0);
+
+        repository.save(account);
+        assertSame(account, repository.findById("acc1"));
+        assertEquals(1, repository.findAll().size());
+
+        repository.delete("acc1");
+        assertNull(repository.findById("acc1"));
+        assertTrue(repository.findAll().isEmpty());
+    }
+
+    @Test
+    void concurrentTransfers_PreserveTotalBalance() throws Exception {
+        AccountRepository repository = new InMemoryAccountRepository();
+        BankAccountService service = new BankAccountServiceImpl(
+                repository, new InMemoryTransactionRepository(), new StripedLocks(4));
+        int accountCount = 8;
+        List<String> ids = new ArrayList<>();
+        for (int i = 0; i < accountCount; i++) {
+            ids.add(service.createAccount("owner" + i, 1000).getAccountId());
+        }
+
+        int threads = 4;
+        int transfersPerThread = 2000;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            futures.add(executor.submit(() -> {
+                start.await();
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                for (int i = 0; i < transfersPerThread; i++) {
+                    int from = random.nextInt(accountCount);
+                    int to = (from + 1 + random.nextInt(accountCount - 1)) % accountCount;
+                    try {
+                        service.transfer(ids.get(from), ids.get(to), 1);
+                    } catch (InsufficientFundsException ignored) {
+                        // допустимо при случайных переводах
+                    }
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+
+        double total = 0;
+        for (String id : ids) {
+            total += service.getBalance(id);
+        }
+        assertEquals(accountCount * 1000.0, total);
+    }
+
+    @Test
+    void findPage_WalksAllAccountsInIdOrder() {
+        InMemoryAccountRepository repository = new InMemoryAccountRepository();
+        for (int i = 9; i >= 0; i--) {
+            repository.save(new BankAccount("acc" + i, "owner" + i, 0));
+        }
+        repository.delete("acc4");
+
+        List<String> seen = new ArrayList<>();
+        String cursor = null;
+        do {
+            Page<BankAccount> page = repository.findPage(cursor, 4);
+            assertTrue(page.getItems().size() <= 4);
+            page.getItems().forEach(account -> seen.add(account.getAccountId()));
+            cursor = page.getNextCursor();
+        } while (cursor != null);
+
+        List<String> expected = List.of("acc0", "acc1", "acc2", "acc3", "acc5", "acc6", "acc7", "acc8", "acc9");
+        assertEquals(expected, seen);
+        assertEquals(expected, repository.stream().map(BankAccount::getAccountId).collect(Collectors.toList()));
+    }
+
+    @Test
+    void findPage_ExactMultipleOfLimit_LastPageHasNoCursor() {
+        InMemoryAccountRepository repository = new InMemoryAccountRepository();
+        repository.save(new BankAccount("a", "John", 0));
+        repository.save(new BankAccount("b", "Jane", 0));
+
+        Page<BankAccount> page = repository.findPage(null, 2);
+        assertEquals(2, page.getItems().size());
+        assertFalse(page.hasNext());
+        assertThrows(IllegalArgumentException.class, () -> repository.findPage(null, 0));
+    }
+
+    @Test
+    void compareAndSave_RejectsStaleVersion() {
+        InMemoryAccountRepository repository = new InMemoryAccountRepository();
+        repository.save(new BankAccount("acc1", "John", 100.0));
+        BankAccount stored = repository.findById("acc1");
+
+        BankAccount first = new BankAccount(stored);
+        first.setBalanceMinorUnits(5000);
+        assertTrue(repository.compareAndSave(first, stored.getVersion()));
+        assertEquals(stored.getVersion() + 1, repository.findById("acc1").getVersion());
+
+        BankAccount stale = new BankAccount(stored);
+        stale.setBalanceMinorUnits(1);
+        assertFalse(repository.compareAndSave(stale, stored.getVersion()));
+        assertEquals(5000, repository.findById("acc1").getBalanceMinorUnits());
+        assertFalse(repository.compareAndSave(new BankAccount("missing", "Jane", 0), 0));
+    }
+
+    @Test
+    void compareAndSaveAll_WritesAllOrNothing() {
+        InMemoryAccountRepository repository = new InMemoryAccountRepository();
+        repository.save(new BankAccount("a", "John", 10.0));
+        repository.save(new BankAccount("b", "Jane", 10.0));
+        BankAccount a = new BankAccount(repository.findById("a"));
+        BankAccount b = new BankAccount(repository.findById("b"));
+        a.setBalanceMinorUnits(0);
+        b.setBalanceMinorUnits(2000);
+
+        // Счет b изменен после чтения - не записывается ни один счет
+        repository.save(repository.findById("b"));
+        assertFalse(repository.compareAndSaveAll(List.of(a, b), new long[]{a.getVersion(), b.getVersion()}));
+        assertEquals(1000, repository.findById("a").getBalanceMinorUnits());
+
+        assertTrue(repository.compareAndSaveAll(List.of(a, b), new long[]{a.getVersion(), b.getVersion() + 1}));
+        assertEquals(0, repository.findById("a").getBalanceMinorUnits());
+        assertEquals(2000, repository.findById("b").getBalanceMinorUnits());
+    }
+
+    @Test
+    void optimisticService_HotAccountDeposits_AreNotLost() throws Exception {
+        BankAccountServiceImpl service = new BankAccountServiceImpl(
+                new InMemoryAccountRepository(), new InMemoryTransactionRepository());
+        String id = service.createAccount("John", 0).getAccountId();
+
+        int threads = 4;
+        int depositsPerThread = 2000;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            futures.add(executor.submit(() -> {
+                start.await();
+                for (int i = 0; i < depositsPerThread; i++) {
+                    service.deposit(id, Money.ofMinor(1));
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+
+        assertEquals(Money.ofMinor(threads * depositsPerThread), service.getBalanceMoney(id));
+    }
+}
@@ -1,7 +1,14 @@
 package org.example;
 
 import org.junit.jupiter.api.Test;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 import static org.junit.jupiter.api.Assertions.*;
 
 class InMemoryTransactionRepositoryTest {
@@ -27,4 +34,125 @@ class InMemoryTransactionRepositoryTest {
         TransactionRepository repository = new InMemoryTransactionRepository();
         assertEquals(0, repository.findByAccountId("unknown").size());
     }
-}
\ No newline at end of file
+
+    @Test
+    void findByAccountId_LongHistory_KeepsInsertionOrder() {
+        TransactionRepository repository = new InMemoryTransactionRepository();
+        for (int i = 0; i < 500; i++) {
+            repository.save(new Transaction("id" + i, "acc1",
+                    Transaction.TransactionType.DEPOSIT, i));
+            repository.save(new Transaction("other" + i, "acc2",
+                    Transaction.TransactionType.DEPOSIT, i));
+        }
+
+        List<Transaction> result = repository.findByAccountId("acc1");
+        assertEquals(500, result.size());
+        for (int i = 0; i < 500; i++) {
+            assertEquals("id" + i, result.get(i).getId());
+        }
+    }
+
+    @Test
+    void save_ConcurrentWriters_NoTransactionsLost() throws Exception {
+        TransactionRepository repository = new InMemoryTransactionRepository();
+        int threads = 4;
+        int perThread = 5000;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            int thread = t;
+            futures.add(executor.submit(() -> {
+                for (int i = 0; i < perThread; i++) {
+                    repository.save(new Transaction(thread + "-" + i, "acc" + (i % 3),
+                            Transaction.TransactionType.DEPOSIT, 1.0));
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+
+        int total = 0;
+        for (int i = 0; i < 3; i++) {
+            total += repository.findByAccountId("acc" + i).size();
+        }
+        assertEquals(threads * perThread, total);
+    }
+
+    @Test
+    void findByAccountIdPage_CursorWalksHistoryInOrder() {
+        TransactionRepository repository = new InMemoryTransactionRepository();
+        for (int i = 0; i < 150; i++) {
+            repository.save(new Transaction("id" + i, "acc1", Transaction.TransactionType.DEPOSIT, 1.0));
+        }
+
+        Page<Transaction> first = repository.findByAccountId("acc1", null, 100);
+        assertEquals(100, first.getItems().size());
+        assertEquals("id99", first.getItems().get(99).getId());
+
+        Page<Transaction> second = repository.findByAccountId("acc1", first.getNextCursor(), 100);
+        assertEquals(50, second.getItems().size());
+        assertEquals("id100", second.getItems().get(0).getId());
+        assertFalse(second.hasNext());
+
+        assertEquals(150, repository.streamByAccountId("acc1").count());
+        assertEquals(0, repository.streamByAccountId("unknown").count());
+        assertThrows(IllegalArgumentException.class, () -> repository.findByAccountId("acc1", "abc", 10));
+    }
+
+    @Test
+    void findByTimeRange_ReturnsHalfOpenIntervalInTimeOrder() {
+        TransactionRepository repository = new InMemoryTransactionRepository();
+        LocalDateTime base = LocalDateTime.of(2024, 1, 1, 0, 0);
+        // Записи сохраняются не по порядку времени
+        repository.save(new Transaction("t3", "acc1", Transaction.TransactionType.DEPOSIT, 3.0, base.plusHours(3)));
+        repository.save(new Transaction("t1", "acc1", Transaction.TransactionType.DEPOSIT, 1.0, base.plusHours(1)));
+        repository.save(new Transaction("t2", "acc2", Transaction.TransactionType.DEPOSIT, 2.0, base.plusHours(2)));
+        repository.save(new Transaction("t2b", "acc1", Transaction.TransactionType.DEPOSIT, 2.0, base.plusHours(2)));
+        repository.save(new Transaction("t4", "acc1", Transaction.TransactionType.DEPOSIT, 4.0, base.plusHours(4)));
+
+        List<Transaction> account = repository.findByAccountIdAndTimeRange("acc1", base.plusHours(1), base.plusHours(4));
+        assertEquals(List.of("t1", "t2b", "t3"), account.stream().map(Transaction::getId).collect(Collectors.toList()));
+
+        List<Transaction> all = repository.findByTimeRange(base.plusHours(2), base.plusHours(3));
+        assertEquals(List.of("t2", "t2b"), all.stream().map(Transaction::getId).collect(Collectors.toList()));
+
+        assertTrue(repository.findByAccountIdAndTimeRange("unknown", base, base.plusDays(1)).isEmpty());
+        assertTrue(repository.findByTimeRange(base, base).isEmpty());
+        assertThrows(IllegalArgumentException.class, () -> repository.findByTimeRange(base.plusHours(1), base));
+    }
+
+    @Test
+    void defaultFindByTimeRange_ScansAllTransactionsAndSortsByTime() {
+        InMemoryTransactionRepository storage = new InMemoryTransactionRepository();
+        // Хранилище без временного индекса: только запись, история счета и полный обход
+        TransactionRepository repository = new TransactionRepository() {
+            @Override
+            public void save(Transaction transaction) {
+                storage.save(transaction);
+            }
+
+            @Override
+            public List<Transaction> findByAccountId(String accountId) {
+                return storage.findByAccountId(accountId);
+            }
+
+            @Override
+            public Stream<Transaction> streamAll() {
+                return storage.streamAll();
+            }
+        };
+        LocalDateTime base = LocalDateTime.of(2024, 1, 1, 0, 0);
+        repository.save(new Transaction("t3", "acc1", Transaction.TransactionType.DEPOSIT, 3.0, base.plusHours(3)));
+        repository.save(new Transaction("t1", "acc2", Transaction.TransactionType.DEPOSIT, 1.0, base.plusHours(1)));
+        repository.save(new Transaction("t2", "acc1", Transaction.TransactionType.DEPOSIT, 2.0, base.plusHours(2)));
+        repository.save(new Transaction("none", "acc1", Transaction.TransactionType.DEPOSIT, 2.0, null));
+
+        assertEquals(List.of("t1", "t2"), repository.findByTimeRange(base, base.plusHours(3)).stream()
+                .map(Transaction::getId).collect(Collectors.toList()));
+        assertEquals(storage.findByTimeRange(base, base.plusDays(1)).size(),
+                repository.findByTimeRange(base, base.plusDays(1)).size());
+        assertThrows(IllegalArgumentException.class, () -> repository.findByTimeRange(base.plusHours(1), base));
+    }
+}
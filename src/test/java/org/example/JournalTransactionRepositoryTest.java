@@ -0,0 +1,139 @@
+package org.example;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JournalTransactionRepositoryTest {
+    @TempDir
+    Path directory;
+
+    @Test
+    void save_ReopenedRepository_RestoresTransactions() throws IOException {
+        LocalDateTime timestamp = LocalDateTime.of(2024, 3, 1, 12, 30, 15, 123456789);
+        try (JournalTransactionRepository repository = new JournalTransactionRepository(directory)) {
+            repository.save(new Transaction("id1", "acc1", Transaction.TransactionType.DEPOSIT,
+                    Money.parse("100.25"), timestamp));
+            repository.save(new Transaction("id2", "acc2", Transaction.TransactionType.WITHDRAWAL,
+                    Money.parse("5.00"), timestamp));
+        }
+
+        try (JournalTransactionRepository reopened = new JournalTransactionRepository(directory)) {
+            List<Transaction> history = reopened.findByAccountId("acc1");
+            assertEquals(1, history.size());
+            Transaction restored = history.get(0);
+            assertEquals("id1", restored.getId());
+            assertEquals(Transaction.TransactionType.DEPOSIT, restored.getType());
+            assertEquals(Money.parse("100.25"), restored.getAmountMoney());
+            assertEquals(timestamp, restored.getTimestamp());
+            assertEquals(1, reopened.findByAccountId("acc2").size());
+        }
+    }
+
+    @Test
+    void saveAll_SmallSegments_RollsOverAndRestoresInOrder() throws IOException {
+        int segmentSize = 4 * (JournalTransactionRepository.RECORD_SIZE + MappedJournal.HEADER_SIZE);
+        List<Transaction> batch = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            batch.add(new Transaction("id" + i, "acc1", Transaction.TransactionType.DEPOSIT, Money.ofMinor(i)));
+        }
+        try (JournalTransactionRepository repository = new JournalTransactionRepository(directory,
+                segmentSize, JournalDurability.PER_BATCH, 100, TimeUnit.MICROSECONDS)) {
+            repository.saveAll(batch);
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            assertEquals(3, files.count());
+        }
+
+        try (JournalTransactionRepository reopened = new JournalTransactionRepository(directory,
+                segmentSize, JournalDurability.PER_WRITE, 0, TimeUnit.MILLISECONDS)) {
+            List<Transaction> history = reopened.findByAccountId("acc1");
+            assertEquals(10, history.size());
+            for (int i = 0; i < 10; i++) {
+                assertEquals("id" + i, history.get(i).getId());
+            }
+            reopened.save(new Transaction("id10", "acc1", Transaction.TransactionType.DEPOSIT, 1.0));
+        }
+        try (JournalTransactionRepository reopened = new JournalTransactionRepository(directory,
+                segmentSize, JournalDurability.PER_WRITE, 0, TimeUnit.MILLISECONDS)) {
+            assertEquals(11, reopened.findByAccountId("acc1").size());
+        }
+    }
+
+    @Test
+    void save_ConcurrentWritersWithTimeBoundedFlush_AllRecordsPersisted() throws Exception {
+        int threads = 4;
+        int perThread = 500;
+        try (JournalTransactionRepository repository = new JournalTransactionRepository(directory,
+                JournalTransactionRepository.DEFAULT_SEGMENT_SIZE, JournalDurability.TIME_BOUNDED,
+                5, TimeUnit.MILLISECONDS)) {
+            ExecutorService executor = Executors.newFixedThreadPool(threads);
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                int thread = t;
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < perThread; i++) {
+                        repository.save(new Transaction(thread + "-" + i, "acc" + thread,
+                                Transaction.TransactionType.DEPOSIT, 1.0));
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+            executor.shutdown();
+        }
+
+        try (JournalTransactionRepository reopened = new JournalTransactionRepository(directory)) {
+            for (int t = 0; t < threads; t++) {
+                assertEquals(perThread, reopened.findByAccountId("acc" + t).size());
+            }
+        }
+    }
+
+    @Test
+    void open_TimeBoundedWithoutInterval_FailsBeforeCreatingSegment() throws IOException {
+        Path journalDirectory = directory.resolve("journal");
+        assertThrows(IllegalArgumentException.class, () -> new JournalTransactionRepository(journalDirectory,
+                JournalTransactionRepository.DEFAULT_SEGMENT_SIZE, JournalDurability.TIME_BOUNDED,
+                0, TimeUnit.MILLISECONDS));
+        assertFalse(Files.exists(journalDirectory));
+    }
+
+    @Test
+    void save_TooLongId_ThrowsException() throws IOException {
+        try (JournalTransactionRepository repository = new JournalTransactionRepository(directory)) {
+            String longId = "x".repeat(JournalTransactionRepository.MAX_ID_BYTES + 1);
+            assertThrows(IllegalArgumentException.class, () -> repository.save(
+                    new Transaction(longId, "acc1", Transaction.TransactionType.DEPOSIT, 1.0)));
+        }
+    }
+
+    @Test
+    void saveAll_InvalidRecord_WritesNothing() throws IOException {
+        String longId = "x".repeat(JournalTransactionRepository.MAX_ID_BYTES + 1);
+        try (JournalTransactionRepository repository = new JournalTransactionRepository(directory)) {
+            assertThrows(IllegalArgumentException.class, () -> repository.saveAll(List.of(
+                    new Transaction("id1", "acc1", Transaction.TransactionType.DEPOSIT, 1.0),
+                    new Transaction(longId, "acc1", Transaction.TransactionType.DEPOSIT, 1.0))));
+            assertTrue(repository.findByAccountId("acc1").isEmpty());
+        }
+
+        try (JournalTransactionRepository reopened = new JournalTransactionRepository(directory)) {
+            assertTrue(reopened.findByAccountId("acc1").isEmpty());
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package org.example;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LedgerReconcilerTest {
+    @Test
+    void everyBalanceChange_IsRecordedInLedger() {
+        InMemoryAccountRepository accounts = new InMemoryAccountRepository();
+        InMemoryTransactionRepository ledger = new InMemoryTransactionRepository();
+        BankAccountServiceImpl service = new BankAccountServiceImpl(accounts, ledger);
+        String a = service.createAccount("A", Money.parse("100.00")).getAccountId();
+        String b = service.createAccount("B", Money.ZERO).getAccountId();
+        String hot = service.createAccount("Merchant", Money.ZERO).getAccountId();
+        service.setHotAccount(hot, true);
+
+        service.deposit(a, Money.parse("50.00"));
+        service.withdraw(a, Money.parse("20.00"));
+        service.transfer(a, b, Money.parse("30.00"));
+        assertEquals(OperationResult.INSUFFICIENT_FUNDS, service.tryWithdraw(b, Money.parse("1000.00")));
+        service.tryDeposit(hot, Money.parse("7.00"));
+        service.transfer(a, hot, Money.parse("3.00"));
+        service.executeBatch(List.of(
+                Operation.deposit(b, Money.parse("5.00")),
+                Operation.transfer(b, a, Money.parse("10.00")),
+                Operation.withdraw(b, Money.parse("999.00"))), BatchMode.BEST_EFFORT);
+        service.settleTransfers(List.of(Operation.transfer(a, b, Money.parse("1.00"))));
+        service.applyInterest(a, 10.0);
+        service.foldHotAccounts();
+
+        ReconciliationReport report = new LedgerReconciler(accounts, ledger).reconcile();
+
+        assertTrue(report.isBalanced(), report.toString());
+        assertEquals(3, report.getAccountsChecked());
+        assertEquals(report.getBalanceTotal(), report.getLedgerTotal());
+        List<Transaction> history = ledger.findByAccountId(a);
+        assertEquals(Transaction.TransactionType.DEPOSIT, history.get(0).getType());
+        assertEquals(Transaction.TransactionType.WITHDRAWAL, history.get(2).getType());
+        assertEquals(-2000, history.get(2).getBalanceEffectMinorUnits());
+        assertEquals(-3000, history.get(3).getBalanceEffectMinorUnits());
+    }
+
+    @Test
+    void tamperedBalances_AreReportedUpToLimit() {
+        InMemoryAccountRepository accounts = new InMemoryAccountRepository();
+        InMemoryTransactionRepository ledger = new InMemoryTransactionRepository();
+        BankAccountServiceImpl service = new BankAccountServiceImpl(accounts, ledger);
+        List<String> ids = new ArrayList<>();
+        for (int i = 0; i < 5000; i++) {
+            ids.add(service.createAccount("owner" + i, Money.parse("10.00")).getAccountId());
+        }
+        for (int i = 0; i < 3; i++) {
+            BankAccount account = accounts.findById(ids.get(i * 1000));
+            account.setBalanceMinorUnits(account.getBalanceMinorUnits() + 1);
+        }
+
+        ReconciliationReport report = new LedgerReconciler(accounts, ledger, 2).reconcile();
+
+        assertFalse(report.isBalanced());
+        assertEquals(5000, report.getAccountsChecked());
+        assertEquals(3, report.getMismatchCount());
+        assertEquals(2, report.getMismatches().size());
+        ReconciliationReport.Mismatch mismatch = report.getMismatches().get(0);
+        assertEquals(Money.parse("10.00"), mismatch.getLedgerBalance());
+        assertEquals(Money.parse("0.01"), mismatch.getDifference());
+        assertEquals(Money.parse("0.03"), report.getBalanceTotal().minus(report.getLedgerTotal()));
+        assertThrows(IllegalArgumentException.class, () -> new LedgerReconciler(accounts, ledger, -1));
+    }
+
+    @Test
+    void concurrentTraffic_OffHeapLedger_Reconciles() throws Exception {
+        InMemoryAccountRepository accounts = new InMemoryAccountRepository();
+        OffHeapTransactionRepository ledger = new OffHeapTransactionRepository();
+        BankAccountServiceImpl service = new BankAccountServiceImpl(accounts, ledger);
+        List<String> ids = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            ids.add(service.createAccount("owner" + i, Money.parse("100.00")).getAccountId());
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            futures.add(executor.submit(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                for (int i = 0; i < 5000; i++) {
+                    String from = ids.get(random.nextInt(ids.size()));
+                    String to = ids.get(random.nextInt(ids.size()));
+                    Money amount = Money.ofMinor(1 + random.nextInt(500));
+                    if (from.equals(to)) {
+                        service.tryDeposit(from, amount);
+                    } else if (i % 7 == 0) {
+                        service.tryWithdraw(from, amount);
+                    } else {
+                        service.tryTransfer(from, to, amount);
+                    }
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+
+        ReconciliationReport report = new LedgerReconciler(accounts, ledger).reconcile();
+
+        assertTrue(report.isBalanced(), report.toString());
+        for (String id : ids) {
+            long expected = ledger.findByAccountId(id).stream()
+                    .mapToLong(Transaction::getBalanceEffectMinorUnits).sum();
+            assertEquals(expected, ledger.sumBalanceEffects(id));
+        }
+    }
+
+    @Test
+    void shardedService_Reconciles() {
+        InMemoryAccountRepository accounts = new InMemoryAccountRepository();
+        InMemoryTransactionRepository ledger = new InMemoryTransactionRepository();
+        Random random = new Random(7);
+        try (ShardedBankAccountService service = new ShardedBankAccountService(accounts, ledger, 4, 1024)) {
+            List<String> ids = new ArrayList<>();
+            for (int i = 0; i < 20; i++) {
+                ids.add(service.createAccount("owner" + i, Money.parse("50.00")).getAccountId());
+            }
+            for (int i = 0; i < 2000; i++) {
+                String from = ids.get(random.nextInt(ids.size()));
+                String to = ids.get(random.nextInt(ids.size()));
+                Money amount = Money.ofMinor(1 + random.nextInt(300));
+                service.tryTransfer(from, to, amount);
+                if (i % 10 == 0) {
+                    service.tryWithdraw(to, amount);
+                    service.executeBatch(List.of(Operation.deposit(from, amount)), BatchMode.ATOMIC);
+                }
+            }
+        }
+
+        assertTrue(new LedgerReconciler(accounts, ledger).reconcile().isBalanced());
+    }
+}
@@ -0,0 +1,79 @@
+package org.example;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import java.math.BigDecimal;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MoneyTest {
+    @Test
+    void of_Double_RoundsToMinorUnits() {
+        assertEquals(29, Money.of(0.29).getMinorUnits());
+        assertEquals(10, Money.of(0.1).getMinorUnits());
+        assertEquals(-150, Money.of(-1.5).getMinorUnits());
+    }
+
+    @Test
+    void plusAndMinus_AreExact() {
+        Money sum = Money.of(0.1).plus(Money.of(0.2));
+        assertEquals(Money.parse("0.30"), sum);
+        assertEquals(Money.parse("0.10"), sum.minus(Money.of(0.2)));
+    }
+
+    @Test
+    void plus_Overflow_ThrowsArithmeticException() {
+        assertThrows(ArithmeticException.class,
+                () -> Money.ofMinor(Long.MAX_VALUE).plus(Money.ofMinor(1)));
+    }
+
+    @Test
+    void toMinorUnits_LosingPrecision_ThrowsArithmeticException() {
+        Money amount = Money.parse("1.005");
+        assertEquals(3, amount.getScale());
+        assertThrows(ArithmeticException.class, () -> amount.toMinorUnits(Money.SCALE));
+        assertEquals(100500, amount.toMinorUnits(5));
+    }
+
+    @ParameterizedTest
+    @CsvSource({
+            "10000, 5.0, 500",
+            "333, 1.5, 5",
+            "250, 1.0, 2",
+            "350, 1.0, 4",
+            "100000000000, 0.000001, 1000"
+    })
+    void percentOf_RoundsHalfEven(long minorUnits, double rate, long expected) {
+        assertEquals(expected, Money.percentOf(minorUnits, rate));
+    }
+
+    @Test
+    void percentOf_HugeBalance_FallsBackToExactArithmetic() {
+        long balance = Long.MAX_VALUE / 10;
+        long expected = new BigDecimal(balance).multiply(new BigDecimal("0.05"))
+                .setScale(0, java.math.RoundingMode.HALF_EVEN).longValueExact();
+        assertEquals(expected, Money.percentOf(balance, 5.0));
+    }
+
+    @Test
+    void toString_UsesPlainNotation() {
+        assertEquals("105.00", Money.ofMinor(10500).toString());
+    }
+
+    @Test
+    void isRepresentableAt_DetectsPrecisionLossAndOverflow() {
+        assertTrue(Money.parse("1.50").isRepresentableAt(2));
+        assertTrue(Money.parse("1.500").isRepresentableAt(2));
+        assertFalse(Money.parse("1.505").isRepresentableAt(2));
+        assertFalse(Money.ofMinor(Long.MAX_VALUE).isRepresentableAt(Money.SCALE + 1));
+    }
+
+    @Test
+    void stacklessExceptions_SkipStackTraceCapture() {
+        assertEquals(0, new AccountNotFoundException("Account not found", false).getStackTrace().length);
+        assertEquals(0, new AccountFrozenException("Frozen", false).getStackTrace().length);
+        assertTrue(new AccountFrozenException("Frozen").getStackTrace().length > 0);
+    }
+}
@@ -0,0 +1,128 @@
+package org.example;
+
+import org.junit.jupiter.api.Test;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import static org.junit.jupiter.api.Assertions.*;
+
+class OffHeapTransactionRepositoryTest {
+    @Test
+    void save_RoundTripsAllFields() {
+        OffHeapTransactionRepository repository = new OffHeapTransactionRepository();
+        LocalDateTime timestamp = LocalDateTime.of(2024, 3, 15, 10, 30, 45, 123_456_789);
+        String uuid = UUID.randomUUID().toString();
+        repository.save(new Transaction(uuid, "acc1", Transaction.TransactionType.TRANSFER,
+                Money.parse("-12.34"), timestamp));
+        repository.save(new Transaction("custom-id", "acc1", Transaction.TransactionType.INTEREST, 0.5, null));
+        repository.save(new Transaction(null, "acc2", Transaction.TransactionType.DEPOSIT, 1.0, timestamp));
+
+        List<Transaction> history = repository.findByAccountId("acc1");
+        assertEquals(2, history.size());
+        Transaction first = history.get(0);
+        assertEquals(uuid, first.getId());
+        assertEquals("acc1", first.getAccountId());
+        assertEquals(Transaction.TransactionType.TRANSFER, first.getType());
+        assertEquals(-1234, first.getAmountMinorUnits());
+        assertEquals(timestamp, first.getTimestamp());
+        assertEquals("custom-id", history.get(1).getId());
+        assertNull(history.get(1).getTimestamp());
+        assertNull(repository.findByAccountId("acc2").get(0).getId());
+        assertTrue(repository.findByAccountId("unknown").isEmpty());
+        assertEquals(3, repository.size());
+    }
+
+    @Test
+    void findByAccountId_SpansChunksInInsertionOrder() {
+        OffHeapTransactionRepository repository = new OffHeapTransactionRepository();
+        int count = OffHeapTransactionRepository.CHUNK_RECORDS + 10;
+        for (int i = 0; i < count; i++) {
+            repository.save(new Transaction("id" + i, i % 2 == 0 ? "even" : "odd",
+                    Transaction.TransactionType.DEPOSIT, Money.ofMinor(i)));
+        }
+
+        List<Transaction> even = repository.findByAccountId("even");
+        assertEquals(count / 2, even.size());
+        for (int i = 0; i < even.size(); i++) {
+            assertEquals(2L * i, even.get(i).getAmountMinorUnits());
+        }
+        assertEquals(count / 2, repository.streamByAccountId("odd").count());
+        assertTrue(repository.getOffHeapBytes() > 0);
+    }
+
+    @Test
+    void findByTimeRange_HandlesOrderedAndUnorderedAppends() {
+        OffHeapTransactionRepository repository = new OffHeapTransactionRepository();
+        LocalDateTime base = LocalDateTime.of(2024, 1, 1, 0, 0);
+        for (int hour = 0; hour < 10; hour++) {
+            repository.save(new Transaction("t" + hour, hour % 2 == 0 ? "acc1" : "acc2",
+                    Transaction.TransactionType.DEPOSIT, 1.0, base.plusHours(hour)));
+        }
+        assertEquals(List.of("t3", "t4", "t5"), ids(repository.findByTimeRange(base.plusHours(3), base.plusHours(6))));
+        assertEquals(List.of("t2", "t4"),
+                ids(repository.findByAccountIdAndTimeRange("acc1", base.plusHours(1), base.plusHours(5))));
+
+        // Запись из прошлого отключает двоичный поиск, результат остается упорядоченным
+        repository.save(new Transaction("late", "acc1", Transaction.TransactionType.DEPOSIT, 1.0,
+                base.plusHours(3).plusMinutes(30)));
+        assertEquals(List.of("t3", "late", "t4", "t5"),
+                ids(repository.findByTimeRange(base.plusHours(3), base.plusHours(6))));
+        assertEquals(List.of("t2", "late", "t4"),
+                ids(repository.findByAccountIdAndTimeRange("acc1", base.plusHours(1), base.plusHours(5))));
+    }
+
+    @Test
+    void findByTimeRange_AfterReorderingInEarlierChunk_FindsRecordsInLaterChunks() {
+        OffHeapTransactionRepository repository = new OffHeapTransactionRepository();
+        LocalDateTime base = LocalDateTime.of(2024, 1, 1, 0, 0);
+        int count = OffHeapTransactionRepository.CHUNK_RECORDS + 100;
+        for (int i = 0; i < count; i++) {
+            // Соседние записи первого блока переставлены, как при параллельных вызовах now()
+            int second = i < 100 ? i ^ 1 : i;
+            repository.save(new Transaction("t" + i, i % 2 == 0 ? "acc1" : "acc2",
+                    Transaction.TransactionType.DEPOSIT, 1.0, base.plusSeconds(second)));
+        }
+        int from = OffHeapTransactionRepository.CHUNK_RECORDS + 10;
+        assertEquals(List.of("t" + from, "t" + (from + 1), "t" + (from + 2)),
+                ids(repository.findByTimeRange(base.plusSeconds(from), base.plusSeconds(from + 3))));
+        assertEquals(List.of("t" + from, "t" + (from + 2)), ids(repository.findByAccountIdAndTimeRange("acc1",
+                base.plusSeconds(from), base.plusSeconds(from + 3))));
+        assertEquals(List.of("t1", "t0", "t3", "t2"),
+                ids(repository.findByTimeRange(base, base.plusSeconds(4))));
+    }
+
+    @Test
+    void concurrentSaves_AreAllVisible() throws Exception {
+        OffHeapTransactionRepository repository = new OffHeapTransactionRepository();
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            Future<?>[] futures = new Future<?>[4];
+            for (int t = 0; t < futures.length; t++) {
+                String accountId = "acc" + t;
+                futures[t] = executor.submit(() -> {
+                    for (int i = 0; i < 1000; i++) {
+                        repository.save(new Transaction(UUID.randomUUID().toString(), accountId,
+                                Transaction.TransactionType.DEPOSIT, 1.0));
+                        repository.findByAccountId(accountId);
+                    }
+                });
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+        for (int t = 0; t < 4; t++) {
+            assertEquals(1000, repository.findByAccountId("acc" + t).size());
+        }
+    }
+
+    private static List<String> ids(List<Transaction> transactions) {
+        return transactions.stream().map(Transaction::getId).collect(Collectors.toList());
+    }
+}
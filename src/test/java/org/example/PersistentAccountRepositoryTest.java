@@ -0,0 +1,166 @@
+package org.example;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PersistentAccountRepositoryTest {
+    private static final int SMALL_SEGMENT = 1024;
+
+    @TempDir
+    Path directory;
+
+    private PersistentAccountRepository open() throws IOException {
+        return new PersistentAccountRepository(directory, SMALL_SEGMENT, JournalDurability.PER_WRITE,
+                0, 0, TimeUnit.MILLISECONDS);
+    }
+
+    @Test
+    void reopen_WithoutSnapshot_ReplaysWholeJournal() throws IOException {
+        try (PersistentAccountRepository repository = open()) {
+            BankAccount account = new BankAccount("acc1", "John", Money.parse("10.00"));
+            repository.save(account);
+            account.setBalanceMinorUnits(2500);
+            account.setFrozen(true);
+            repository.save(account);
+            repository.save(new BankAccount("acc2", null, Money.ZERO));
+            repository.delete("acc2");
+        }
+
+        try (PersistentAccountRepository reopened = open()) {
+            BankAccount restored = reopened.findById("acc1");
+            assertEquals("John", restored.getOwnerName());
+            assertEquals(Money.parse("25.00"), restored.getBalanceMoney());
+            assertTrue(restored.isFrozen());
+            assertNull(reopened.findById("acc2"));
+            assertEquals(1, reopened.findAll().size());
+        }
+    }
+
+    @Test
+    void reopen_AfterSnapshot_LoadsSnapshotAndJournalTail() throws IOException {
+        try (PersistentAccountRepository repository = open()) {
+            for (int i = 0; i < 100; i++) {
+                repository.save(new BankAccount("acc" + i, "owner" + i, Money.ofMinor(i)));
+            }
+            long sequence = repository.snapshot();
+            assertEquals(100, sequence);
+
+            for (int i = 0; i < 100; i++) {
+                repository.save(new BankAccount("acc" + i, "owner" + i, Money.ofMinor(i)));
+            }
+            assertEquals(200, repository.snapshot());
+
+            BankAccount changed = repository.findById("acc5");
+            changed.setBalanceMinorUnits(777);
+            repository.save(changed);
+            repository.delete("acc6");
+        }
+        // Сегменты, полностью покрытые предыдущим снимком, удалены
+        assertFalse(Files.exists(directory.resolve(String.format("accounts-%020d.log", 1))));
+        try (Stream<Path> files = Files.list(directory)) {
+            assertEquals(2, files.filter(path -> path.toString().endsWith(".snapshot")).count());
+        }
+
+        try (PersistentAccountRepository reopened = open()) {
+            assertEquals(200, reopened.getSnapshotSequence());
+            assertEquals(99, reopened.findAll().size());
+            assertEquals(777, reopened.findById("acc5").getBalanceMinorUnits());
+            assertEquals(99, reopened.findById("acc99").getBalanceMinorUnits());
+            assertNull(reopened.findById("acc6"));
+        }
+    }
+
+    @Test
+    void backgroundSnapshots_WorkWithService() throws Exception {
+        String accountId;
+        try (PersistentAccountRepository repository = new PersistentAccountRepository(directory,
+                PersistentAccountRepository.DEFAULT_SEGMENT_SIZE, JournalDurability.TIME_BOUNDED,
+                5, 10, TimeUnit.MILLISECONDS)) {
+            BankAccountService service = new BankAccountServiceImpl(repository, new InMemoryTransactionRepository());
+            accountId = service.createAccount("John", Money.parse("100.00")).getAccountId();
+            for (int i = 0; i < 50; i++) {
+                service.deposit(accountId, Money.parse("1.00"));
+            }
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (repository.getSnapshotSequence() == 0 && System.nanoTime() < deadline) {
+                Thread.sleep(5);
+            }
+            assertTrue(repository.getSnapshotSequence() > 0);
+        }
+
+        try (PersistentAccountRepository reopened = open()) {
+            assertEquals(Money.parse("150.00"), reopened.findById(accountId).getBalanceMoney());
+        }
+    }
+
+    @Test
+    void compareAndSave_ChecksVersionAndSurvivesReopen() throws IOException {
+        try (PersistentAccountRepository repository = open()) {
+            assertTrue(repository.supportsCompareAndSave());
+            repository.save(new BankAccount("acc1", "John", Money.parse("10.00")));
+            repository.save(new BankAccount("acc2", "Jane", Money.parse("5.00")));
+            long version = repository.findById("acc1").getVersion();
+
+            BankAccount copy = new BankAccount(repository.findById("acc1"));
+            copy.setBalanceMinorUnits(1500);
+            assertTrue(repository.compareAndSave(copy, version));
+            assertEquals(version + 1, repository.findById("acc1").getVersion());
+            BankAccount stale = new BankAccount(copy);
+            stale.setBalanceMinorUnits(1);
+            assertFalse(repository.compareAndSave(stale, version));
+
+            BankAccount first = new BankAccount(repository.findById("acc1"));
+            BankAccount second = new BankAccount(repository.findById("acc2"));
+            first.setBalanceMinorUnits(1000);
+            second.setBalanceMinorUnits(1000);
+            assertFalse(repository.compareAndSaveAll(List.of(first, second),
+                    new long[]{first.getVersion(), second.getVersion() + 1}));
+            assertEquals(500, repository.findById("acc2").getBalanceMinorUnits());
+            assertTrue(repository.compareAndSaveAll(List.of(first, second),
+                    new long[]{first.getVersion(), second.getVersion()}));
+        }
+
+        try (PersistentAccountRepository reopened = open()) {
+            assertEquals(1000, reopened.findById("acc1").getBalanceMinorUnits());
+            assertEquals(1000, reopened.findById("acc2").getBalanceMinorUnits());
+        }
+    }
+
+    @Test
+    void reopen_UnreadableLatestSnapshot_FallsBackToPreviousOne() throws IOException {
+        Path latest;
+        try (PersistentAccountRepository repository = open()) {
+            for (int i = 0; i < 50; i++) {
+                repository.save(new BankAccount("acc" + i, "owner" + i, Money.ofMinor(i)));
+            }
+            repository.snapshot();
+            for (int i = 0; i < 50; i++) {
+                BankAccount account = repository.findById("acc" + i);
+                account.setBalanceMinorUnits(1000 + i);
+                repository.save(account);
+            }
+            long sequence = repository.snapshot();
+            repository.save(new BankAccount("tail", "John", Money.parse("1.00")));
+            latest = directory.resolve(String.format("accounts-%020d.snapshot", sequence));
+        }
+        // Оборванная запись последнего снимка
+        Files.write(latest, Arrays.copyOf(Files.readAllBytes(latest), (int) Files.size(latest) - 5));
+
+        try (PersistentAccountRepository reopened = open()) {
+            assertEquals(50, reopened.getSnapshotSequence());
+            assertEquals(51, reopened.findAll().size());
+            assertEquals(1049, reopened.findById("acc49").getBalanceMinorUnits());
+            assertEquals(100, reopened.findById("tail").getBalanceMinorUnits());
+        }
+    }
+}
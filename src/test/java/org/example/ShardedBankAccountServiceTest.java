@@ -0,0 +1,181 @@
+package org.example;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import static org.junit.jupiter.api.Assertions.*;
+
+class ShardedBankAccountServiceTest {
+    private InMemoryAccountRepository accountRepository;
+    private ShardedBankAccountService service;
+
+    @BeforeEach
+    void setUp() {
+        accountRepository = new InMemoryAccountRepository();
+        service = new ShardedBankAccountService(accountRepository, new InMemoryTransactionRepository(), 4, 64);
+    }
+
+    @AfterEach
+    void tearDown() {
+        service.close();
+    }
+
+    @Test
+    void singleAccountOperations_BehaveLikeLockingService() {
+        BankAccount account = service.createAccount("John", 100.0);
+
+        service.deposit(account.getAccountId(), Money.parse("50.25"));
+        service.withdraw(account.getAccountId(), 20.0);
+        assertEquals(Money.parse("130.25"), service.getBalanceMoney(account.getAccountId()));
+
+        assertThrows(InsufficientFundsException.class, () -> service.withdraw(account.getAccountId(), 1000.0));
+        assertThrows(AccountNotFoundException.class, () -> service.deposit("missing", 1.0));
+        assertThrows(IllegalArgumentException.class, () -> service.deposit(account.getAccountId(), 0.001));
+        service.freezeAccount(account.getAccountId());
+        assertThrows(AccountFrozenException.class, () -> service.deposit(account.getAccountId(), 1.0));
+        service.unfreezeAccount(account.getAccountId());
+
+        service.applyInterest(account.getAccountId(), 10.0);
+        assertEquals(Money.parse("143.27"), service.getBalanceMoney(account.getAccountId()));
+        // Открытие счета, зачисление, списание и проценты
+        assertEquals(4, service.getTransactionHistory(account.getAccountId()).size());
+    }
+
+    @Test
+    void tryOperations_ReturnResultCodes_AndShardRejectionsHaveNoStackTrace() {
+        BankAccount account = service.createAccount("John", 100.0);
+        BankAccount other = service.createAccount("Jane", 0.0);
+
+        assertEquals(OperationResult.SUCCESS, service.tryTransfer(account.getAccountId(), other.getAccountId(),
+                Money.parse("40.00")));
+        assertEquals(OperationResult.INSUFFICIENT_FUNDS, service.tryWithdraw(account.getAccountId(),
+                Money.parse("60.01")));
+        assertEquals(OperationResult.ACCOUNT_NOT_FOUND, service.tryDeposit("missing", Money.parse("1.00")));
+        assertEquals(OperationResult.INVALID_OPERATION, service.tryDeposit(account.getAccountId(), Money.ZERO));
+        assertEquals(Money.parse("60.00"), service.getBalanceMoney(account.getAccountId()));
+        assertEquals(Money.parse("40.00"), service.getBalanceMoney(other.getAccountId()));
+
+        InsufficientFundsException e = assertThrows(InsufficientFundsException.class,
+                () -> service.withdraw(account.getAccountId(), 1000.0));
+        assertEquals(0, e.getStackTrace().length);
+    }
+
+    @Test
+    void transferToMissingAccount_LeavesSourceUnchanged() {
+        BankAccount account = service.createAccount("John", 100.0);
+
+        assertThrows(AccountNotFoundException.class,
+                () -> service.transfer(account.getAccountId(), "missing", 10.0));
+        assertEquals(100.0, service.getBalance(account.getAccountId()));
+    }
+
+    @Test
+    void concurrentTransfers_ConserveTotalBalance() throws Exception {
+        List<String> ids = new ArrayList<>();
+        for (int i = 0; i < 16; i++) {
+            ids.add(service.createAccount("owner" + i, 1000.0).getAccountId());
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                futures.add(executor.submit(() -> {
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    for (int i = 0; i < 2000; i++) {
+                        String from = ids.get(random.nextInt(ids.size()));
+                        String to = ids.get(random.nextInt(ids.size()));
+                        if (from.equals(to)) {
+                            continue;
+                        }
+                        try {
+                            service.transfer(from, to, Money.ofMinor(1 + random.nextInt(5000)));
+                        } catch (InsufficientFundsException e) {
+                            // Допустимый исход
+                        }
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        long total = 0;
+        for (String id : ids) {
+            long balance = service.getBalanceMoney(id).toMinorUnits(Money.SCALE);
+            assertTrue(balance >= 0);
+            total += balance;
+        }
+        assertEquals(16 * 100_000L, total);
+    }
+
+    @Test
+    void executeBatch_AcrossShards_RollsBackAtomically() {
+        List<String> ids = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            ids.add(service.createAccount("owner" + i, 100.0).getAccountId());
+        }
+        List<Operation> operations = new ArrayList<>();
+        for (int i = 0; i < 7; i++) {
+            operations.add(Operation.transfer(ids.get(i), ids.get(i + 1), Money.parse("10")));
+        }
+        operations.add(Operation.withdraw(ids.get(0), Money.parse("1000")));
+
+        OperationResult[] results = service.executeBatch(operations);
+
+        assertEquals(OperationResult.INSUFFICIENT_FUNDS, results[7]);
+        assertEquals(OperationResult.ROLLED_BACK, results[0]);
+        for (String id : ids) {
+            assertEquals(100.0, service.getBalance(id));
+        }
+
+        results = service.executeBatch(operations.subList(0, 7), BatchMode.ATOMIC);
+        assertTrue(results[6].isSuccess());
+        assertEquals(90.0, service.getBalance(ids.get(0)));
+        assertEquals(110.0, service.getBalance(ids.get(7)));
+    }
+
+    @Test
+    void accountReads_ReturnCopiesInRepositoryOrder() {
+        List<String> ids = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            ids.add(service.createAccount("owner" + i, 10.0).getAccountId());
+        }
+
+        List<BankAccount> all = service.getAllAccounts();
+        assertEquals(ids.size(), all.size());
+        for (int i = 0; i < all.size(); i++) {
+            assertEquals(accountRepository.findAll().get(i).getAccountId(), all.get(i).getAccountId());
+            assertNotSame(accountRepository.findById(all.get(i).getAccountId()), all.get(i));
+        }
+        all.get(0).setBalanceMinorUnits(0);
+        assertEquals(Money.parse("10.00"), service.getBalanceMoney(all.get(0).getAccountId()));
+
+        Page<BankAccount> page = service.getAccounts(null, 20);
+        assertEquals(20, page.getItems().size());
+        assertNotSame(accountRepository.findById(page.getItems().get(0).getAccountId()), page.getItems().get(0));
+
+        assertEquals(ids.size(), service.streamAccounts()
+                .filter(account -> account != accountRepository.findById(account.getAccountId()))
+                .map(BankAccount::getAccountId)
+                .distinct()
+                .count());
+    }
+
+    @Test
+    void close_RejectsNewOperations() {
+        BankAccount account = service.createAccount("John", 100.0);
+        service.close();
+
+        assertThrows(IllegalStateException.class, () -> service.deposit(account.getAccountId(), 1.0));
+    }
+}
@@ -0,0 +1,86 @@
+package org.example;
+
+import org.junit.jupiter.api.Test;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import static org.junit.jupiter.api.Assertions.*;
+
+class TimeOrderedIdGeneratorTest {
+    @Test
+    void next_IsStrictlyIncreasingWithinThread() {
+        IdGenerator generator = new TimeOrderedIdGenerator(42);
+        CompactId previous = generator.next();
+        for (int i = 0; i < 100_000; i++) {
+            CompactId current = generator.next();
+            assertTrue(current.compareTo(previous) > 0);
+            // Строковое представление упорядочено так же, как числовое
+            assertTrue(current.toString().compareTo(previous.toString()) > 0);
+            previous = current;
+        }
+    }
+
+    @Test
+    void next_RendersAsVersion7Uuid() {
+        long before = System.currentTimeMillis();
+        CompactId id = new TimeOrderedIdGenerator().next();
+        UUID uuid = UUID.fromString(id.toString());
+
+        assertEquals(7, uuid.version());
+        assertEquals(2, uuid.variant());
+        assertEquals(id, CompactId.of(uuid));
+        assertTrue(uuid.getMostSignificantBits() >>> 16 >= before);
+        assertEquals(uuid.toString(), id.toString());
+    }
+
+    @Test
+    void next_IsUniqueAcrossThreads() throws Exception {
+        IdGenerator generator = new TimeOrderedIdGenerator();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<List<CompactId>>> futures = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                futures.add(executor.submit(() -> {
+                    List<CompactId> ids = new ArrayList<>();
+                    for (int i = 0; i < 20_000; i++) {
+                        ids.add(generator.next());
+                    }
+                    return ids;
+                }));
+            }
+            Set<CompactId> all = new HashSet<>();
+            for (Future<List<CompactId>> future : futures) {
+                all.addAll(future.get());
+            }
+            assertEquals(8 * 20_000, all.size());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    void next_IsUniqueWhenEveryCallRunsOnNewThread() throws Exception {
+        IdGenerator generator = new TimeOrderedIdGenerator();
+        Set<CompactId> all = ConcurrentHashMap.newKeySet();
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 2000; t++) {
+            Thread thread = new Thread(() -> {
+                for (int i = 0; i < 10; i++) {
+                    all.add(generator.next());
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(2000 * 10, all.size());
+    }
+}
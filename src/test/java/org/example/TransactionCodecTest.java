@@ -0,0 +1,82 @@
+package org.example;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TransactionCodecTest {
+    private static final LocalDateTime TIMESTAMP = LocalDateTime.of(2024, 3, 1, 12, 30, 15, 123456789);
+
+    @Test
+    void encodeDecode_HeapAndDirectBuffers_RoundTrip() {
+        Transaction transaction = new Transaction("6f1c1f5e-1d2b-4c7a-9b7e-1f2d3c4b5a69", "счет-1",
+                Transaction.TransactionType.TRANSFER, Money.parse("-12.34"), TIMESTAMP);
+
+        for (ByteBuffer buffer : new ByteBuffer[]{ByteBuffer.allocate(512),
+                ByteBuffer.allocateDirect(512).order(ByteOrder.nativeOrder())}) {
+            TransactionCodec.encode(transaction, buffer);
+            TransactionCodec.encode(new Transaction(null, "acc2", Transaction.TransactionType.DEPOSIT,
+                    Money.parse("1.00"), null), buffer);
+            assertEquals(2 * TransactionCodec.RECORD_SIZE, buffer.position());
+
+            buffer.flip();
+            Transaction decoded = TransactionCodec.decode(buffer);
+            assertEquals(transaction.getId(), decoded.getId());
+            assertEquals("счет-1", decoded.getAccountId());
+            assertEquals(Transaction.TransactionType.TRANSFER, decoded.getType());
+            assertEquals(-1234, decoded.getAmountMinorUnits());
+            assertEquals(TIMESTAMP, decoded.getTimestamp());
+
+            Transaction second = TransactionCodec.decode(buffer);
+            assertNull(second.getId());
+            assertNull(second.getTimestamp());
+            assertFalse(buffer.hasRemaining());
+        }
+    }
+
+    @Test
+    void reader_ReadsFieldsInPlace() {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(TransactionCodec.RECORD_SIZE * 100);
+        for (int i = 0; i < 100; i++) {
+            TransactionCodec.encode(new Transaction("id" + i, "acc" + (i % 4),
+                    i % 2 == 0 ? Transaction.TransactionType.DEPOSIT : Transaction.TransactionType.WITHDRAWAL,
+                    Money.ofMinor(i), TIMESTAMP), buffer);
+        }
+
+        TransactionCodec.Reader reader = new TransactionCodec.Reader();
+        long balance = 0;
+        for (int offset = 0; offset < buffer.position(); offset += TransactionCodec.RECORD_SIZE) {
+            if (reader.wrap(buffer, offset).accountIdEquals("acc1")) {
+                balance += reader.getBalanceEffectMinorUnits();
+            }
+        }
+        // Счет acc1 получает только списания 1, 5, 9, ..., 97
+        assertEquals(-1225, balance);
+        reader.wrap(buffer, TransactionCodec.RECORD_SIZE * 7);
+        assertEquals("id7", reader.getId());
+        assertEquals(TIMESTAMP.getNano(), reader.getNano());
+        assertTrue(reader.hasTimestamp());
+    }
+
+    @Test
+    void invalidInput_IsRejected() {
+        String longId = "x".repeat(TransactionCodec.MAX_ID_BYTES + 1);
+        ByteBuffer buffer = ByteBuffer.allocate(TransactionCodec.RECORD_SIZE);
+        assertThrows(IllegalArgumentException.class, () -> TransactionCodec.encode(
+                new Transaction(longId, "acc", Transaction.TransactionType.DEPOSIT, Money.ZERO), buffer));
+        assertThrows(IllegalArgumentException.class, () -> TransactionCodec.encode(
+                new Transaction("id", null, Transaction.TransactionType.DEPOSIT, Money.ZERO), buffer));
+        assertThrows(IllegalArgumentException.class, () -> TransactionCodec.encode(
+                new Transaction("id", "acc", Transaction.TransactionType.DEPOSIT, Money.ZERO),
+                ByteBuffer.allocate(TransactionCodec.RECORD_SIZE - 1)));
+        assertEquals(0, buffer.position());
+
+        TransactionCodec.encode(new Transaction("id", "acc", Transaction.TransactionType.DEPOSIT, Money.ZERO), buffer);
+        buffer.put(0, (byte) 2);
+        assertThrows(IllegalStateException.class, () -> TransactionCodec.decode(buffer, 0));
+    }
+}
@@ -0,0 +1,129 @@
+package org.example;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TransferNettingTest {
+    private final InMemoryTransactionRepository transactionRepository = new InMemoryTransactionRepository();
+
+    @Test
+    void circularTransfers_CancelOutAndKeepAuditEntries() {
+        BankAccountServiceImpl service = new BankAccountServiceImpl(new InMemoryAccountRepository(),
+                transactionRepository);
+        String a = service.createAccount("A", Money.ZERO).getAccountId();
+        String b = service.createAccount("B", Money.ZERO).getAccountId();
+        String c = service.createAccount("C", Money.ZERO).getAccountId();
+
+        SettlementReport report = service.settleTransfers(List.of(
+                Operation.transfer(a, b, Money.parse("100.00")),
+                Operation.transfer(b, c, Money.parse("100.00")),
+                Operation.transfer(c, a, Money.parse("100.00"))));
+
+        assertTrue(report.isSettled());
+        assertEquals(0, report.getAccountsUpdated());
+        assertEquals(Money.parse("300.00"), report.getGrossAmount());
+        assertEquals(Money.ZERO, report.getNetAmount());
+        assertEquals(Money.ZERO, service.getBalanceMoney(a));
+        List<Transaction> history = transactionRepository.findByAccountId(a);
+        assertEquals(2, history.size());
+        assertEquals(0, history.stream().mapToLong(Transaction::getAmountMinorUnits).sum());
+    }
+
+    @Test
+    void fundsAreCheckedOnNetPosition() {
+        BankAccountServiceImpl service = new BankAccountServiceImpl(new InMemoryAccountRepository(),
+                transactionRepository);
+        String a = service.createAccount("A", Money.parse("10.00")).getAccountId();
+        String b = service.createAccount("B", Money.ZERO).getAccountId();
+
+        SettlementReport report = service.settleTransfers(List.of(
+                Operation.transfer(a, b, Money.parse("50.00")),
+                Operation.transfer(b, a, Money.parse("45.00"))));
+
+        assertTrue(report.isSettled());
+        assertEquals(2, report.getAccountsUpdated());
+        assertEquals(Money.parse("5.00"), service.getBalanceMoney(a));
+        assertEquals(Money.parse("5.00"), service.getBalanceMoney(b));
+    }
+
+    @Test
+    void rejectedAccount_LeavesAllBalancesUnchanged() {
+        BankAccountServiceImpl service = new BankAccountServiceImpl(new InMemoryAccountRepository(),
+                transactionRepository);
+        String a = service.createAccount("A", Money.parse("10.00")).getAccountId();
+        String b = service.createAccount("B", Money.parse("10.00")).getAccountId();
+
+        SettlementReport report = service.settleTransfers(List.of(
+                Operation.transfer(a, b, Money.parse("5.00")),
+                Operation.transfer(b, "missing", Money.parse("20.00"))));
+
+        assertFalse(report.isSettled());
+        assertEquals(Map.of(b, OperationResult.INSUFFICIENT_FUNDS, "missing", OperationResult.ACCOUNT_NOT_FOUND),
+                report.getRejections());
+        assertEquals(Money.parse("10.00"), service.getBalanceMoney(a));
+        assertEquals(Money.parse("10.00"), service.getBalanceMoney(b));
+        // Только проводка открытия счета
+        assertEquals(1, transactionRepository.findByAccountId(a).size());
+        assertThrows(IllegalArgumentException.class,
+                () -> service.settleTransfers(List.of(Operation.deposit(a, Money.parse("1.00")))));
+    }
+
+    @Test
+    void rejectedAccount_UnderLocks_LeavesAllBalancesUnchanged() {
+        // Кеширующий декоратор возвращает сохраненные объекты и не поддерживает compareAndSave
+        AccountRepository repository = new CachingAccountRepository(new InMemoryAccountRepository(), 100);
+        BankAccountServiceImpl service = new BankAccountServiceImpl(repository, transactionRepository);
+        String x = service.createAccount("X", Money.parse("100.00")).getAccountId();
+        String y = service.createAccount("Y", Money.ZERO).getAccountId();
+        String z = service.createAccount("Z", Money.ZERO).getAccountId();
+
+        SettlementReport report = service.settleTransfers(List.of(
+                Operation.transfer(x, y, Money.parse("50.00")),
+                Operation.transfer(z, y, Money.parse("10.00"))));
+
+        assertFalse(report.isSettled());
+        assertEquals(Map.of(z, OperationResult.INSUFFICIENT_FUNDS), report.getRejections());
+        assertEquals(Money.parse("100.00"), service.getBalanceMoney(x));
+        assertEquals(Money.ZERO, service.getBalanceMoney(y));
+        assertEquals(Money.ZERO, service.getBalanceMoney(z));
+    }
+
+    @Test
+    void largeBatch_UnderLocks_MatchesSequentialTransfers() {
+        // Кеширующий декоратор не поддерживает compareAndSave - проверяется путь с блокировками
+        AccountRepository repository = new CachingAccountRepository(new InMemoryAccountRepository(), 1000);
+        BankAccountServiceImpl service = new BankAccountServiceImpl(repository, transactionRepository);
+        List<String> ids = new ArrayList<>();
+        long[] expected = new long[40];
+        for (int i = 0; i < expected.length; i++) {
+            ids.add(service.createAccount("owner" + i, Money.ofMinor(1_000_000)).getAccountId());
+            expected[i] = 1_000_000;
+        }
+        Random random = new Random(42);
+        List<Operation> transfers = new ArrayList<>();
+        for (int i = 0; i < 50_000; i++) {
+            int from = random.nextInt(ids.size());
+            int to = (from + 1 + random.nextInt(ids.size() - 1)) % ids.size();
+            long amount = 1 + random.nextInt(100);
+            transfers.add(Operation.transfer(ids.get(from), ids.get(to), Money.ofMinor(amount)));
+            expected[from] -= amount;
+            expected[to] += amount;
+        }
+
+        SettlementReport report = service.settleTransfers(transfers);
+
+        assertTrue(report.isSettled());
+        for (int i = 0; i < ids.size(); i++) {
+            assertEquals(Money.ofMinor(expected[i]), service.getBalanceMoney(ids.get(i)));
+        }
+        assertEquals(100_000 + ids.size(), transactionRepository.findByTimeRange(
+                LocalDateTime.MIN, LocalDateTime.MAX).size());
+    }
+}
@@ -0,0 +1,192 @@
+package org.example;
+
+import org.junit.jupiter.api.Test;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import static org.junit.jupiter.api.Assertions.*;
+
+class WriteBehindAccountRepositoryTest {
+    // Хранилище, считающее записанные счета
+    private static final class CountingRepository extends InMemoryAccountRepository {
+        private final AtomicInteger writes = new AtomicInteger();
+
+        @Override
+        public void save(BankAccount account) {
+            writes.incrementAndGet();
+            super.save(account);
+        }
+
+        @Override
+        public void saveAll(Collection<BankAccount> accounts) {
+            writes.addAndGet(accounts.size());
+            for (BankAccount account : accounts) {
+                super.save(account);
+            }
+        }
+    }
+
+    @Test
+    void repeatedSaves_AreCoalescedIntoOneWrite() {
+        CountingRepository delegate = new CountingRepository();
+        try (WriteBehindAccountRepository repository =
+                     new WriteBehindAccountRepository(delegate, 1000, 1, TimeUnit.HOURS)) {
+            BankAccount account = new BankAccount("acc1", "John", 0);
+            for (int i = 1; i <= 100; i++) {
+                account.setBalanceMinorUnits(i);
+                repository.save(account);
+            }
+            // До сброса чтение видит буфер, а хранилище еще пусто
+            assertEquals(100, repository.findById("acc1").getBalanceMinorUnits());
+            assertNull(delegate.findById("acc1"));
+            assertEquals(1, repository.findAll().size());
+
+            repository.flush();
+            assertEquals(1, delegate.writes.get());
+            assertEquals(99, repository.getCoalescedCount());
+            assertEquals(100, delegate.findById("acc1").getBalanceMinorUnits());
+            assertEquals(0, repository.getPendingCount());
+        }
+    }
+
+    @Test
+    void delete_IsAppliedOnFlush() {
+        InMemoryAccountRepository delegate = new InMemoryAccountRepository();
+        delegate.save(new BankAccount("acc1", "John", 10));
+        try (WriteBehindAccountRepository repository =
+                     new WriteBehindAccountRepository(delegate, 1000, 1, TimeUnit.HOURS)) {
+            repository.delete("acc1");
+            assertNull(repository.findById("acc1"));
+            assertTrue(repository.findAll().isEmpty());
+            assertNotNull(delegate.findById("acc1"));
+
+            repository.flush();
+            assertNull(delegate.findById("acc1"));
+        }
+    }
+
+    @Test
+    void sizeTrigger_FlushesInBackground() throws Exception {
+        CountingRepository delegate = new CountingRepository();
+        try (WriteBehindAccountRepository repository =
+                     new WriteBehindAccountRepository(delegate, 10, 1, TimeUnit.HOURS)) {
+            for (int i = 0; i < 10; i++) {
+                repository.save(new BankAccount("acc" + i, "owner", 1));
+            }
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+            while (delegate.writes.get() < 10 && System.nanoTime() < deadline) {
+                Thread.sleep(1);
+            }
+            assertEquals(10, delegate.writes.get());
+        }
+    }
+
+    @Test
+    void acknowledgeAfterFlush_SaveReturnsOnlyWhenPersisted() throws Exception {
+        CountingRepository delegate = new CountingRepository();
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try (WriteBehindAccountRepository repository =
+                     new WriteBehindAccountRepository(delegate, 1000, 1, TimeUnit.HOURS, true)) {
+            Future<?>[] futures = new Future<?>[4];
+            for (int t = 0; t < futures.length; t++) {
+                String accountId = "acc" + t;
+                futures[t] = executor.submit(() -> {
+                    for (int i = 1; i <= 50; i++) {
+                        repository.save(new BankAccount(accountId, "owner", i));
+                        assertEquals(i, delegate.findById(accountId).getBalance());
+                    }
+                });
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+            assertTrue(repository.getFlushCount() <= 200);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    void saveAfterClose_IsRejectedInsteadOfHanging() {
+        InMemoryAccountRepository delegate = new InMemoryAccountRepository();
+        WriteBehindAccountRepository repository =
+                new WriteBehindAccountRepository(delegate, 1000, 1, TimeUnit.HOURS, true);
+        repository.save(new BankAccount("acc1", "John", 10));
+        repository.close();
+
+        assertTimeoutPreemptively(Duration.ofSeconds(10), () -> {
+            assertThrows(IllegalStateException.class,
+                    () -> repository.save(new BankAccount("acc2", "Jane", 5)));
+            assertThrows(IllegalStateException.class, () -> repository.delete("acc1"));
+        });
+        assertNotNull(delegate.findById("acc1"));
+        assertNull(delegate.findById("acc2"));
+    }
+
+    @Test
+    void compareAndSave_ChecksBufferedVersionBeforeFlush() {
+        InMemoryAccountRepository delegate = new InMemoryAccountRepository();
+        delegate.save(new BankAccount("acc1", "John", 10));
+        delegate.save(new BankAccount("acc2", "Jane", 10));
+        try (WriteBehindAccountRepository repository =
+                     new WriteBehindAccountRepository(delegate, 1000, 1, TimeUnit.HOURS)) {
+            assertTrue(repository.supportsCompareAndSave());
+            BankAccount first = new BankAccount(repository.findById("acc1"));
+            long version = first.getVersion();
+            first.setBalanceMinorUnits(2000);
+            assertTrue(repository.compareAndSave(first, version));
+            // Следующая проверка идет по несброшенной версии, а не по хранилищу
+            assertFalse(repository.compareAndSave(new BankAccount(first), version));
+            assertEquals(1000, delegate.findById("acc1").getBalanceMinorUnits());
+
+            BankAccount again = new BankAccount(first);
+            BankAccount second = new BankAccount(repository.findById("acc2"));
+            again.setBalanceMinorUnits(1500);
+            second.setBalanceMinorUnits(1500);
+            assertTrue(repository.compareAndSaveAll(List.of(again, second),
+                    new long[]{version + 1, second.getVersion()}));
+
+            repository.flush();
+            assertEquals(1500, delegate.findById("acc1").getBalanceMinorUnits());
+            assertEquals(1500, delegate.findById("acc2").getBalanceMinorUnits());
+        }
+    }
+
+    @Test
+    void flush_KeepsBufferedVersion_SoStaleCompareAndSaveFails() {
+        InMemoryAccountRepository delegate = new InMemoryAccountRepository();
+        delegate.save(new BankAccount("acc1", "John", 10));
+        try (WriteBehindAccountRepository repository =
+                     new WriteBehindAccountRepository(delegate, 1000, 1, TimeUnit.HOURS)) {
+            BankAccount stale = null;
+            for (int i = 1; i <= 3; i++) {
+                BankAccount copy = new BankAccount(repository.findById("acc1"));
+                copy.setBalanceMinorUnits(i * 100);
+                assertTrue(repository.compareAndSave(copy, copy.getVersion()));
+                stale = copy;
+            }
+            long buffered = repository.findById("acc1").getVersion();
+            assertEquals(3, buffered);
+
+            repository.flush();
+            assertEquals(buffered, delegate.findById("acc1").getVersion());
+            assertEquals(buffered, repository.findById("acc1").getVersion());
+
+            for (int i = 4; i <= 5; i++) {
+                BankAccount copy = new BankAccount(repository.findById("acc1"));
+                copy.setBalanceMinorUnits(i * 100);
+                assertTrue(repository.compareAndSave(copy, copy.getVersion()));
+            }
+            // Писатель, прочитавший счет до сброса, не перезаписывает более новый баланс
+            BankAccount lost = new BankAccount(stale);
+            lost.setBalanceMinorUnits(1);
+            assertFalse(repository.compareAndSave(lost, buffered));
+            assertEquals(500, repository.findById("acc1").getBalanceMinorUnits());
+        }
+    }
+}